@@ -0,0 +1,39 @@
+package pawlin.userapi.benchmark;
+
+import pawlin.userapi.model.User;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+final class BenchmarkUsers {
+    static final LocalDate OLDEST = LocalDate.of(1940, 1, 1);
+    static final int BIRTH_DATE_SPAN_DAYS = 80 * 365;
+
+    private static final String[] FIRST_NAMES = {"John", "Jane", "Adam", "Eve", "Olga", "Ivan", "Maria", "Petro"};
+    private static final String[] LAST_NAMES = {"Smith", "Doe", "Shevchenko", "Kowalski", "Novak", "Brown"};
+    private static final String[] STREETS = {"Main Street", "Khreshchatyk", "Market Square", "Park Lane"};
+
+    private BenchmarkUsers() {
+    }
+
+    static Map<Long, User> generate(int size) {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<Long, User> users = new HashMap<>(size * 2);
+        for (long id = 1; id <= size; id++) {
+            users.put(id, user(id, random));
+        }
+        return users;
+    }
+
+    static User user(Long id, SplittableRandom random) {
+        return new User(id,
+                "user" + random.nextInt() + "@example.com",
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                OLDEST.plusDays(random.nextInt(BIRTH_DATE_SPAN_DAYS)),
+                random.nextInt(1, 200) + " " + STREETS[random.nextInt(STREETS.length)],
+                "+380" + random.nextInt(100_000_000, 999_999_999));
+    }
+}
@@ -0,0 +1,137 @@
+package pawlin.userapi.benchmark;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import pawlin.userapi.UserApiApplication;
+import pawlin.userapi.repository.UserRepository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop HTTP load against GET /api/users/{id} with a simulated slow repository, once per request execution mode.
+// Usage: UserApiLoadTest [concurrency=1000] [seconds=20] [repositoryDelayMillis=10]
+public class UserApiLoadTest {
+    private static final int USERS = 10_000;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Duration duration = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 20);
+        long delayMillis = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+        if (Runtime.version().feature() < 21) {
+            System.out.println("Virtual threads need Java 21+, the virtual run falls back to the platform pool on Java " + Runtime.version().feature());
+        }
+
+        List<String> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            results.add(run(virtual, concurrency, duration, delayMillis));
+        }
+
+        System.out.printf("%n%-10s %12s %10s %10s %10s %10s%n", "threads", "requests/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private static String run(boolean virtual, int concurrency, Duration duration, long delayMillis) throws Exception {
+        SpringApplication application = new SpringApplication(UserApiApplication.class);
+        application.addInitializers(context -> context.getBeanFactory().addBeanPostProcessor(slowRepository(delayMillis)));
+
+        try (ConfigurableApplicationContext context = application.run("--server.port=0", "--logging.level.root=WARN", "--spring.threads.virtual.enabled=" + virtual)) {
+            context.getBean(UserRepository.class).createAll(new ArrayList<>(BenchmarkUsers.generate(USERS).values()));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            load(client, port, concurrency, WARMUP, new Recorder());
+            Recorder recorder = new Recorder();
+            load(client, port, concurrency, duration, recorder);
+
+            long[] latencies = recorder.latencies();
+            Arrays.sort(latencies);
+            return String.format("%-10s %12.0f %10.1f %10.1f %10.1f %10d", virtual ? "virtual" : "platform",
+                    latencies.length / (double) duration.toSeconds(),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999), recorder.errors.get());
+        }
+    }
+
+    private static void load(HttpClient client, int port, int concurrency, Duration duration, Recorder recorder) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = loop(client, port, deadline, recorder);
+        }
+        CompletableFuture.allOf(workers).join();
+    }
+
+    private static CompletableFuture<Void> loop(HttpClient client, int port, long deadline, Recorder recorder) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/" + ThreadLocalRandom.current().nextInt(1, USERS + 1))).build();
+        long started = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        recorder.errors.incrementAndGet();
+                    } else {
+                        recorder.record(System.nanoTime() - started);
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(client, port, deadline, recorder));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    private static BeanPostProcessor slowRepository(long delayMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof UserRepository userRepository)) {
+                    return bean;
+                }
+
+                return Proxy.newProxyInstance(UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class}, (proxy, method, arguments) -> {
+                    Thread.sleep(delayMillis);
+                    try {
+                        return method.invoke(userRepository, arguments);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+            }
+        };
+    }
+
+    private static final class Recorder {
+        private final AtomicLong errors = new AtomicLong();
+        private long[] latencies = new long[1 << 16];
+        private int size;
+
+        synchronized void record(long latency) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+        }
+
+        synchronized long[] latencies() {
+            return Arrays.copyOf(latencies, size);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package pawlin.userapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import pawlin.userapi.controller.UserController;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.mapper.UserDtoModelAssembler;
+import pawlin.userapi.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserDtoModelAssemblerBenchmark {
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private final UserDtoModelAssembler userDtoModelAssembler = new UserDtoModelAssembler();
+    private List<User> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = new ArrayList<>(BenchmarkUsers.generate(size).values());
+    }
+
+    @Benchmark
+    public UserDto toModel() {
+        return userDtoModelAssembler.toModel(users.get(0));
+    }
+
+    @Benchmark
+    public CollectionModel<UserDto> toCollectionModel() {
+        return userDtoModelAssembler.toCollectionModel(users);
+    }
+
+    @Benchmark
+    public UserDto toModelWithMethodOn() {
+        return toModelWithMethodOn(users.get(0));
+    }
+
+    @Benchmark
+    public CollectionModel<UserDto> toCollectionModelWithMethodOn() {
+        List<UserDto> dtos = new ArrayList<>(users.size());
+        for (User user : users) {
+            dtos.add(toModelWithMethodOn(user));
+        }
+
+        return CollectionModel.of(dtos).add(linkTo(UserController.class).withSelfRel());
+    }
+
+    private static UserDto toModelWithMethodOn(User entity) {
+        UserDto dto = new UserDto(entity.getId(), entity.getEmail(), entity.getFirstName(), entity.getLastName(), entity.getBirthDate(), entity.getAddress(), entity.getPhoneNumber());
+        dto.add(linkTo(methodOn(UserController.class).getOne(entity.getId())).withSelfRel());
+
+        return dto;
+    }
+}
@@ -0,0 +1,89 @@
+package pawlin.userapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.mapper.UserDtoModelAssembler;
+import pawlin.userapi.dto.mapper.UserModelHttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Compares the size and encoding cost of a user collection per media type, with and without the gzip that the server
+// applies to responses above the compression threshold. The size of one response is printed once per trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserEncodingBenchmark {
+    private static final Type USER_COLLECTION = ResolvableType.forClassWithGenerics(CollectionModel.class, UserDto.class).getType();
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"application/hal+json", "application/cbor", "application/x-jackson-smile"})
+    private String mediaType;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private final UserModelHttpMessageConverter converter = new UserModelHttpMessageConverter(new ObjectMapper());
+    private CollectionModel<UserDto> users;
+    private MediaType contentType;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        users = new UserDtoModelAssembler().toCollectionModel(BenchmarkUsers.generate(size).values());
+        contentType = MediaType.parseMediaType(mediaType);
+        System.out.printf("%n%s%s, %d users: %d bytes%n", mediaType, gzip ? " gzip" : "", size, write());
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        OutputStream body = gzip ? new GZIPOutputStream(counter, 8192) : counter;
+        converter.write(users, USER_COLLECTION, contentType, new BenchmarkOutputMessage(body));
+        body.close();
+        return counter.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private record BenchmarkOutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+        BenchmarkOutputMessage(OutputStream body) {
+            this(body, new HttpHeaders());
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
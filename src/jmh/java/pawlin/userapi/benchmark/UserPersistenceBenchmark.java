@@ -0,0 +1,121 @@
+package pawlin.userapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pawlin.userapi.configuration.PersistenceProperties;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.implementation.ColumnarUserRepository;
+import pawlin.userapi.repository.implementation.UserRepositoryImpl;
+import pawlin.userapi.repository.persistence.UserPersistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class UserPersistenceBenchmark {
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public static class Append {
+        @Param({"1", "100", "1000"})
+        private int fsyncBatchSize;
+
+        private Path directory;
+        private UserPersistence userPersistence;
+        private UserRepository userRepository;
+        private User template;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("user-wal");
+            userPersistence = new UserPersistence(properties(directory, fsyncBatchSize));
+            userRepository = new UserRepositoryImpl(userPersistence.recover(), userPersistence);
+            template = BenchmarkUsers.user(null, new SplittableRandom(7));
+            for (long id = 1; id <= 10_000; id++) {
+                userRepository.update(template.withId(id));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            userPersistence.close();
+            delete(directory);
+        }
+
+        @Benchmark
+        public User update() {
+            return userRepository.update(template.withId(ThreadLocalRandom.current().nextLong(1, 10_001)));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public static class Recover {
+        @Param({"100000", "1000000"})
+        private int size;
+
+        @Param({"snapshot", "log"})
+        private String source;
+
+        @Param({"map", "columnar"})
+        private String storage;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("user-recovery");
+            Map<Long, User> users = BenchmarkUsers.generate(size);
+            try (UserPersistence userPersistence = new UserPersistence(properties(directory, 10_000))) {
+                userPersistence.recover();
+                if (source.equals("snapshot")) {
+                    userPersistence.snapshot(users.values().stream());
+                } else {
+                    users.forEach(userPersistence::append);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+
+        // Startup as the application runs it: the repository loads the users straight from the recovered view.
+        @Benchmark
+        public UserRepository recover() throws IOException {
+            try (UserPersistence userPersistence = new UserPersistence(properties(directory, 10_000))) {
+                return storage.equals("columnar")
+                        ? new ColumnarUserRepository(userPersistence, UserJournal.NONE)
+                        : new UserRepositoryImpl(userPersistence, UserJournal.NONE);
+            }
+        }
+    }
+
+    private static PersistenceProperties properties(Path directory, int fsyncBatchSize) {
+        return new PersistenceProperties(true, directory, fsyncBatchSize, Duration.ofMillis(100), Duration.ofMinutes(10));
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
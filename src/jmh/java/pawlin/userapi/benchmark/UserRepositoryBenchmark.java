@@ -0,0 +1,131 @@
+package pawlin.userapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.implementation.ColumnarUserRepository;
+import pawlin.userapi.repository.implementation.ShardedUserRepository;
+import pawlin.userapi.repository.implementation.UserRepositoryImpl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserRepositoryBenchmark {
+    private static final int RANGE_DAYS = 30;
+    private static final int SEARCH_LIMIT = 10;
+    private static final String[] SEARCH_QUERIES = {"j", "sh", "kow", "maria n", "user12", "example.c"};
+    private static final String[] UNMATCHED_SEARCH_QUERIES = {"q", "zy"};
+    private static final int RECENT_CHANGES = 1000;
+    private static final int PAGE_SIZE = 100;
+    private static final int PARTITIONS = 16;
+
+    @Param({"map", "columnar", "sharded"})
+    private String storage;
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private UserRepository userRepository;
+    private User template;
+    private long changedSince;
+    private final AtomicLong maxCreatedId = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Long, User> users = BenchmarkUsers.generate(size);
+        userRepository = switch (storage) {
+            case "columnar" -> new ColumnarUserRepository(users);
+            case "sharded" -> new ShardedUserRepository(users, PARTITIONS);
+            default -> new UserRepositoryImpl(users);
+        };
+        template = BenchmarkUsers.user(null, new SplittableRandom(7));
+
+        changedSince = userRepository.findChangedSince(Long.MAX_VALUE, 1).sequence();
+        for (long id = 1; id <= RECENT_CHANGES; id++) {
+            userRepository.update(template.withId(id * (size / RECENT_CHANGES)));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreated() {
+        for (long id = size + 1; id <= maxCreatedId.get(); id++) {
+            userRepository.delete(id);
+        }
+    }
+
+    @Benchmark
+    public Long create() {
+        Long id = userRepository.create(template);
+        maxCreatedId.accumulateAndGet(id, Math::max);
+        return id;
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return userRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return userRepository.findAll(UserCursor.after(randomId()), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<User> findByBirthDateBetween() {
+        LocalDate startDate = BenchmarkUsers.OLDEST.plusDays(ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS - RANGE_DAYS));
+        return userRepository.findByBirthDateBetween(startDate, startDate.plusDays(RANGE_DAYS));
+    }
+
+    @Benchmark
+    public List<User> findByBirthDateAfter() {
+        return userRepository.findByBirthDateAfter(BenchmarkUsers.OLDEST.plusDays(BenchmarkUsers.BIRTH_DATE_SPAN_DAYS - RANGE_DAYS));
+    }
+
+    @Benchmark
+    public List<User> findByBirthDateBefore() {
+        return userRepository.findByBirthDateBefore(BenchmarkUsers.OLDEST.plusDays(RANGE_DAYS));
+    }
+
+    @Benchmark
+    public List<User> search() {
+        return userRepository.search(SEARCH_QUERIES[ThreadLocalRandom.current().nextInt(SEARCH_QUERIES.length)], SEARCH_LIMIT);
+    }
+
+    @Benchmark
+    public List<User> searchUnmatched() {
+        return userRepository.search(UNMATCHED_SEARCH_QUERIES[ThreadLocalRandom.current().nextInt(UNMATCHED_SEARCH_QUERIES.length)], SEARCH_LIMIT);
+    }
+
+    @Benchmark
+    public UserChanges findChangedSince() {
+        return userRepository.findChangedSince(changedSince, RECENT_CHANGES);
+    }
+
+    @Benchmark
+    public User update() {
+        return userRepository.update(template.withId(randomId()));
+    }
+
+    @Benchmark
+    public Optional<User> compute() {
+        return userRepository.compute(randomId(), user -> user.toBuilder().firstName(template.getFirstName()).build());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+}
@@ -0,0 +1,73 @@
+package pawlin.userapi.benchmark;
+
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.implementation.ColumnarUserRepository;
+import pawlin.userapi.repository.implementation.ShardedUserRepository;
+import pawlin.userapi.repository.implementation.UserRepositoryImpl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Heap retained per user by each repository once filled with generated users, measured as used heap after full
+// collections, and fails unless the columnar repository takes at most a third of the map repository.
+// Usage: UserRepositoryFootprint [users=1000000]
+public class UserRepositoryFootprint {
+    private static final int BATCH_SIZE = 10_000;
+    private static final double COLUMNAR_TARGET = 3;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Map<String, Double> footprints = new LinkedHashMap<>();
+        footprints.put("map", bytesPerUser(() -> new UserRepositoryImpl(Map.of()), size));
+        footprints.put("columnar", bytesPerUser(() -> new ColumnarUserRepository(Map.of()), size));
+        footprints.put("sharded", bytesPerUser(() -> new ShardedUserRepository(Map.of(), 16), size));
+
+        System.out.printf("%n%-10s %12s%n", "storage", "bytes/user");
+        footprints.forEach((storage, bytes) -> System.out.printf("%-10s %12.1f%n", storage, bytes));
+
+        double ratio = footprints.get("map") / footprints.get("columnar");
+        System.out.printf("%ncolumnar uses %.1fx less than map, target %.1fx%n", ratio, COLUMNAR_TARGET);
+        if (ratio < COLUMNAR_TARGET) {
+            System.exit(1);
+        }
+    }
+
+    private static double bytesPerUser(RepositoryFactory factory, int size) {
+        long baseline = usedHeap();
+        UserRepository repository = factory.create();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int created = 0; created < size; created += BATCH_SIZE) {
+            List<User> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < Math.min(BATCH_SIZE, size - created); i++) {
+                batch.add(BenchmarkUsers.user(null, random));
+            }
+            repository.createAll(batch);
+        }
+
+        long used = usedHeap() - baseline;
+        if (repository.count() != size) {
+            throw new IllegalStateException("Expected " + size + " users, found " + repository.count());
+        }
+        return (double) used / size;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            memory.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @FunctionalInterface
+    private interface RepositoryFactory {
+        UserRepository create();
+    }
+}
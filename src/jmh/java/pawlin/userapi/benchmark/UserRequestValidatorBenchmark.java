@@ -0,0 +1,68 @@
+package pawlin.userapi.benchmark;
+
+import jakarta.validation.*;
+import org.openjdk.jmh.annotations.*;
+import pawlin.userapi.configuration.UserProperties;
+import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.dto.validation.LegalAgeCutoff;
+import pawlin.userapi.dto.validation.LegalDateValidator;
+import pawlin.userapi.dto.validation.UserRequestValidator;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserRequestValidatorBenchmark {
+    @Param({"true", "false"})
+    private boolean valid;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserRequestValidator userRequestValidator;
+    private UserRequestDto userRequestDto;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LegalAgeCutoff legalAgeCutoff = new LegalAgeCutoff(new UserProperties(18));
+        Configuration<?> configuration = Validation.byDefaultProvider().configure();
+        ConstraintValidatorFactory defaultFactory = configuration.getDefaultConstraintValidatorFactory();
+        validatorFactory = configuration.constraintValidatorFactory(new ConstraintValidatorFactory() {
+            @Override
+            public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+                return key == LegalDateValidator.class ? key.cast(new LegalDateValidator(legalAgeCutoff)) : defaultFactory.getInstance(key);
+            }
+
+            @Override
+            public void releaseInstance(ConstraintValidator<?, ?> instance) {
+                defaultFactory.releaseInstance(instance);
+            }
+        }).buildValidatorFactory();
+        validator = validatorFactory.getValidator();
+        userRequestValidator = new UserRequestValidator(validator, legalAgeCutoff);
+
+        userRequestDto = valid
+                ? new UserRequestDto("john@example.com", "John", "Smith", LocalDate.now().minusYears(30), "Main Street", "+380000000000")
+                : new UserRequestDto("not an email", " ", "Smith", LocalDate.now().minusYears(10), null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequestDto>> validate() {
+        return userRequestValidator.validate(userRequestDto);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequestDto>> validateWithValidator() {
+        return validator.validate(userRequestDto);
+    }
+}
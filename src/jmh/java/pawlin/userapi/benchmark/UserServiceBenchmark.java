@@ -0,0 +1,94 @@
+package pawlin.userapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import pawlin.userapi.UserApiApplication;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserServiceBenchmark {
+    private static final LongPredicate ANY_VERSION = version -> true;
+    private static final LocalDate RANGE_START = BenchmarkUsers.OLDEST.plusYears(40);
+    private static final LocalDate RANGE_END = RANGE_START.plusYears(1);
+    private static final String SPARSE_FIELDS = "id,email,firstName";
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private ObjectMapper objectMapper;
+    private UserRequestDto createRequest;
+    private UserRequestDto patchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(UserApiApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--logging.level.root=WARN");
+        userService = context.getBean(UserService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        context.getBean(UserRepository.class).createAll(new ArrayList<>(BenchmarkUsers.generate(size).values()));
+
+        createRequest = new UserRequestDto("john@example.com", "John", "Smith", LocalDate.now().minusYears(30), "Main Street", "+380000000000");
+        patchRequest = new UserRequestDto(null, "Jane", null, null, "Park Lane", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto findById() {
+        return userService.findById(randomId());
+    }
+
+    @Benchmark
+    public SerializedUserDto findSerializedById() {
+        return userService.findSerializedById(randomId());
+    }
+
+    @Benchmark
+    public byte[] findAllSerialized() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(userService.findAll(RANGE_START, RANGE_END));
+    }
+
+    @Benchmark
+    public byte[] findAllWithFields() {
+        return userService.findAll(RANGE_START, RANGE_END, SPARSE_FIELDS);
+    }
+
+    @Benchmark
+    public UserDto partialUpdate() {
+        return userService.partialUpdate(randomId(), patchRequest, ANY_VERSION);
+    }
+
+    @Benchmark
+    public UserDto update() {
+        return userService.update(randomId(), createRequest, ANY_VERSION);
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, size + 1);
+    }
+}
@@ -0,0 +1,12 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Deletions are kept for delta sync for the retention, clients with an older mark start over.
+@ConfigurationProperties("user.changes")
+public record ChangeProperties(@DefaultValue("24h") Duration retention,
+                               @DefaultValue("1m") Duration compactionInterval) {
+}
@@ -1,18 +1,97 @@
 package pawlin.userapi.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import pawlin.userapi.model.User;
-
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.context.annotation.Primary;
+import org.springframework.hateoas.mediatype.hal.HalMediaTypeConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import pawlin.userapi.dto.mapper.SerializedUserHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserModelHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserResponseCache;
+import pawlin.userapi.event.UserEventBuffer;
+import pawlin.userapi.exception.ReadOnlyReplicaException;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRecovery;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.persistence.UserPersistence;
+import pawlin.userapi.repository.replication.ReplicationFollower;
+import pawlin.userapi.repository.replication.ReplicationLeader;
 
 @Configuration
-@EnableConfigurationProperties(UserProperties.class)
+@EnableScheduling
+@EnableConfigurationProperties({UserProperties.class, PersistenceProperties.class, ResponseCacheProperties.class, EventProperties.class, ReplicationProperties.class, ShardingProperties.class, ChangeProperties.class})
 public class Config {
+    // Preferred over the persistence bean, which recovers users itself. The repository recovers them as it is created.
+    @Bean
+    @Primary
+    public UserRecovery userRecovery(ObjectProvider<UserPersistence> userPersistence) {
+        UserPersistence persistence = userPersistence.getIfAvailable();
+        return persistence != null ? persistence : UserRecovery.NONE;
+    }
+
+    // Every write is journaled before it is stored, so on a follower refusing the entry refuses the write. Preferred over
+    // the persistence bean, which is a journal itself.
+    @Bean
+    @Primary
+    public UserJournal userJournal(ObjectProvider<UserPersistence> userPersistence, ReplicationProperties replicationProperties) {
+        if (replicationProperties.role() == ReplicationProperties.Role.FOLLOWER) {
+            return (id, user) -> {
+                throw new ReadOnlyReplicaException(replicationProperties.leader());
+            };
+        }
+
+        UserPersistence persistence = userPersistence.getIfAvailable();
+        return persistence != null ? persistence : UserJournal.NONE;
+    }
+
+    // A follower starts over from a snapshot of the leader, so there is nothing for it to recover.
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "user.repository.persistence", name = "enabled", havingValue = "true")
+    public UserPersistence userPersistence(PersistenceProperties persistenceProperties, ReplicationProperties replicationProperties) {
+        if (replicationProperties.role() == ReplicationProperties.Role.FOLLOWER) {
+            throw new IllegalStateException("Followers replicate the users of the leader and cannot persist them");
+        }
+        return new UserPersistence(persistenceProperties);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "user.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(UserRepository userRepository, UserEventBuffer userEventBuffer, ReplicationProperties replicationProperties, MeterRegistry meterRegistry) {
+        return new ReplicationLeader(userRepository, userEventBuffer, replicationProperties, meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "user.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(UserRepository userRepository, ReplicationProperties replicationProperties, MeterRegistry meterRegistry) {
+        return new ReplicationFollower(userRepository, replicationProperties, meterRegistry);
+    }
+
+    @Bean
+    public UserEventBuffer userEventBuffer(EventProperties eventProperties) {
+        return new UserEventBuffer(eventProperties.capacity());
+    }
+
+    // Without a web stack there is no HAL configuration, and nothing is served over HTTP either.
+    @Bean
+    public UserResponseCache userResponseCache(ObjectMapper objectMapper, ObjectProvider<HalMediaTypeConfiguration> halMediaTypeConfiguration, ResponseCacheProperties responseCacheProperties, MeterRegistry meterRegistry) {
+        HalMediaTypeConfiguration hal = halMediaTypeConfiguration.getIfAvailable();
+        ObjectMapper halObjectMapper = hal != null ? hal.configureObjectMapper(objectMapper.copy()) : objectMapper;
+        return new UserResponseCache(halObjectMapper, responseCacheProperties, meterRegistry);
+    }
+
+    // Registered ahead of the default Jackson converters, so user models skip the HATEOAS HAL serializers.
+    @Bean
+    public UserModelHttpMessageConverter userModelHttpMessageConverter(ObjectMapper objectMapper) {
+        return new UserModelHttpMessageConverter(objectMapper);
+    }
+
     @Bean
-    public Map<Long, User> users() {
-        return new HashMap<>();
+    public SerializedUserHttpMessageConverter serializedUserHttpMessageConverter() {
+        return new SerializedUserHttpMessageConverter();
     }
 }
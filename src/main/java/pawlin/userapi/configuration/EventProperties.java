@@ -0,0 +1,8 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties("user.events")
+public record EventProperties(@DefaultValue("65536") int capacity) {
+}
@@ -0,0 +1,24 @@
+package pawlin.userapi.configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pawlin.userapi.repository.UserRepository;
+
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder userRepositoryMetrics(UserRepository userRepository) {
+        return meterRegistry -> Gauge.builder("user.repository.size", userRepository, UserRepository::count)
+                .description("Number of stored users")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties("user.repository.persistence")
+public record PersistenceProperties(@DefaultValue("false") boolean enabled,
+                                    @DefaultValue("data") Path directory,
+                                    @DefaultValue("1000") int fsyncBatchSize,
+                                    @DefaultValue("100ms") Duration fsyncInterval,
+                                    @DefaultValue("10m") Duration snapshotInterval) {
+}
@@ -0,0 +1,24 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// The leader listens on the port, followers connect to the host and port of the leader.
+@ConfigurationProperties("user.replication")
+public record ReplicationProperties(@DefaultValue("standalone") Role role,
+                                    @DefaultValue("localhost") String host,
+                                    @DefaultValue("7070") int port,
+                                    @DefaultValue("1000") int batchSize,
+                                    @DefaultValue("50ms") Duration pollInterval,
+                                    @DefaultValue("1s") Duration heartbeatInterval,
+                                    @DefaultValue("1s") Duration reconnectDelay) {
+    public enum Role {
+        STANDALONE, LEADER, FOLLOWER
+    }
+
+    public String leader() {
+        return host + ":" + port;
+    }
+}
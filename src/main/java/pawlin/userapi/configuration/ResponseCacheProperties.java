@@ -0,0 +1,9 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties("user.response-cache")
+public record ResponseCacheProperties(@DefaultValue("16MB") DataSize maximumSize) {
+}
@@ -0,0 +1,8 @@
+package pawlin.userapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties("user.repository.sharding")
+public record ShardingProperties(@DefaultValue("16") int partitions) {
+}
@@ -0,0 +1,64 @@
+package pawlin.userapi.controller;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+final class EntityTags {
+    static final LongPredicate ANY_VERSION = version -> true;
+
+    private static final String WILDCARD = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String QUOTE = "\"";
+    private static final String SEPARATOR = "-";
+
+    private EntityTags() {
+    }
+
+    static String of(long version) {
+        return QUOTE + version + QUOTE;
+    }
+
+    // Tags a representation other than the full HAL document, so each one gets its own strong tag for the same version.
+    static String of(long version, String representation) {
+        return representation.isEmpty() ? of(version) : QUOTE + version + SEPARATOR + representation + QUOTE;
+    }
+
+    // If-None-Match uses the weak comparison, so a weak tag matches its strong form.
+    static boolean ifNoneMatch(List<String> tags, String tag) {
+        for (String candidate : tags) {
+            if (candidate.equals(WILDCARD) || candidate.substring(candidate.startsWith(WEAK_PREFIX) ? WEAK_PREFIX.length() : 0).equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Match uses the strong comparison, so weak and malformed tags never match, and "*" matches any existing user. A
+    // tag of any representation matches the version it was issued for.
+    static LongPredicate ifMatch(String header) {
+        if (header == null) {
+            return ANY_VERSION;
+        }
+
+        boolean wildcard = false;
+        Set<Long> versions = new HashSet<>();
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals(WILDCARD)) {
+                wildcard = true;
+            } else if (!tag.startsWith(WEAK_PREFIX) && tag.length() > 2 && tag.startsWith(QUOTE) && tag.endsWith(QUOTE)) {
+                try {
+                    int end = tag.indexOf(SEPARATOR);
+                    versions.add(Long.parseLong(tag.substring(1, end < 0 ? tag.length() - 1 : end)));
+                } catch (NumberFormatException e) {
+                    // Not a tag this API issued, so it cannot match.
+                }
+            }
+        }
+
+        boolean anyExisting = wildcard;
+        return version -> version != 0 && (anyExisting || versions.contains(version));
+    }
+}
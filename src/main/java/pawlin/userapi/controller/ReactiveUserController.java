@@ -0,0 +1,63 @@
+package pawlin.userapi.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.dto.mapper.ReactiveUserDtoModelAssembler;
+import pawlin.userapi.service.ReactiveUserService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private final ReactiveUserService reactiveUserService;
+    private final ReactiveUserDtoModelAssembler reactiveUserDtoModelAssembler;
+
+    @GetMapping(produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<UserDto> getAll(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return reactiveUserService.findAll(startDate, endDate);
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    public Mono<ResponseEntity<UserDto>> getOne(@PathVariable Long id) {
+        return reactiveUserService.findById(id).map(ReactiveUserController::withEntityTag);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> create(@RequestBody UserRequestDto userRequestDto) {
+        return reactiveUserService.create(userRequestDto)
+                .flatMap(reactiveUserDtoModelAssembler::toLocation)
+                .map(location -> ResponseEntity.created(location).build());
+    }
+
+    @PutMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    public Mono<ResponseEntity<UserDto>> update(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveUserService.update(id, userRequestDto, EntityTags.ifMatch(ifMatch)).map(ReactiveUserController::withEntityTag);
+    }
+
+    @PatchMapping(value = "/{id}", produces = MediaTypes.HAL_JSON_VALUE)
+    public Mono<ResponseEntity<UserDto>> partialUpdate(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return reactiveUserService.partialUpdate(id, userRequestDto, EntityTags.ifMatch(ifMatch)).map(ReactiveUserController::withEntityTag);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> delete(@PathVariable Long id) {
+        return reactiveUserService.delete(id).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    private static ResponseEntity<UserDto> withEntityTag(UserDto userDto) {
+        return ResponseEntity.ok().eTag(EntityTags.of(userDto.getVersion())).body(userDto);
+    }
+}
@@ -1,14 +1,31 @@
 package pawlin.userapi.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserBatchResultDto;
+import pawlin.userapi.dto.UserBatchUpdateRequestDto;
+import pawlin.userapi.dto.UserChangesDto;
 import pawlin.userapi.dto.UserDto;
 import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.dto.mapper.UserModelHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserNdjsonWriter;
+import pawlin.userapi.model.User;
 import pawlin.userapi.service.UserService;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -16,17 +33,67 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/api/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
     private final UserService userService;
+    private final UserNdjsonWriter userNdjsonWriter;
+    private final UserEventStreams userEventStreams;
 
     @GetMapping
     public ResponseEntity<CollectionModel<UserDto>> getAll(@RequestParam(required = false) LocalDate startDate, @RequestParam(required = false) LocalDate endDate) {
         return ResponseEntity.ok(userService.findAll(startDate, endDate));
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getOne(@PathVariable Long id) {
-        return ResponseEntity.ok(userService.findById(id));
+    @GetMapping(params = {"fields", "!limit", "!email"}, produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<byte[]> getAllFields(@RequestParam(required = false) LocalDate startDate, @RequestParam(required = false) LocalDate endDate, @RequestParam String fields) {
+        return ResponseEntity.ok(userService.findAll(startDate, endDate, fields));
+    }
+
+    @GetMapping(params = {"limit", "!email"})
+    public ResponseEntity<CollectionModel<UserDto>> getPage(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate, @RequestParam int limit, @RequestParam(required = false) String after, @RequestParam(required = false) String before) {
+        return ResponseEntity.ok(userService.findPage(startDate, endDate, limit, after, before));
+    }
+
+    @GetMapping(params = "email")
+    public ResponseEntity<CollectionModel<UserDto>> getByEmail(@RequestParam String email) {
+        return ResponseEntity.ok(userService.findByEmail(email));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CollectionModel<UserDto>> search(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.search(q, limit));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<UserChangesDto> changes(@RequestParam String since, @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(userService.findChanges(since, limit));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) LocalDate startDate, @RequestParam(required = false) LocalDate endDate) {
+        Stream<User> users = userService.export(startDate, endDate);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> userNdjsonWriter.write(users, outputStream));
+    }
+
+    // Streams creates, updates and deletes as they happen, resuming after the Last-Event-ID a reconnecting client sends.
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return userEventStreams.subscribe(lastEventId);
+    }
+
+    // Served as pre-rendered HAL bytes from the response cache, which the converter re-encodes for CBOR and Smile. HAL is
+    // listed first, so Spring picks it for clients that accept any of the types equally.
+    // UserEntityTagAdvice tags the negotiated representation and answers a matching If-None-Match.
+    @GetMapping(value = "/{id}", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, UserModelHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<SerializedUserDto> getOne(@PathVariable Long id) {
+        return ResponseEntity.ok(userService.findSerializedById(id));
+    }
+
+    @GetMapping(value = "/{id}", params = "fields", produces = {MediaTypes.HAL_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<SerializedUserDto> getOneFields(@PathVariable Long id, @RequestParam String fields) {
+        return ResponseEntity.ok(userService.findSerializedById(id, fields));
     }
 
     @PostMapping
@@ -35,14 +102,24 @@ public class UserController {
         return ResponseEntity.created(linkTo(methodOn(UserController.class).getOne(id)).toUri()).build();
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserBatchResultDto>> createAll(@RequestBody List<UserRequestDto> userRequestDtos) {
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(userService.createAll(userRequestDtos));
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<List<UserBatchResultDto>> updateAll(@RequestBody List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos) {
+        return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(userService.updateAll(userBatchUpdateRequestDtos));
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<UserDto> update(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto) {
-        return ResponseEntity.ok(userService.update(id, userRequestDto));
+    public ResponseEntity<UserDto> update(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return ResponseEntity.ok(userService.update(id, userRequestDto, EntityTags.ifMatch(ifMatch)));
     }
 
     @PatchMapping("/{id}")
-    public ResponseEntity<UserDto> partialUpdate(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto) {
-        return ResponseEntity.ok(userService.partialUpdate(id, userRequestDto));
+    public ResponseEntity<UserDto> partialUpdate(@PathVariable Long id, @RequestBody UserRequestDto userRequestDto, @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return ResponseEntity.ok(userService.partialUpdate(id, userRequestDto, EntityTags.ifMatch(ifMatch)));
     }
 
     @DeleteMapping("/{id}")
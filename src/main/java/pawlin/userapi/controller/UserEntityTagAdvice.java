@@ -0,0 +1,69 @@
+package pawlin.userapi.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.MethodParameter;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserField;
+
+// Tags single users once the media type is negotiated, so HAL, JSON, CBOR, Smile and each ?fields= selection of the
+// same version get different strong tags, and answers a matching If-None-Match with 304 Not Modified. The handlers set
+// no tag themselves, since Spring would compare it with If-None-Match before the media type is known.
+@RestControllerAdvice(assignableTypes = UserController.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserEntityTagAdvice implements ResponseBodyAdvice<Object> {
+    private static final String FIELDS = "fields";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        long version;
+        if (body instanceof SerializedUserDto user) {
+            version = user.version();
+        } else if (body instanceof UserDto user) {
+            version = user.getVersion();
+        } else {
+            return body;
+        }
+
+        String tag = EntityTags.of(version, representation(selectedContentType, request));
+        response.getHeaders().setETag(tag);
+        response.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if ((request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD) && EntityTags.ifNoneMatch(request.getHeaders().getIfNoneMatch(), tag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return null;
+        }
+        return body;
+    }
+
+    private static String representation(MediaType mediaType, ServerHttpRequest request) {
+        String representation = mediaType.equalsTypeAndSubtype(MediaTypes.HAL_JSON) ? "" : mediaType.getSubtype();
+        String fields = request instanceof ServletServerHttpRequest servletRequest ? servletRequest.getServletRequest().getParameter(FIELDS) : null;
+        if (fields == null) {
+            return representation;
+        }
+
+        // The selection as a bit per field, so listing the same fields in another order keeps the tag.
+        long selected = 0;
+        for (String field : fields.split(",")) {
+            selected |= UserField.of(field.strip()).map(userField -> 1L << userField.ordinal()).orElse(0L);
+        }
+        String selection = FIELDS + Long.toHexString(selected);
+        return representation.isEmpty() ? selection : representation + "-" + selection;
+    }
+}
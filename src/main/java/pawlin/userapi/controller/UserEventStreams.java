@@ -0,0 +1,146 @@
+package pawlin.userapi.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pawlin.userapi.dto.UserChangeDto;
+import pawlin.userapi.event.UserEvent;
+import pawlin.userapi.event.UserEventBuffer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Streams user events to SSE clients. Each stream is written on the task executor, one batch at a time, so a slow client
+// holds up at most one task and never a writer. Event ids combine the sequence with the start time of this instance, so
+// an id from before a restart or from another instance is not mistaken for a position in this buffer. A client that
+// missed events gets a reset event first, after which it should reload the users and keep reading.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserEventStreams {
+    private static final String RESET = "reset";
+    private static final int BATCH_SIZE = 256;
+    private static final String ID_SEPARATOR = "-";
+
+    private final UserEventBuffer userEventBuffer;
+    private final Executor executor;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Set<Stream> streams = ConcurrentHashMap.newKeySet();
+    private final Counter resets;
+
+    public UserEventStreams(UserEventBuffer userEventBuffer, @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor, MeterRegistry meterRegistry) {
+        this.userEventBuffer = userEventBuffer;
+        this.executor = executor;
+        this.resets = Counter.builder("user.events.resets")
+                .description("Event streams that missed events and were told to reload")
+                .register(meterRegistry);
+        Gauge.builder("user.events.streams", streams, Set::size)
+                .description("Open event streams")
+                .register(meterRegistry);
+        userEventBuffer.addListener(() -> streams.forEach(Stream::signal));
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter();
+        long position = parse(lastEventId);
+        Stream stream = position < 0 ? new Stream(emitter, userEventBuffer.lastSequence(), true) : new Stream(emitter, position, false);
+
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> streams.remove(stream));
+        emitter.onError(error -> streams.remove(stream));
+        streams.add(stream);
+        stream.signal();
+
+        return emitter;
+    }
+
+    // A missing id starts at the latest event, an unknown one is answered with a reset.
+    private long parse(String lastEventId) {
+        if (lastEventId == null) {
+            return userEventBuffer.lastSequence();
+        }
+
+        int separator = lastEventId.lastIndexOf(ID_SEPARATOR);
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(separator + 1));
+            return sequence <= userEventBuffer.lastSequence() ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String id(long sequence) {
+        return epoch + ID_SEPARATOR + sequence;
+    }
+
+    private final class Stream implements Runnable {
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private long position;
+        private boolean reset;
+
+        private Stream(SseEmitter emitter, long position, boolean reset) {
+            this.emitter = emitter;
+            this.position = position;
+            this.reset = reset;
+        }
+
+        private void signal() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (reset) {
+                    reset = false;
+                    sendReset();
+                }
+
+                List<UserEvent> events;
+                while (!(events = userEventBuffer.readAfter(position, BATCH_SIZE)).isEmpty()) {
+                    if (events.get(0).sequence() != position + 1) {
+                        position = events.get(0).sequence() - 1;
+                        sendReset();
+                    }
+                    for (UserEvent event : events) {
+                        UserChangeDto user = event.user() != null ? UserChangeDto.of(event.user()) : UserChangeDto.deleted(event.id());
+                        emitter.send(SseEmitter.event().id(id(event.sequence())).name(event.type().name().toLowerCase(Locale.ROOT)).data(user, MediaType.APPLICATION_JSON));
+                        position = event.sequence();
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client is gone or the stream timed out, and the emitter callbacks remove the stream.
+                streams.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+
+            // An event published while the flag was still set would otherwise wait for the next one.
+            if (!userEventBuffer.readAfter(position, 1).isEmpty()) {
+                signal();
+            }
+        }
+
+        private void sendReset() throws IOException {
+            resets.increment();
+            emitter.send(SseEmitter.event().id(id(position)).name(RESET).data("{}", MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package pawlin.userapi.dto;
+
+public record SerializedUserDto(long version, byte[] body) {
+}
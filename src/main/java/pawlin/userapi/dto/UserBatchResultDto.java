@@ -0,0 +1,9 @@
+package pawlin.userapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.net.URI;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserBatchResultDto(int index, int status, Long id, URI location, String detail) {
+}
@@ -0,0 +1,4 @@
+package pawlin.userapi.dto;
+
+public record UserBatchUpdateRequestDto(Long id, UserRequestDto user) {
+}
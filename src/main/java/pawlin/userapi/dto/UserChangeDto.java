@@ -0,0 +1,18 @@
+package pawlin.userapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import pawlin.userapi.model.User;
+
+import java.time.LocalDate;
+
+// A user as of a change, sent by the event stream and the delta sync. Deleted users are sent with the id only.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserChangeDto(Long id, Long version, String email, String firstName, String lastName, LocalDate birthDate, String address, String phoneNumber) {
+    public static UserChangeDto of(User user) {
+        return new UserChangeDto(user.getId(), user.getVersion(), user.getEmail(), user.getFirstName(), user.getLastName(), user.getBirthDate(), user.getAddress(), user.getPhoneNumber());
+    }
+
+    public static UserChangeDto deleted(Long id) {
+        return new UserChangeDto(id, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,8 @@
+package pawlin.userapi.dto;
+
+import java.util.List;
+
+// Reset means the given mark was not issued by this instance, so the changes start over from the first one and the
+// client should drop users it has not received again.
+public record UserChangesDto(String highWaterMark, boolean reset, boolean more, List<UserChangeDto> users, List<Long> deleted) {
+}
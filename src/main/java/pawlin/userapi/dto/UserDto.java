@@ -1,5 +1,6 @@
 package pawlin.userapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -20,4 +21,8 @@ public class UserDto extends RepresentationModel<UserDto> {
     private final LocalDate birthDate;
     private final String address;
     private final String phoneNumber;
+    // Sent as the ETag header rather than in the body.
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
 }
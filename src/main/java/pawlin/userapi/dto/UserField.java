@@ -0,0 +1,36 @@
+package pawlin.userapi.dto;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Selectable parts of a user response for ?fields=, named as they are serialized. Links count as a field, so leaving
+// _links out of the list skips them.
+public enum UserField {
+    ID("id"),
+    EMAIL("email"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName"),
+    BIRTH_DATE("birthDate"),
+    ADDRESS("address"),
+    PHONE_NUMBER("phoneNumber"),
+    LINKS("_links");
+
+    private static final Map<String, UserField> BY_NAME = Arrays.stream(values()).collect(Collectors.toUnmodifiableMap(UserField::fieldName, Function.identity()));
+
+    private final String fieldName;
+
+    UserField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    public static Optional<UserField> of(String fieldName) {
+        return Optional.ofNullable(BY_NAME.get(fieldName));
+    }
+}
@@ -0,0 +1,54 @@
+package pawlin.userapi.dto.mapper;
+
+import org.springframework.hateoas.Link;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.controller.ReactiveUserController;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.reactive.WebFluxLinkBuilder.methodOn;
+
+@Component
+public class ReactiveUserDtoModelAssembler {
+    private static final String ID_VARIABLE = "{id}";
+
+    public Mono<UserDto> toModel(Mono<User> entity) {
+        return links().flatMap(links -> entity.map(user -> toModel(user, links)));
+    }
+
+    public Flux<UserDto> toModels(Flux<User> entities) {
+        return links().flatMapMany(links -> entities.map(user -> toModel(user, links)));
+    }
+
+    public Mono<URI> toLocation(Long id) {
+        return links().map(links -> URI.create(links.self(id)));
+    }
+
+    private static UserDto toModel(User entity, Links links) {
+        UserDto dto = new UserDto(entity.getId(), entity.getEmail(), entity.getFirstName(), entity.getLastName(), entity.getBirthDate(), entity.getAddress(), entity.getPhoneNumber());
+        dto.setVersion(entity.getVersion());
+        dto.add(Link.of(links.self(entity.getId())));
+
+        return dto;
+    }
+
+    // The link template is resolved once per request and expanded for every streamed user.
+    private static Mono<Links> links() {
+        return linkTo(methodOn(ReactiveUserController.class).getOne(null)).withSelfRel().toMono().map(link -> {
+            String self = link.getHref();
+            int variable = self.indexOf(ID_VARIABLE);
+            return new Links(self.substring(0, variable), self.substring(variable + ID_VARIABLE.length()));
+        });
+    }
+
+    private record Links(String selfPrefix, String selfSuffix) {
+        String self(Long id) {
+            return selfPrefix + id + selfSuffix;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import pawlin.userapi.dto.SerializedUserDto;
+
+import java.io.IOException;
+
+// Writes a user rendered as HAL by the response cache, as is for HAL and JSON, or re-encoded token by token as CBOR or
+// Smile, which is cheaper than rendering the user again. HAL comes first, so it is what a client that does not name a
+// type gets.
+public class SerializedUserHttpMessageConverter extends AbstractHttpMessageConverter<SerializedUserDto> {
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final CBORFactory cborFactory = new CBORFactory();
+    private final SmileFactory smileFactory = new SmileFactory();
+
+    public SerializedUserHttpMessageConverter() {
+        super(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, UserModelHttpMessageConverter.APPLICATION_SMILE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == SerializedUserDto.class;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Long getContentLength(SerializedUserDto user, MediaType contentType) {
+        return isBinary(contentType) ? null : (long) user.body().length;
+    }
+
+    @Override
+    protected void writeInternal(SerializedUserDto user, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        if (!isBinary(contentType)) {
+            outputMessage.getBody().write(user.body());
+            return;
+        }
+
+        JsonFactory binaryFactory = contentType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR) ? cborFactory : smileFactory;
+        try (JsonParser parser = jsonFactory.createParser(user.body());
+             JsonGenerator generator = binaryFactory.createGenerator(outputMessage.getBody())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    @Override
+    protected SerializedUserDto readInternal(Class<? extends SerializedUserDto> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + clazz.getName() + " is not supported", inputMessage);
+    }
+
+    private static boolean isBinary(MediaType contentType) {
+        return contentType != null
+                && (contentType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR) || contentType.equalsTypeAndSubtype(UserModelHttpMessageConverter.APPLICATION_SMILE));
+    }
+}
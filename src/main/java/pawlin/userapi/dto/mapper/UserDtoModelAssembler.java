@@ -1,30 +1,106 @@
 package pawlin.userapi.dto.mapper;
 
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import pawlin.userapi.controller.UserController;
 import pawlin.userapi.dto.UserDto;
 import pawlin.userapi.model.User;
 
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @Component
 public class UserDtoModelAssembler implements RepresentationModelAssembler<User, UserDto> {
+    private static final String LINKS_ATTRIBUTE = UserDtoModelAssembler.class.getName() + ".links";
+    private static final String ID_VARIABLE = "{id}";
+
     @Override
     @NonNull
     public UserDto toModel(@NonNull User entity) {
-        UserDto dto = new UserDto(entity.getId(), entity.getEmail(), entity.getFirstName(), entity.getLastName(), entity.getBirthDate(), entity.getAddress(), entity.getPhoneNumber());
-        dto.add(linkTo(methodOn(UserController.class).getOne(entity.getId())).withSelfRel());
-
-        return dto;
+        return toModel(entity, links());
     }
 
     @Override
     @NonNull
     public CollectionModel<UserDto> toCollectionModel(@NonNull Iterable<? extends User> entities) {
-        return RepresentationModelAssembler.super.toCollectionModel(entities).add(linkTo(UserController.class).withSelfRel());
+        Links links = links();
+        List<UserDto> dtos = new ArrayList<>();
+        for (User entity : entities) {
+            dtos.add(toModel(entity, links));
+        }
+
+        return CollectionModel.of(dtos).add(linkTo(UserController.class).withSelfRel());
+    }
+
+    @NonNull
+    public CollectionModel<UserDto> toPagedModel(@NonNull Iterable<? extends User> entities, LocalDate startDate, LocalDate endDate, int limit, String next, String previous) {
+        CollectionModel<UserDto> model = toCollectionModel(entities);
+        if (next != null) {
+            model.add(linkTo(methodOn(UserController.class).getPage(startDate, endDate, limit, next, null)).withRel(IanaLinkRelations.NEXT).expand());
+        }
+        if (previous != null) {
+            model.add(linkTo(methodOn(UserController.class).getPage(startDate, endDate, limit, null, previous)).withRel(IanaLinkRelations.PREV).expand());
+        }
+
+        return model;
+    }
+
+    @NonNull
+    public Function<Long, URI> toLocations() {
+        Function<Long, String> selfHrefs = toSelfHrefs();
+        return id -> URI.create(selfHrefs.apply(id));
+    }
+
+    @NonNull
+    public Function<Long, String> toSelfHrefs() {
+        return links()::self;
+    }
+
+    private static UserDto toModel(User entity, Links links) {
+        UserDto dto = new UserDto(entity.getId(), entity.getEmail(), entity.getFirstName(), entity.getLastName(), entity.getBirthDate(), entity.getAddress(), entity.getPhoneNumber());
+        dto.setVersion(entity.getVersion());
+        dto.add(Link.of(links.self(entity.getId())));
+
+        return dto;
+    }
+
+    // Resolving links through methodOn proxies and the request mappings is expensive, so it is done once per request.
+    // Outside of a request it is done once per call, as nothing scopes the base URI the links were resolved against.
+    private Links links() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return Links.resolve();
+        }
+
+        Links links = (Links) attributes.getAttribute(LINKS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (links == null) {
+            links = Links.resolve();
+            attributes.setAttribute(LINKS_ATTRIBUTE, links, RequestAttributes.SCOPE_REQUEST);
+        }
+        return links;
+    }
+
+    private record Links(String selfPrefix, String selfSuffix) {
+        static Links resolve() {
+            String self = linkTo(methodOn(UserController.class).getOne(null)).withSelfRel().getHref();
+            int variable = self.indexOf(ID_VARIABLE);
+            return new Links(self.substring(0, variable), self.substring(variable + ID_VARIABLE.length()));
+        }
+
+        String self(Long id) {
+            return selfPrefix + id + selfSuffix;
+        }
     }
 }
@@ -0,0 +1,99 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.controller.UserController;
+import pawlin.userapi.dto.UserField;
+import pawlin.userapi.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+// Writes the HAL shape of UserDto straight from the users, limited to the requested fields, without building DTOs.
+@Component
+public class UserFieldsWriter {
+    private static final String COLLECTION_RELATION = "users";
+
+    private final JsonFactory jsonFactory;
+    private final UserDtoModelAssembler userDtoModelAssembler;
+
+    public UserFieldsWriter(ObjectMapper objectMapper, UserDtoModelAssembler userDtoModelAssembler) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.userDtoModelAssembler = userDtoModelAssembler;
+    }
+
+    public byte[] write(User user, Set<UserField> fields) {
+        Function<Long, String> selfHrefs = fields.contains(UserField.LINKS) ? userDtoModelAssembler.toSelfHrefs() : null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            write(user, fields, selfHrefs, generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public byte[] write(List<User> users, Set<UserField> fields) {
+        Function<Long, String> selfHrefs = fields.contains(UserField.LINKS) ? userDtoModelAssembler.toSelfHrefs() : null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            if (!users.isEmpty()) {
+                generator.writeObjectFieldStart("_embedded");
+                generator.writeArrayFieldStart(COLLECTION_RELATION);
+                for (User user : users) {
+                    write(user, fields, selfHrefs, generator);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            if (selfHrefs != null) {
+                writeSelfLink(generator, linkTo(UserController.class).withSelfRel().getHref());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(User user, Set<UserField> fields, Function<Long, String> selfHrefs, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (UserField field : fields) {
+            switch (field) {
+                case ID -> generator.writeNumberField(field.fieldName(), user.getId());
+                case EMAIL -> writeStringField(generator, field, user.getEmail());
+                case FIRST_NAME -> writeStringField(generator, field, user.getFirstName());
+                case LAST_NAME -> writeStringField(generator, field, user.getLastName());
+                case BIRTH_DATE -> writeStringField(generator, field, user.getBirthDate() == null ? null : user.getBirthDate().toString());
+                case ADDRESS -> writeStringField(generator, field, user.getAddress());
+                case PHONE_NUMBER -> writeStringField(generator, field, user.getPhoneNumber());
+                case LINKS -> writeSelfLink(generator, selfHrefs.apply(user.getId()));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, UserField field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field.fieldName(), value);
+        }
+    }
+
+    private static void writeSelfLink(JsonGenerator generator, String href) throws IOException {
+        generator.writeObjectFieldStart("_links");
+        generator.writeObjectFieldStart("self");
+        generator.writeStringField("href", href);
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+}
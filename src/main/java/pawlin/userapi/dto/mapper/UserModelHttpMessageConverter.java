@@ -0,0 +1,189 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Links;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.RepresentationModel;
+import org.springframework.hateoas.server.core.Relation;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import pawlin.userapi.dto.UserDto;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes UserDto and CollectionModel<UserDto> as HAL with a streaming generator, as JSON or as CBOR or Smile for callers
+// that prefer a binary encoding. Spring HATEOAS rebuilds the embedded map element by element and looks up serializers
+// for every link, which dominates the cost of large collections.
+public class UserModelHttpMessageConverter extends AbstractGenericHttpMessageConverter<RepresentationModel<?>> {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private static final String COLLECTION_RELATION = UserDto.class.getAnnotation(Relation.class).collectionRelation();
+
+    private final Map<MediaType, JsonFactory> jsonFactories = new LinkedHashMap<>();
+
+    public UserModelHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+        jsonFactories.put(MediaTypes.HAL_JSON, objectMapper.getFactory());
+        jsonFactories.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        jsonFactories.put(MediaType.APPLICATION_CBOR, new CBORFactory());
+        jsonFactories.put(APPLICATION_SMILE, new SmileFactory());
+    }
+
+    // Subclasses such as PagedModel carry more than content and links.
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return UserDto.class.isAssignableFrom(clazz) || clazz == CollectionModel.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        if (resolved.toClass() == CollectionModel.class) {
+            return UserDto.class.isAssignableFrom(resolved.getGeneric(0).toClass());
+        }
+        return UserDto.class.isAssignableFrom(resolved.toClass());
+    }
+
+    @Override
+    protected void writeInternal(RepresentationModel<?> model, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = jsonFactory(outputMessage.getHeaders().getContentType()).createGenerator(outputMessage.getBody())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (model instanceof UserDto user) {
+                write(user, generator);
+            } else {
+                write((CollectionModel<?>) model, generator);
+            }
+        }
+    }
+
+    @Override
+    protected RepresentationModel<?> readInternal(Class<? extends RepresentationModel<?>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + clazz.getName() + " is not supported", inputMessage);
+    }
+
+    @Override
+    public RepresentationModel<?> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading " + type.getTypeName() + " is not supported", inputMessage);
+    }
+
+    private JsonFactory jsonFactory(MediaType contentType) {
+        if (contentType != null) {
+            for (Map.Entry<MediaType, JsonFactory> entry : jsonFactories.entrySet()) {
+                if (entry.getKey().equalsTypeAndSubtype(contentType)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return jsonFactories.get(MediaTypes.HAL_JSON);
+    }
+
+    private static void write(CollectionModel<?> model, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        if (!model.getContent().isEmpty()) {
+            generator.writeObjectFieldStart("_embedded");
+            generator.writeArrayFieldStart(COLLECTION_RELATION);
+            for (Object user : model.getContent()) {
+                write((UserDto) user, generator);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        write(model.getLinks(), generator);
+        generator.writeEndObject();
+    }
+
+    private static void write(UserDto user, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        if (user.getId() != null) {
+            generator.writeNumberField("id", user.getId());
+        }
+        writeStringField(generator, "email", user.getEmail());
+        writeStringField(generator, "firstName", user.getFirstName());
+        writeStringField(generator, "lastName", user.getLastName());
+        if (user.getBirthDate() != null) {
+            generator.writeStringField("birthDate", user.getBirthDate().toString());
+        }
+        writeStringField(generator, "address", user.getAddress());
+        writeStringField(generator, "phoneNumber", user.getPhoneNumber());
+        write(user.getLinks(), generator);
+        generator.writeEndObject();
+    }
+
+    // HAL renders a relation with a single link as an object and one with several as an array.
+    private static void write(Links links, JsonGenerator generator) throws IOException {
+        if (links.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Link>> byRelation = new LinkedHashMap<>();
+        for (Link link : links) {
+            byRelation.computeIfAbsent(link.getRel().value(), relation -> new ArrayList<>()).add(link);
+        }
+
+        generator.writeObjectFieldStart("_links");
+        for (Map.Entry<String, List<Link>> relation : byRelation.entrySet()) {
+            generator.writeFieldName(relation.getKey());
+            if (relation.getValue().size() == 1) {
+                write(relation.getValue().get(0), generator);
+            } else {
+                generator.writeStartArray();
+                for (Link link : relation.getValue()) {
+                    write(link, generator);
+                }
+                generator.writeEndArray();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void write(Link link, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("href", link.getHref());
+        writeStringField(generator, "hreflang", link.getHreflang());
+        writeStringField(generator, "title", link.getTitle());
+        writeStringField(generator, "type", link.getType());
+        writeStringField(generator, "deprecation", link.getDeprecation());
+        writeStringField(generator, "profile", link.getProfile());
+        writeStringField(generator, "name", link.getName());
+        if (link.isTemplated()) {
+            generator.writeBooleanField("templated", true);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
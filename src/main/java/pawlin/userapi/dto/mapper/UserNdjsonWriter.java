@@ -0,0 +1,54 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Component
+public class UserNdjsonWriter {
+    private final JsonFactory jsonFactory;
+
+    public UserNdjsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public void write(Stream<User> users, OutputStream outputStream) throws IOException {
+        try (users; JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                write(iterator.next(), generator);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static void write(User user, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", user.getId());
+        writeStringField(generator, "email", user.getEmail());
+        writeStringField(generator, "firstName", user.getFirstName());
+        writeStringField(generator, "lastName", user.getLastName());
+        if (user.getBirthDate() != null) {
+            generator.writeStringField("birthDate", user.getBirthDate().toString());
+        }
+        writeStringField(generator, "address", user.getAddress());
+        writeStringField(generator, "phoneNumber", user.getPhoneNumber());
+        generator.writeEndObject();
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pawlin.userapi.configuration.ResponseCacheProperties;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.model.User;
+
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+public class UserResponseCache {
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final ObjectMapper halObjectMapper;
+    private final Cache<Long, Entry> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserResponseCache(ObjectMapper halObjectMapper, ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this(halObjectMapper, properties, meterRegistry, ForkJoinPool.commonPool());
+    }
+
+    UserResponseCache(ObjectMapper halObjectMapper, ResponseCacheProperties properties, MeterRegistry meterRegistry, Executor executor) {
+        this.halObjectMapper = halObjectMapper;
+        Counter evictions = Counter.builder("user.response.cache.evictions")
+                .description("Serialized users evicted to stay within the cache size")
+                .register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.maximumSize().toBytes())
+                .weigher((Long id, Entry entry) -> entry.weight())
+                .evictionListener((id, entry, cause) -> evictions.increment())
+                .executor(executor)
+                .build();
+        this.hits = Counter.builder("user.response.cache.gets")
+                .description("Single-user reads served from the cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("user.response.cache.gets")
+                .description("Single-user reads served from the cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("user.response.cache.size", cache, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .description("Approximate size of the cached responses")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // Entries are stamped with the version and the link base they were rendered for, so a stale entry is never served
+    // even if an invalidation races with the read that put it there.
+    public SerializedUserDto get(User user, Function<User, UserDto> assembler) {
+        String base = base();
+        Entry entry = cache.getIfPresent(user.getId());
+        if (entry != null && entry.version() == user.getVersion() && entry.base().equals(base)) {
+            hits.increment();
+            return new SerializedUserDto(entry.version(), entry.body());
+        }
+
+        misses.increment();
+        Entry rendered = new Entry(user.getVersion(), base, serialize(assembler.apply(user)));
+        cache.asMap().merge(user.getId(), rendered, (current, fresh) -> current.version() > fresh.version() ? current : fresh);
+        return new SerializedUserDto(rendered.version(), rendered.body());
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    private byte[] serialize(UserDto userDto) {
+        try {
+            return halObjectMapper.writeValueAsBytes(userDto);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The same base the link builders resolve links against; there is none outside of a request.
+    private static String base() {
+        return RequestContextHolder.getRequestAttributes() == null ? "" : ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString();
+    }
+
+    private record Entry(long version, String base, byte[] body) {
+        int weight() {
+            return ENTRY_OVERHEAD + base.length() + body.length;
+        }
+    }
+}
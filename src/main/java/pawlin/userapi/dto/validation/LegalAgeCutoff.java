@@ -0,0 +1,49 @@
+package pawlin.userapi.dto.validation;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.configuration.UserProperties;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+@Component
+public class LegalAgeCutoff {
+    private final int minimumAge;
+    private final Clock clock;
+    private volatile Cutoff cutoff;
+
+    @Autowired
+    public LegalAgeCutoff(UserProperties userProperties) {
+        this(userProperties, Clock.systemDefaultZone());
+    }
+
+    LegalAgeCutoff(UserProperties userProperties, Clock clock) {
+        this.minimumAge = userProperties.minimumAge();
+        this.clock = clock;
+    }
+
+    public boolean isLegal(LocalDate birthDate) {
+        if (birthDate == null) {
+            return false;
+        }
+
+        Cutoff current = current();
+        return birthDate.isBefore(current.today()) && !birthDate.isAfter(current.latestBirthDate());
+    }
+
+    // The dates only change at midnight, so they are computed once a day and checked against the clock in millis.
+    private Cutoff current() {
+        Cutoff current = cutoff;
+        if (current == null || clock.millis() >= current.expiresAt()) {
+            LocalDate today = LocalDate.now(clock);
+            current = new Cutoff(today, today.minusYears(minimumAge), today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli());
+            cutoff = current;
+        }
+
+        return current;
+    }
+
+    private record Cutoff(LocalDate today, LocalDate latestBirthDate, long expiresAt) {
+    }
+}
@@ -0,0 +1,184 @@
+package pawlin.userapi.dto.validation;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Path;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.dto.UserRequestDto;
+
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Checks the UserRequestDto constraints directly instead of walking its metadata on every call. The violations it
+// reports carry the same messages, paths and descriptors as the ones Hibernate Validator reports, in the order the
+// properties are declared.
+@Component
+public class UserRequestValidator {
+    private static final Map<String, Set<Class<? extends Annotation>>> CONSTRAINTS = Map.of(
+            "email", Set.of(Email.class),
+            "firstName", Set.of(NotBlank.class),
+            "lastName", Set.of(NotBlank.class),
+            "birthDate", Set.of(LegalDate.class));
+    private static final UserRequestDto INVALID = new UserRequestDto("@", " ", " ", null, null, null);
+    // Plain ASCII addresses, which every @Email accepts, as it rejects every address without an @. Anything else is left
+    // to @Email itself, so its rules are never copied here.
+    private static final String LABEL = "[a-z0-9](?:[a-z0-9-]{0,61}[a-z0-9])?";
+    private static final Pattern PLAIN_EMAIL = Pattern.compile(
+            "(?=[^@]{1,64}@)[a-z0-9_+-]+(?:\\.[a-z0-9_+-]+)*@(?=.{1,255}$)" + LABEL + "(?:\\." + LABEL + ")*", Pattern.CASE_INSENSITIVE);
+
+    private final Validator validator;
+    private final LegalAgeCutoff legalAgeCutoff;
+    private final ConstraintViolation<UserRequestDto> email;
+    private final ConstraintViolation<UserRequestDto> firstName;
+    private final ConstraintViolation<UserRequestDto> lastName;
+    private final ConstraintViolation<UserRequestDto> birthDate;
+    private final Pattern plainEmail;
+
+    public UserRequestValidator(Validator validator, LegalAgeCutoff legalAgeCutoff) {
+        requireKnownConstraints(validator.getConstraintsForClass(UserRequestDto.class));
+        this.validator = validator;
+        this.legalAgeCutoff = legalAgeCutoff;
+
+        // Violating every constraint once gives the interpolated messages and descriptors to report later.
+        Map<String, ConstraintViolation<UserRequestDto>> violations = validator.validate(INVALID).stream()
+                .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(), Function.identity()));
+        this.email = violations.get("email");
+        this.firstName = violations.get("firstName");
+        this.lastName = violations.get("lastName");
+        this.birthDate = violations.get("birthDate");
+        Email annotation = (Email) email.getConstraintDescriptor().getAnnotation();
+        this.plainEmail = annotation.regexp().equals(".*") && annotation.flags().length == 0 ? PLAIN_EMAIL : null;
+    }
+
+    public Set<ConstraintViolation<UserRequestDto>> validate(UserRequestDto userRequestDto) {
+        return validate(userRequestDto, false);
+    }
+
+    // Only the properties present in the request, as a partial update keeps the stored values of the others.
+    public Set<ConstraintViolation<UserRequestDto>> validatePresent(UserRequestDto userRequestDto) {
+        return validate(userRequestDto, true);
+    }
+
+    private Set<ConstraintViolation<UserRequestDto>> validate(UserRequestDto userRequestDto, boolean presentOnly) {
+        Set<ConstraintViolation<UserRequestDto>> violations = Set.of();
+
+        if ((!presentOnly || userRequestDto.email() != null) && !isEmail(userRequestDto.email())) {
+            violations = add(violations, email, userRequestDto, userRequestDto.email());
+        }
+        if ((!presentOnly || userRequestDto.firstName() != null) && isBlank(userRequestDto.firstName())) {
+            violations = add(violations, firstName, userRequestDto, userRequestDto.firstName());
+        }
+        if ((!presentOnly || userRequestDto.lastName() != null) && isBlank(userRequestDto.lastName())) {
+            violations = add(violations, lastName, userRequestDto, userRequestDto.lastName());
+        }
+        if ((!presentOnly || userRequestDto.birthDate() != null) && !legalAgeCutoff.isLegal(userRequestDto.birthDate())) {
+            violations = add(violations, birthDate, userRequestDto, userRequestDto.birthDate());
+        }
+
+        return violations;
+    }
+
+    private boolean isEmail(String value) {
+        if (value == null || value.isEmpty()) {
+            return true;
+        }
+        if (value.indexOf('@') < 0) {
+            return false;
+        }
+        return plainEmail != null && plainEmail.matcher(value).matches() || validator.validateValue(UserRequestDto.class, "email", value).isEmpty();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static Set<ConstraintViolation<UserRequestDto>> add(Set<ConstraintViolation<UserRequestDto>> violations, ConstraintViolation<UserRequestDto> prototype, UserRequestDto userRequestDto, Object invalidValue) {
+        Set<ConstraintViolation<UserRequestDto>> result = violations.isEmpty() ? new LinkedHashSet<>() : violations;
+        result.add(new Violation(prototype, userRequestDto, invalidValue));
+        return result;
+    }
+
+    private static void requireKnownConstraints(BeanDescriptor beanDescriptor) {
+        Map<String, Set<Class<? extends Annotation>>> declared = beanDescriptor.getConstrainedProperties().stream()
+                .collect(Collectors.toMap(PropertyDescriptor::getPropertyName, property -> property.getConstraintDescriptors().stream()
+                        .<Class<? extends Annotation>>map(constraint -> constraint.getAnnotation().annotationType())
+                        .collect(Collectors.toSet())));
+        if (beanDescriptor.hasConstraints() || !declared.equals(CONSTRAINTS)) {
+            throw new IllegalStateException("UserRequestValidator does not match the constraints declared on UserRequestDto: " + declared);
+        }
+    }
+
+    private record Violation(ConstraintViolation<UserRequestDto> prototype, UserRequestDto rootBean, Object invalidValue) implements ConstraintViolation<UserRequestDto> {
+        @Override
+        public String getMessage() {
+            return prototype.getMessage();
+        }
+
+        @Override
+        public String getMessageTemplate() {
+            return prototype.getMessageTemplate();
+        }
+
+        @Override
+        public UserRequestDto getRootBean() {
+            return rootBean;
+        }
+
+        @Override
+        public Class<UserRequestDto> getRootBeanClass() {
+            return UserRequestDto.class;
+        }
+
+        @Override
+        public Object getLeafBean() {
+            return rootBean;
+        }
+
+        @Override
+        public Object[] getExecutableParameters() {
+            return null;
+        }
+
+        @Override
+        public Object getExecutableReturnValue() {
+            return null;
+        }
+
+        @Override
+        public Path getPropertyPath() {
+            return prototype.getPropertyPath();
+        }
+
+        @Override
+        public Object getInvalidValue() {
+            return invalidValue;
+        }
+
+        @Override
+        public ConstraintDescriptor<?> getConstraintDescriptor() {
+            return prototype.getConstraintDescriptor();
+        }
+
+        @Override
+        public <U> U unwrap(Class<U> type) {
+            if (type.isInstance(this)) {
+                return type.cast(this);
+            }
+            throw new ValidationException("Type " + type.getName() + " is not supported");
+        }
+
+        @Override
+        public String toString() {
+            return "ConstraintViolation{propertyPath=" + getPropertyPath() + ", message=" + getMessage() + ", invalidValue=" + invalidValue + "}";
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package pawlin.userapi.event;
+
+import pawlin.userapi.model.User;
+
+// The user is the stored snapshot after the change, or null when it was deleted.
+public record UserEvent(long sequence, Type type, Long id, User user) {
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
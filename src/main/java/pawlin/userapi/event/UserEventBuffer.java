@@ -0,0 +1,68 @@
+package pawlin.userapi.event;
+
+import pawlin.userapi.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Holds the latest user events in a ring numbered by a global sequence. Publishing never waits for readers: a reader
+// that falls more than the capacity behind finds its next events overwritten and sees a gap instead.
+public class UserEventBuffer {
+    private final AtomicReferenceArray<UserEvent> events;
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public UserEventBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.events = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Listeners run on the publishing thread, so they should only hand the work off.
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public UserEvent publish(UserEvent.Type type, Long id, User user) {
+        UserEvent event = new UserEvent(sequence.incrementAndGet(), type, id, user);
+        // A publisher delayed by a whole lap must not replace the newer event in its slot.
+        events.accumulateAndGet(index(event.sequence()), event, (current, next) -> current == null || current.sequence() < next.sequence() ? next : current);
+        listeners.forEach(Runnable::run);
+        return event;
+    }
+
+    public long lastSequence() {
+        return sequence.get();
+    }
+
+    // Events after the given sequence in order, stopping at one that is still being published. When the events right
+    // after it are gone, or the sequence was never issued by this buffer, the oldest events still held are returned,
+    // so a gap before the first event tells the reader it missed some.
+    public List<UserEvent> readAfter(long after, int limit) {
+        long last = sequence.get();
+        long next = Math.max(Math.max(after <= last ? after : 0, last - events.length()), 0) + 1;
+
+        List<UserEvent> result = new ArrayList<>();
+        for (; next <= last && result.size() < limit; next++) {
+            UserEvent event = events.get(index(next));
+            if (event == null || event.sequence() < next) {
+                break;
+            }
+            if (event.sequence() > next) {
+                result.clear();
+                next = event.sequence();
+            }
+            result.add(event);
+        }
+
+        return result;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % events.length());
+    }
+}
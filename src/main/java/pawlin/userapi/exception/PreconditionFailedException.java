@@ -0,0 +1,28 @@
+package pawlin.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ProblemDetail;
+import org.springframework.lang.NonNull;
+import org.springframework.web.ErrorResponse;
+
+public class PreconditionFailedException extends RuntimeException implements ErrorResponse {
+    private final ProblemDetail body;
+
+    public PreconditionFailedException(Long id) {
+        super("Entity with id " + id + " does not match the expected version");
+        this.body = ProblemDetail.forStatusAndDetail(this.getStatusCode(), "Entity with id " + id + " does not match the expected version");
+    }
+
+    @Override
+    @NonNull
+    public HttpStatusCode getStatusCode() {
+        return HttpStatusCode.valueOf(HttpStatus.PRECONDITION_FAILED.value());
+    }
+
+    @Override
+    @NonNull
+    public ProblemDetail getBody() {
+        return this.body;
+    }
+}
@@ -0,0 +1,28 @@
+package pawlin.userapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ProblemDetail;
+import org.springframework.lang.NonNull;
+import org.springframework.web.ErrorResponse;
+
+public class ReadOnlyReplicaException extends RuntimeException implements ErrorResponse {
+    private final ProblemDetail body;
+
+    public ReadOnlyReplicaException(String leader) {
+        super("This instance is a read-only follower of the leader at " + leader);
+        this.body = ProblemDetail.forStatusAndDetail(this.getStatusCode(), "This instance is a read-only follower of the leader at " + leader);
+    }
+
+    @Override
+    @NonNull
+    public HttpStatusCode getStatusCode() {
+        return HttpStatusCode.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value());
+    }
+
+    @Override
+    @NonNull
+    public ProblemDetail getBody() {
+        return this.body;
+    }
+}
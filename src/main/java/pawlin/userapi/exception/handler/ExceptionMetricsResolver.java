@@ -0,0 +1,51 @@
+package pawlin.userapi.exception.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.exception.ReadOnlyReplicaException;
+import pawlin.userapi.exception.RequestParameterNotValidException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ExceptionMetricsResolver implements HandlerExceptionResolver, Ordered {
+    private static final List<Class<? extends Exception>> COUNTED = List.of(EntityNotFoundException.class, PreconditionFailedException.class, ReadOnlyReplicaException.class, RequestParameterNotValidException.class, ConstraintViolationException.class);
+
+    private final Map<Class<?>, Counter> counters;
+
+    public ExceptionMetricsResolver(MeterRegistry meterRegistry) {
+        this.counters = COUNTED.stream().collect(Collectors.toUnmodifiableMap(Function.identity(), type -> Counter.builder("user.exceptions")
+                .description("Exceptions returned to API clients")
+                .tag("exception", type.getSimpleName())
+                .register(meterRegistry)));
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Counter counter = counters.get(ex.getClass());
+        if (counter != null) {
+            counter.increment();
+        }
+
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,40 @@
+package pawlin.userapi.exception.handler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.exception.ReadOnlyReplicaException;
+import pawlin.userapi.exception.RequestParameterNotValidException;
+
+@RestControllerAdvice
+@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+    private final MeterRegistry meterRegistry;
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ProblemDetail> handleConstraintViolationException(ConstraintViolationException e) {
+        count(e);
+        return ResponseEntity.badRequest().body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    @ExceptionHandler({EntityNotFoundException.class, PreconditionFailedException.class, ReadOnlyReplicaException.class, RequestParameterNotValidException.class})
+    public ResponseEntity<ProblemDetail> handleErrorResponse(Exception e) {
+        count(e);
+        ErrorResponse errorResponse = (ErrorResponse) e;
+        return ResponseEntity.status(errorResponse.getStatusCode()).body(errorResponse.getBody());
+    }
+
+    private void count(Exception e) {
+        meterRegistry.counter("user.exceptions", "exception", e.getClass().getSimpleName()).increment();
+    }
+}
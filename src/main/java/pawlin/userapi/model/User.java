@@ -4,16 +4,25 @@ import lombok.*;
 
 import java.time.LocalDate;
 
-@Data
+// Stored instances are shared with concurrent readers, so changes are made on copies through toBuilder() and the withers.
+@Value
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class User {
     @With
-    @Setter(AccessLevel.NONE)
-    private Long id;
-    private String email;
-    private String firstName;
-    private String lastName;
-    private LocalDate birthDate;
-    private String address;
-    private String phoneNumber;
+    Long id;
+    String email;
+    String firstName;
+    String lastName;
+    LocalDate birthDate;
+    String address;
+    String phoneNumber;
+    // Assigned by the repository on every write; 0 until the user has been stored.
+    @With
+    @EqualsAndHashCode.Exclude
+    long version;
+
+    public User(Long id, String email, String firstName, String lastName, LocalDate birthDate, String address, String phoneNumber) {
+        this(id, email, firstName, lastName, birthDate, address, phoneNumber, 0);
+    }
 }
@@ -0,0 +1,31 @@
+package pawlin.userapi.repository;
+
+import pawlin.userapi.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+public interface ReactiveUserRepository {
+    Flux<User> findAll();
+
+    Mono<User> findById(Long id);
+
+    Flux<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate);
+
+    Flux<User> findByBirthDateAfter(LocalDate date);
+
+    Flux<User> findByBirthDateBefore(LocalDate date);
+
+    Mono<Long> create(User user);
+
+    Mono<User> update(User user, LongPredicate version);
+
+    Mono<User> compute(Long id, UnaryOperator<User> update);
+
+    Mono<User> delete(Long id);
+
+    Mono<Boolean> existsById(Long id);
+}
@@ -0,0 +1,14 @@
+package pawlin.userapi.repository;
+
+import pawlin.userapi.model.User;
+
+import java.util.List;
+
+// Users changed after a sequence and the ids of those deleted, with the sequence to continue from. More changes follow
+// when the limit was reached. Reset means the sequence is older than the compacted changes, so they start over from the
+// first one.
+public record UserChanges(List<User> users, List<Long> deleted, long sequence, boolean more, boolean reset) {
+    public UserChanges(List<User> users, List<Long> deleted, long sequence, boolean more) {
+        this(users, deleted, sequence, more, false);
+    }
+}
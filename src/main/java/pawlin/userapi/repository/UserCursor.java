@@ -0,0 +1,21 @@
+package pawlin.userapi.repository;
+
+import java.time.LocalDate;
+
+public record UserCursor(Long id, LocalDate birthDate, boolean backward) {
+    public static UserCursor after(Long id) {
+        return new UserCursor(id, null, false);
+    }
+
+    public static UserCursor before(Long id) {
+        return new UserCursor(id, null, true);
+    }
+
+    public static UserCursor after(LocalDate birthDate, Long id) {
+        return new UserCursor(id, birthDate, false);
+    }
+
+    public static UserCursor before(LocalDate birthDate, Long id) {
+        return new UserCursor(id, birthDate, true);
+    }
+}
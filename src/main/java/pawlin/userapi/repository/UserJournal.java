@@ -0,0 +1,17 @@
+package pawlin.userapi.repository;
+
+import pawlin.userapi.model.User;
+
+// Repositories append a write while they hold its lock, so entries keep the order of the writes, and sync after
+// releasing it, so waiting for the disk never holds up other readers and writers.
+@FunctionalInterface
+public interface UserJournal {
+    UserJournal NONE = (id, user) -> 0;
+
+    // Hands the write to the OS without waiting for the disk and returns its position in the journal.
+    long append(Long id, User user);
+
+    // Returns once the entries up to the position are as durable as the journal promises.
+    default void sync(long position) {
+    }
+}
@@ -0,0 +1,15 @@
+package pawlin.userapi.repository;
+
+import pawlin.userapi.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hands the users recovered at startup to the repository that loads them, which keeps no reference to them afterwards,
+// so they are not held a second time once loaded.
+@FunctionalInterface
+public interface UserRecovery {
+    UserRecovery NONE = HashMap::new;
+
+    Map<Long, User> recover();
+}
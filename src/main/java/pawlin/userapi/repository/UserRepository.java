@@ -5,23 +5,67 @@ import pawlin.userapi.model.User;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     List<User> findAll();
 
+    List<User> findAll(UserCursor cursor, int limit);
+
+    Stream<User> streamAll();
+
     Optional<User> findById(Long id);
 
+    List<User> findByEmail(String email);
+
+    // Users whose full name or email contains the query, ignoring case, in id order.
+    List<User> search(String query, int limit);
+
     List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate);
 
+    List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor, int limit);
+
+    Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate);
+
+    // Users created, updated or deleted after the given modification sequence, in the order of their latest change.
+    UserChanges findChangedSince(long sequence, int limit);
+
+    // Forgets the users deleted at or before the sequence, so tombstones do not pile up. Changes after an earlier
+    // sequence then start over with a reset, since a deletion may be missing from them.
+    void compactChanges(long sequence);
+
     List<User> findByBirthDateAfter(LocalDate date);
 
     List<User> findByBirthDateBefore(LocalDate date);
 
     Long create(User user);
 
+    List<Long> createAll(List<User> users);
+
     User update(User user);
 
-    void delete(Long id);
+    // The condition is tested against the stored version, which is 0 when the user does not exist.
+    User update(User user, LongPredicate version);
+
+    // Replaces the stored user with the result of the update in one atomic step, or does nothing when there is no such
+    // user. The update may throw to leave the stored user unchanged.
+    Optional<User> compute(Long id, UnaryOperator<User> update);
+
+    List<User> updateAll(List<User> users);
+
+    // Returns the deleted user, or nothing when there was no such user.
+    Optional<User> delete(Long id);
+
+    // Stores the user as given, version included, or removes it when null, without journaling. Followers apply the
+    // changes replicated from the leader this way.
+    void apply(Long id, User user);
+
+    // Listeners hear of every write but the applied ones.
+    void addListener(UserWriteListener listener);
 
     boolean existsById(Long id);
+
+    long count();
 }
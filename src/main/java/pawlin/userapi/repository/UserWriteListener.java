@@ -0,0 +1,11 @@
+package pawlin.userapi.repository;
+
+import pawlin.userapi.model.User;
+
+// Repositories call listeners while they hold the lock of the write, so the writes of a user reach them in the order
+// they were made. Listeners should only hand the work off.
+@FunctionalInterface
+public interface UserWriteListener {
+    // The previous user is null when the user was created, the stored one when it was deleted.
+    void written(Long id, User previous, User stored);
+}
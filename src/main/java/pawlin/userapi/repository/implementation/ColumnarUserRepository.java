@@ -0,0 +1,840 @@
+package pawlin.userapi.repository.implementation;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRecovery;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.UserWriteListener;
+import pawlin.userapi.repository.index.EmailIndex;
+import pawlin.userapi.repository.index.SearchIndex;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+// Keeps users in primitive columns and every index over them in primitive arrays as well, all behind one lock, so a
+// user costs a few hundred bytes instead of the objects, boxed keys and map nodes of UserRepositoryImpl. Run
+// UserRepositoryFootprint to compare the bytes per user of both.
+@Repository
+@Timed("user.repository")
+@ConditionalOnProperty(prefix = "user.repository", name = "storage", havingValue = "columnar")
+public class ColumnarUserRepository implements UserRepository {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_BATCH_SIZE = 1024;
+    private static final int FIRST_BATCH_SIZE = 32;
+    private static final long NO_BIRTH_DATE = Long.MIN_VALUE;
+    private static final LongPredicate ANY_VERSION = version -> true;
+
+    private final StampedLock lock = new StampedLock();
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary addresses = new StringDictionary();
+    private final HashIndex emailIndex = new HashIndex();
+    private final NavigableMap<Long, DayIds> birthDateIndex = new TreeMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final UserJournal journal;
+    private final List<UserWriteListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Records are kept sorted by id, so lookups are a binary search and id-ordered pages are a plain scan. Deleted users
+    // keep their slot and the sequence of their deletion as a tombstone for findChangedSince, until it is compacted.
+    private long[] ids;
+    private long[] versions;
+    private long[] changes;
+    private boolean[] live;
+    private long[] birthDates;
+    private int[] firstNames;
+    private int[] lastNames;
+    private int[] addressCodes;
+    private long[] emails;
+    private long[] phoneNumbers;
+    private StringArena strings = new StringArena();
+    private int size;
+    private int count;
+    private long sequence;
+    private long journalPosition;
+
+    // Every change appends its sequence and id, so the changes after a sequence are a tail of the log. Entries replaced
+    // by a later change of the same user are skipped when read and dropped when the log fills up.
+    private long[] changeSequences = new long[INITIAL_CAPACITY];
+    private long[] changeIds = new long[INITIAL_CAPACITY];
+    private int changeCount;
+    private long changeSequence;
+    private long compactedSequence;
+    // New users start after the highest version deleted so far, so a user created again under a deleted id never
+    // repeats a version of the one before it.
+    private long deletedVersion;
+
+    public ColumnarUserRepository(Map<Long, User> users) {
+        this(users, UserJournal.NONE);
+    }
+
+    // Users are put in id order, so each one is appended, and read one at a time, so only the columns hold them.
+    public ColumnarUserRepository(Map<Long, User> users, UserJournal journal) {
+        allocate(Math.max(INITIAL_CAPACITY, users.size()));
+        for (long id : users.keySet().stream().mapToLong(Long::longValue).sorted().toArray()) {
+            User user = users.get(id);
+            put(id, user);
+            deletedVersion = Math.max(deletedVersion, user.getVersion());
+        }
+        this.journal = journal;
+    }
+
+    @Autowired
+    public ColumnarUserRepository(UserRecovery recovery, UserJournal journal) {
+        this(recovery.recover(), journal);
+    }
+
+    @Override
+    public List<User> findAll() {
+        long stamp = lock.readLock();
+        try {
+            List<User> users = new ArrayList<>(count);
+            for (int slot = 0; slot < size; slot++) {
+                if (live[slot]) {
+                    users.add(read(slot));
+                }
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<User> findAll(UserCursor cursor, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<User> users = new ArrayList<>(Math.min(limit, count));
+            if (cursor != null && cursor.backward()) {
+                for (int slot = position(cursor.id()) - 1; slot >= 0 && users.size() < limit; slot--) {
+                    if (live[slot]) {
+                        users.add(read(slot));
+                    }
+                }
+                Collections.reverse(users);
+            } else {
+                int slot = cursor == null ? 0 : position(cursor.id() + 1);
+                for (; slot < size && users.size() < limit; slot++) {
+                    if (live[slot]) {
+                        users.add(read(slot));
+                    }
+                }
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        Iterator<User> iterator = new Iterator<>() {
+            private Iterator<User> batch = Collections.emptyIterator();
+            private Long last;
+            private int batchSize = FIRST_BATCH_SIZE;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && !exhausted) {
+                    List<User> users = findAll(last == null ? null : UserCursor.after(last), batchSize);
+                    exhausted = users.size() < batchSize;
+                    if (!users.isEmpty()) {
+                        last = users.get(users.size() - 1).getId();
+                    }
+                    batch = users.iterator();
+                    batchSize = Math.min(batchSize * 2, STREAM_BATCH_SIZE);
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = find(id);
+            return slot >= 0 ? Optional.of(read(slot)) : Optional.empty();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<User> findByEmail(String email) {
+        long stamp = lock.readLock();
+        try {
+            List<User> users = new ArrayList<>(1);
+            for (long id : emailIndex.find(emailHash(email))) {
+                User user = read(find(id));
+                if (EmailIndex.matches(user.getEmail(), email)) {
+                    users.add(user);
+                }
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Checks candidates against the searched columns and reads only the users that match, a batch per read lock.
+    @Override
+    public List<User> search(String query, int limit) {
+        List<User> users = new ArrayList<>(Math.min(limit, FIRST_BATCH_SIZE));
+        if (searchIndex.covers(query)) {
+            Iterator<Long> candidates = searchIndex.find(query).iterator();
+            while (users.size() < limit && candidates.hasNext()) {
+                long stamp = lock.readLock();
+                try {
+                    for (int i = 0; i < STREAM_BATCH_SIZE && users.size() < limit && candidates.hasNext(); i++) {
+                        int slot = find(candidates.next());
+                        if (slot >= 0 && matches(slot, query)) {
+                            users.add(read(slot));
+                        }
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return users;
+        }
+
+        Long last = null;
+        int scanned = STREAM_BATCH_SIZE;
+        while (users.size() < limit && scanned == STREAM_BATCH_SIZE) {
+            long stamp = lock.readLock();
+            try {
+                int slot = last == null ? 0 : position(last + 1);
+                for (scanned = 0; slot < size && scanned < STREAM_BATCH_SIZE && users.size() < limit; slot++, scanned++) {
+                    last = ids[slot];
+                    if (live[slot] && matches(slot, query)) {
+                        users.add(read(slot));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        return findByBirthDateBetween(startDate, endDate, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor, int limit) {
+        return Pages.collect(streamByBirthDateBetween(startDate, endDate, cursor), cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        return streamByBirthDateBetween(startDate, endDate, null);
+    }
+
+    @Override
+    public UserChanges findChangedSince(long sequence, int limit) {
+        long stamp = lock.readLock();
+        try {
+            boolean reset = sequence > 0 && sequence < compactedSequence;
+            long after = reset ? 0 : sequence;
+            if (after >= changeSequence) {
+                return new UserChanges(List.of(), List.of(), changeSequence, false, reset);
+            }
+
+            List<User> changed = new ArrayList<>();
+            List<Long> deleted = new ArrayList<>();
+            long position = after;
+            int entry = Arrays.binarySearch(changeSequences, 0, changeCount, after + 1);
+            for (entry = entry >= 0 ? entry : -entry - 1; entry < changeCount && changed.size() + deleted.size() < limit; entry++) {
+                int slot = latestChange(entry);
+                if (slot < 0) {
+                    continue;
+                }
+
+                if (live[slot]) {
+                    changed.add(read(slot));
+                } else {
+                    deleted.add(ids[slot]);
+                }
+                position = changeSequences[entry];
+            }
+
+            boolean more = false;
+            for (; entry < changeCount && !more; entry++) {
+                more = latestChange(entry) >= 0;
+            }
+            return new UserChanges(changed, deleted, more ? position : changeSequence, more, reset);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Frees the slots of the users deleted at or before the sequence. Their log entries no longer find a slot, so they
+    // are skipped when read and dropped with the next compaction of the log.
+    @Override
+    public void compactChanges(long sequence) {
+        long stamp = lock.writeLock();
+        try {
+            if (sequence <= compactedSequence) {
+                return;
+            }
+
+            compactedSequence = sequence;
+            int target = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (live[slot] || changes[slot] > sequence) {
+                    if (target != slot) {
+                        moveSlot(slot, target);
+                    }
+                    target++;
+                }
+            }
+            size = target;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public List<User> findByBirthDateAfter(LocalDate date) {
+        return findByBirthDateBetween(date, LocalDate.MAX);
+    }
+
+    @Override
+    public List<User> findByBirthDateBefore(LocalDate date) {
+        return findByBirthDateBetween(LocalDate.MIN, date);
+    }
+
+    @Override
+    public Long create(User user) {
+        return journaled(() -> {
+            Long id = ++sequence;
+            write(id, user, ANY_VERSION);
+            return id;
+        });
+    }
+
+    @Override
+    public List<Long> createAll(List<User> users) {
+        return journaled(() -> {
+            List<Long> created = new ArrayList<>(users.size());
+            for (User user : users) {
+                Long id = ++sequence;
+                write(id, user, ANY_VERSION);
+                created.add(id);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public User update(User user) {
+        return update(user, ANY_VERSION);
+    }
+
+    @Override
+    public User update(User user, LongPredicate version) {
+        return journaled(() -> write(user.getId(), user, version));
+    }
+
+    @Override
+    public Optional<User> compute(Long id, UnaryOperator<User> update) {
+        return journaled(() -> {
+            int slot = find(id);
+            return slot >= 0 ? Optional.of(write(id, update.apply(read(slot)), ANY_VERSION)) : Optional.empty();
+        });
+    }
+
+    @Override
+    public List<User> updateAll(List<User> users) {
+        return journaled(() -> {
+            List<User> updated = new ArrayList<>(users.size());
+            users.forEach(user -> updated.add(write(user.getId(), user, ANY_VERSION)));
+            return updated;
+        });
+    }
+
+    @Override
+    public Optional<User> delete(Long id) {
+        return journaled(() -> {
+            int slot = find(id);
+            if (slot < 0) {
+                return Optional.empty();
+            }
+
+            User deleted = read(slot);
+            journalPosition = journal.append(id, null);
+            remove(slot);
+            listeners.forEach(listener -> listener.written(id, deleted, null));
+            return Optional.of(deleted);
+        });
+    }
+
+    @Override
+    public void apply(Long id, User user) {
+        long stamp = lock.writeLock();
+        try {
+            if (user != null) {
+                put(id, user);
+                return;
+            }
+
+            int slot = find(id);
+            if (slot >= 0) {
+                remove(slot);
+            } else {
+                bury(id);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addListener(UserWriteListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        long stamp = lock.readLock();
+        try {
+            return find(id) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long count() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    int dictionarySize() {
+        return names.size() + addresses.size();
+    }
+
+    private Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor) {
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        boolean backward = cursor != null && cursor.backward();
+        Iterator<User> iterator = new Iterator<>() {
+            private Iterator<User> batch = Collections.emptyIterator();
+            private long day = cursor == null ? startDay : cursor.birthDate().toEpochDay();
+            private long id = cursor == null ? Long.MIN_VALUE : cursor.id();
+            private int batchSize = FIRST_BATCH_SIZE;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && !exhausted) {
+                    List<User> users = findByBirthDay(startDay, endDay, day, id, backward, batchSize);
+                    exhausted = users.size() < batchSize;
+                    if (!users.isEmpty()) {
+                        User last = users.get(users.size() - 1);
+                        day = last.getBirthDate().toEpochDay();
+                        id = last.getId();
+                    }
+                    batch = users.iterator();
+                    batchSize = Math.min(batchSize * 2, STREAM_BATCH_SIZE);
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Users born between the start and end day, ordered by birth date and id, after the given day and id, or before it
+    // going backward.
+    private List<User> findByBirthDay(long startDay, long endDay, long day, long id, boolean backward, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<User> users = new ArrayList<>(Math.min(limit, count));
+            if (backward) {
+                if (day > endDay) {
+                    day = endDay;
+                    id = Long.MAX_VALUE;
+                }
+                if (day < startDay) {
+                    return users;
+                }
+                for (Map.Entry<Long, DayIds> entry : birthDateIndex.subMap(startDay, true, day, true).descendingMap().entrySet()) {
+                    DayIds dayIds = entry.getValue();
+                    int from = entry.getKey() == day ? dayIds.before(id) : dayIds.size - 1;
+                    for (int i = from; i >= 0 && users.size() < limit; i--) {
+                        users.add(read(find(dayIds.ids[i])));
+                    }
+                    if (users.size() == limit) {
+                        break;
+                    }
+                }
+            } else {
+                if (day < startDay) {
+                    day = startDay;
+                    id = Long.MIN_VALUE;
+                }
+                if (day > endDay) {
+                    return users;
+                }
+                for (Map.Entry<Long, DayIds> entry : birthDateIndex.subMap(day, true, endDay, true).entrySet()) {
+                    DayIds dayIds = entry.getValue();
+                    int from = entry.getKey() == day ? dayIds.after(id) : 0;
+                    for (int i = from; i < dayIds.size && users.size() < limit; i++) {
+                        users.add(read(find(dayIds.ids[i])));
+                    }
+                    if (users.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int find(long id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        return slot >= 0 && live[slot] ? slot : -1;
+    }
+
+    private int position(long id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        return slot >= 0 ? slot : -slot - 1;
+    }
+
+    // The slot of the user whose latest change the log entry is, or -1 when a later change replaced it.
+    private int latestChange(int entry) {
+        int slot = Arrays.binarySearch(ids, 0, size, changeIds[entry]);
+        return slot >= 0 && changes[slot] == changeSequences[entry] ? slot : -1;
+    }
+
+    // Writes are journaled under the write lock, so the journal keeps their order, and synced once it is released.
+    private <T> T journaled(Supplier<T> write) {
+        long stamp = lock.writeLock();
+        T result;
+        long position;
+        try {
+            result = write.get();
+            position = journalPosition;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        journal.sync(position);
+        return result;
+    }
+
+    private User write(Long id, User user, LongPredicate version) {
+        int slot = find(id);
+        long current = slot >= 0 ? versions[slot] : 0;
+        if (!version.test(current)) {
+            throw new PreconditionFailedException(id);
+        }
+
+        User stored = user.withId(id).withVersion((slot >= 0 ? current : deletedVersion) + 1);
+        User previous = slot >= 0 && !listeners.isEmpty() ? read(slot) : null;
+        journalPosition = journal.append(id, stored);
+        put(id, stored);
+        listeners.forEach(listener -> listener.written(id, previous, stored));
+        return stored;
+    }
+
+    private void put(Long id, User user) {
+        int firstName = names.acquire(user.getFirstName());
+        int lastName = names.acquire(user.getLastName());
+        int address = addresses.acquire(user.getAddress());
+
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        if (slot >= 0 && live[slot]) {
+            String email = strings.get(emails[slot]);
+            searchIndex.update(id, email, names.get(firstNames[slot]), names.get(lastNames[slot]), user.getEmail(), user.getFirstName(), user.getLastName());
+            unindex(slot, email);
+        } else {
+            searchIndex.add(id, user.getEmail(), user.getFirstName(), user.getLastName());
+            if (slot < 0) {
+                slot = -slot - 1;
+                insertSlot(slot);
+                ids[slot] = id;
+            }
+            live[slot] = true;
+            count++;
+        }
+
+        versions[slot] = user.getVersion();
+        birthDates[slot] = user.getBirthDate() == null ? NO_BIRTH_DATE : user.getBirthDate().toEpochDay();
+        firstNames[slot] = firstName;
+        lastNames[slot] = lastName;
+        addressCodes[slot] = address;
+        emails[slot] = strings.add(user.getEmail());
+        phoneNumbers[slot] = strings.add(user.getPhoneNumber());
+        sequence = Math.max(sequence, id);
+
+        if (birthDates[slot] != NO_BIRTH_DATE) {
+            birthDateIndex.computeIfAbsent(birthDates[slot], day -> new DayIds()).add(id);
+        }
+        if (user.getEmail() != null) {
+            emailIndex.add(emailHash(user.getEmail()), id);
+        }
+        recordChange(slot);
+        if (strings.wasteful()) {
+            compactStrings();
+        }
+    }
+
+    private void remove(int slot) {
+        String email = strings.get(emails[slot]);
+        searchIndex.remove(ids[slot], email, names.get(firstNames[slot]), names.get(lastNames[slot]));
+        unindex(slot, email);
+        deletedVersion = Math.max(deletedVersion, versions[slot]);
+        live[slot] = false;
+        versions[slot] = 0;
+        birthDates[slot] = NO_BIRTH_DATE;
+        firstNames[slot] = StringDictionary.NONE;
+        lastNames[slot] = StringDictionary.NONE;
+        addressCodes[slot] = StringDictionary.NONE;
+        emails[slot] = StringArena.NONE;
+        phoneNumbers[slot] = StringArena.NONE;
+        count--;
+        recordChange(slot);
+        if (strings.wasteful()) {
+            compactStrings();
+        }
+    }
+
+    // Records the deletion of a user this repository never held, as replicated from a leader that did.
+    private void bury(long id) {
+        int slot = Arrays.binarySearch(ids, 0, size, id);
+        if (slot < 0) {
+            slot = -slot - 1;
+            insertSlot(slot);
+            ids[slot] = id;
+            live[slot] = false;
+            versions[slot] = 0;
+            birthDates[slot] = NO_BIRTH_DATE;
+            firstNames[slot] = StringDictionary.NONE;
+            lastNames[slot] = StringDictionary.NONE;
+            addressCodes[slot] = StringDictionary.NONE;
+            emails[slot] = StringArena.NONE;
+            phoneNumbers[slot] = StringArena.NONE;
+        }
+        recordChange(slot);
+    }
+
+    private boolean matches(int slot, String query) {
+        return SearchIndex.matches(strings.get(emails[slot]), names.get(firstNames[slot]), names.get(lastNames[slot]), query);
+    }
+
+    private User read(int slot) {
+        LocalDate birthDate = birthDates[slot] == NO_BIRTH_DATE ? null : LocalDate.ofEpochDay(birthDates[slot]);
+        return new User(ids[slot], strings.get(emails[slot]), names.get(firstNames[slot]), names.get(lastNames[slot]), birthDate,
+                addresses.get(addressCodes[slot]), strings.get(phoneNumbers[slot]), versions[slot]);
+    }
+
+    private void unindex(int slot, String email) {
+        long id = ids[slot];
+        if (birthDates[slot] != NO_BIRTH_DATE) {
+            DayIds dayIds = birthDateIndex.get(birthDates[slot]);
+            if (dayIds.remove(id)) {
+                birthDateIndex.remove(birthDates[slot]);
+            }
+        }
+        if (email != null) {
+            emailIndex.remove(emailHash(email), id);
+        }
+        names.release(firstNames[slot]);
+        names.release(lastNames[slot]);
+        addresses.release(addressCodes[slot]);
+        strings.release(emails[slot]);
+        strings.release(phoneNumbers[slot]);
+    }
+
+    private void recordChange(int slot) {
+        if (changeCount == changeSequences.length) {
+            compactChangeLog();
+        }
+
+        changes[slot] = ++changeSequence;
+        changeSequences[changeCount] = changeSequence;
+        changeIds[changeCount] = ids[slot];
+        changeCount++;
+    }
+
+    // Drops the entries replaced by a later change, and grows the log when most of it is still current.
+    private void compactChangeLog() {
+        int target = 0;
+        for (int entry = 0; entry < changeCount; entry++) {
+            if (latestChange(entry) >= 0) {
+                changeSequences[target] = changeSequences[entry];
+                changeIds[target] = changeIds[entry];
+                target++;
+            }
+        }
+        changeCount = target;
+        if (changeCount * 2 > changeSequences.length) {
+            int capacity = changeSequences.length + changeSequences.length / 2;
+            changeSequences = Arrays.copyOf(changeSequences, capacity);
+            changeIds = Arrays.copyOf(changeIds, capacity);
+        }
+    }
+
+    private void compactStrings() {
+        StringArena compacted = new StringArena(strings.live());
+        for (int slot = 0; slot < size; slot++) {
+            emails[slot] = compacted.copy(strings, emails[slot]);
+            phoneNumbers[slot] = compacted.copy(strings, phoneNumbers[slot]);
+        }
+        strings = compacted;
+    }
+
+    private void insertSlot(int slot) {
+        if (size == ids.length) {
+            resize(ids.length + ids.length / 2);
+        }
+
+        int moved = size - slot;
+        if (moved > 0) {
+            System.arraycopy(ids, slot, ids, slot + 1, moved);
+            System.arraycopy(versions, slot, versions, slot + 1, moved);
+            System.arraycopy(changes, slot, changes, slot + 1, moved);
+            System.arraycopy(live, slot, live, slot + 1, moved);
+            System.arraycopy(birthDates, slot, birthDates, slot + 1, moved);
+            System.arraycopy(firstNames, slot, firstNames, slot + 1, moved);
+            System.arraycopy(lastNames, slot, lastNames, slot + 1, moved);
+            System.arraycopy(addressCodes, slot, addressCodes, slot + 1, moved);
+            System.arraycopy(emails, slot, emails, slot + 1, moved);
+            System.arraycopy(phoneNumbers, slot, phoneNumbers, slot + 1, moved);
+        }
+        size++;
+    }
+
+    private void moveSlot(int from, int to) {
+        ids[to] = ids[from];
+        versions[to] = versions[from];
+        changes[to] = changes[from];
+        live[to] = live[from];
+        birthDates[to] = birthDates[from];
+        firstNames[to] = firstNames[from];
+        lastNames[to] = lastNames[from];
+        addressCodes[to] = addressCodes[from];
+        emails[to] = emails[from];
+        phoneNumbers[to] = phoneNumbers[from];
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        versions = new long[capacity];
+        changes = new long[capacity];
+        live = new boolean[capacity];
+        birthDates = new long[capacity];
+        firstNames = new int[capacity];
+        lastNames = new int[capacity];
+        addressCodes = new int[capacity];
+        emails = new long[capacity];
+        phoneNumbers = new long[capacity];
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        changes = Arrays.copyOf(changes, capacity);
+        live = Arrays.copyOf(live, capacity);
+        birthDates = Arrays.copyOf(birthDates, capacity);
+        firstNames = Arrays.copyOf(firstNames, capacity);
+        lastNames = Arrays.copyOf(lastNames, capacity);
+        addressCodes = Arrays.copyOf(addressCodes, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+    }
+
+    private static long emailHash(String email) {
+        String normalized = email.toLowerCase(Locale.ROOT);
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash = (hash ^ normalized.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // Ids of the users born on one day, sorted.
+    private static final class DayIds {
+        private long[] ids = new long[2];
+        private int size;
+
+        private void add(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        // Whether the day has no ids left.
+        private boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        // The position of the first id after the given one.
+        private int after(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+
+        // The position of the last id before the given one.
+        private int before(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position >= 0 ? position - 1 : -position - 2;
+        }
+    }
+}
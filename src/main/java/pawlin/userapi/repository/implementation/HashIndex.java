@@ -0,0 +1,146 @@
+package pawlin.userapi.repository.implementation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Ids by a 64-bit hash of their key in open-addressed primitive arrays, so an entry costs two longs instead of a map
+// node, a boxed id and a set. The few hashes held by several ids keep them sorted in a separate map, and callers check
+// the keys of the ids they find, since different keys may share a hash.
+final class HashIndex {
+    private static final long EMPTY = 0;
+    private static final long[] NO_IDS = {};
+
+    private long[] hashes = new long[16];
+    private long[] ids = new long[16];
+    // Counted first, then the ids in increasing order.
+    private final Map<Long, long[]> shared = new HashMap<>();
+    private int size;
+
+    void add(long hash, long id) {
+        hash = key(hash);
+        int index = index(hash);
+        if (hashes[index] == EMPTY) {
+            hashes[index] = hash;
+            ids[index] = id;
+            if (++size * 4 > hashes.length * 3) {
+                resize(hashes.length * 2);
+            }
+            return;
+        }
+
+        long[] several = shared.get(hash);
+        if (several == null) {
+            if (ids[index] != id) {
+                shared.put(hash, new long[]{2, Math.min(ids[index], id), Math.max(ids[index], id)});
+            }
+            return;
+        }
+
+        int count = (int) several[0];
+        int position = Arrays.binarySearch(several, 1, count + 1, id);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (count + 1 == several.length) {
+            several = Arrays.copyOf(several, several.length * 2);
+            shared.put(hash, several);
+        }
+        System.arraycopy(several, position, several, position + 1, count + 1 - position);
+        several[position] = id;
+        several[0] = count + 1;
+    }
+
+    void remove(long hash, long id) {
+        hash = key(hash);
+        int index = index(hash);
+        if (hashes[index] == EMPTY) {
+            return;
+        }
+
+        long[] several = shared.get(hash);
+        if (several == null) {
+            if (ids[index] == id) {
+                delete(index);
+            }
+            return;
+        }
+
+        int count = (int) several[0];
+        int position = Arrays.binarySearch(several, 1, count + 1, id);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(several, position + 1, several, position, count - position);
+        if (count == 2) {
+            shared.remove(hash);
+            ids[index] = several[1];
+        } else {
+            several[0] = count - 1;
+        }
+    }
+
+    long[] find(long hash) {
+        hash = key(hash);
+        int index = index(hash);
+        if (hashes[index] == EMPTY) {
+            return NO_IDS;
+        }
+
+        long[] several = shared.isEmpty() ? null : shared.get(hash);
+        return several == null ? new long[]{ids[index]} : Arrays.copyOfRange(several, 1, (int) several[0] + 1);
+    }
+
+    // The slot holding the hash, or the empty slot ending its probe sequence.
+    private int index(long hash) {
+        int mask = hashes.length - 1;
+        int index = home(hash, mask);
+        while (hashes[index] != EMPTY && hashes[index] != hash) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Shifts later entries of the probe sequence back into the hole, so lookups never stop early.
+    private void delete(int index) {
+        int mask = hashes.length - 1;
+        int hole = index;
+        for (int next = (hole + 1) & mask; hashes[next] != EMPTY; next = (next + 1) & mask) {
+            if (((next - home(hashes[next], mask)) & mask) >= ((next - hole) & mask)) {
+                hashes[hole] = hashes[next];
+                ids[hole] = ids[next];
+                hole = next;
+            }
+        }
+        hashes[hole] = EMPTY;
+        ids[hole] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldHashes = hashes;
+        long[] oldIds = ids;
+        hashes = new long[capacity];
+        ids = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != EMPTY) {
+                int index = home(oldHashes[i], mask);
+                while (hashes[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                hashes[index] = oldHashes[i];
+                ids[index] = oldIds[i];
+            }
+        }
+    }
+
+    private static long key(long hash) {
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    private static int home(long hash, int mask) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,85 @@
+package pawlin.userapi.repository.implementation;
+
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserCursor;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class Pages {
+    private Pages() {
+    }
+
+    static List<User> collect(Stream<User> users, UserCursor cursor, int limit) {
+        List<User> page = users.limit(limit).collect(Collectors.toCollection(ArrayList::new));
+        if (cursor != null && cursor.backward()) {
+            Collections.reverse(page);
+        }
+
+        return page;
+    }
+
+    // Merges streams that are each sorted in the given order into one stream in that order, reading each only as far
+    // as the merged stream is read.
+    static Stream<User> merge(List<Stream<User>> sorted, Comparator<User> order) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+
+        Iterator<User> merged = new Iterator<>() {
+            private PriorityQueue<Source> sources;
+
+            @Override
+            public boolean hasNext() {
+                return !sources().isEmpty();
+            }
+
+            @Override
+            public User next() {
+                Source source = sources().poll();
+                if (source == null) {
+                    throw new NoSuchElementException();
+                }
+
+                User user = source.head;
+                if (source.advance()) {
+                    sources.add(source);
+                }
+                return user;
+            }
+
+            private PriorityQueue<Source> sources() {
+                if (sources == null) {
+                    sources = new PriorityQueue<>(sorted.size(), (first, second) -> order.compare(first.head, second.head));
+                    for (Stream<User> users : sorted) {
+                        Source source = new Source(users.iterator());
+                        if (source.advance()) {
+                            sources.add(source);
+                        }
+                    }
+                }
+                return sources;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static final class Source {
+        private final Iterator<User> users;
+        private User head;
+
+        private Source(Iterator<User> users) {
+            this.users = users;
+        }
+
+        private boolean advance() {
+            if (!users.hasNext()) {
+                return false;
+            }
+            head = users.next();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package pawlin.userapi.repository.implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.ReactiveUserRepository;
+import pawlin.userapi.repository.UserRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+@Repository
+@RequiredArgsConstructor
+public class ReactiveUserRepositoryImpl implements ReactiveUserRepository {
+    private final UserRepository userRepository;
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.fromStream(userRepository::streamAll);
+    }
+
+    @Override
+    public Mono<User> findById(Long id) {
+        return Mono.fromSupplier(() -> userRepository.findById(id).orElse(null));
+    }
+
+    @Override
+    public Flux<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        return Flux.fromStream(() -> userRepository.streamByBirthDateBetween(startDate, endDate));
+    }
+
+    @Override
+    public Flux<User> findByBirthDateAfter(LocalDate date) {
+        return findByBirthDateBetween(date, LocalDate.MAX);
+    }
+
+    @Override
+    public Flux<User> findByBirthDateBefore(LocalDate date) {
+        return findByBirthDateBetween(LocalDate.MIN, date);
+    }
+
+    // Writes may wait on the write-ahead log, so they are moved off the event loop.
+    @Override
+    public Mono<Long> create(User user) {
+        return Mono.fromSupplier(() -> userRepository.create(user)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<User> update(User user, LongPredicate version) {
+        return Mono.fromSupplier(() -> userRepository.update(user, version)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<User> compute(Long id, UnaryOperator<User> update) {
+        return Mono.fromSupplier(() -> userRepository.compute(id, update).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<User> delete(Long id) {
+        return Mono.fromSupplier(() -> userRepository.delete(id).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> userRepository.existsById(id));
+    }
+}
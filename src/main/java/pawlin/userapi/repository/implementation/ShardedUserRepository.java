@@ -0,0 +1,253 @@
+package pawlin.userapi.repository.implementation;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import pawlin.userapi.configuration.ShardingProperties;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRecovery;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.UserWriteListener;
+import pawlin.userapi.repository.index.ChangeIndex;
+import pawlin.userapi.repository.index.ChangeSequence;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Splits the users by id hash into partitions, each a map repository with its own map, indexes and locks, so writers
+// to different partitions never meet and each index is a fraction of the size. Ids are still issued in one sequence,
+// and each partition indexes its own changes, numbered by one lock-free change sequence and merged by it when read.
+// Queries for all users or a whole range run on every partition in parallel on the common fork-join pool, and their
+// sorted results are merged, as are the partitions read for a page, so everything comes out in the order of a single
+// repository. Batches are split by partition, so each partition writes and syncs its share of a batch once.
+@Repository
+@Timed("user.repository")
+@ConditionalOnProperty(prefix = "user.repository", name = "storage", havingValue = "sharded")
+public class ShardedUserRepository implements UserRepository {
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+    private static final Comparator<User> BY_BIRTH_DATE = Comparator.comparing(User::getBirthDate).thenComparing(User::getId);
+    private static final LongPredicate ANY_VERSION = version -> true;
+
+    private final UserRepositoryImpl[] partitions;
+    private final List<ChangeIndex> changeIndexes;
+    private final AtomicLong sequence;
+
+    public ShardedUserRepository(Map<Long, User> users, int partitions) {
+        this(users, UserJournal.NONE, new ShardingProperties(partitions));
+    }
+
+    public ShardedUserRepository(Map<Long, User> users, UserJournal journal, ShardingProperties properties) {
+        if (properties.partitions() < 1) {
+            throw new IllegalArgumentException("Partitions must be positive");
+        }
+
+        List<Map<Long, User>> split = IntStream.range(0, properties.partitions()).<Map<Long, User>>mapToObj(partition -> new HashMap<>()).toList();
+        users.forEach((id, user) -> split.get(partition(id, split.size())).put(id, user));
+        ChangeSequence changeSequence = new ChangeSequence();
+        this.changeIndexes = split.stream().map(part -> new ChangeIndex(changeSequence)).toList();
+        this.partitions = IntStream.range(0, split.size()).parallel()
+                .mapToObj(partition -> new UserRepositoryImpl(split.get(partition), journal, changeIndexes.get(partition)))
+                .toArray(UserRepositoryImpl[]::new);
+        this.sequence = new AtomicLong(users.keySet().stream().max(Long::compareTo).orElse(0L));
+    }
+
+    @Autowired
+    public ShardedUserRepository(UserRecovery recovery, UserJournal journal, ShardingProperties properties) {
+        this(recovery.recover(), journal, properties);
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<Stream<User>> sorted = fanOut(partition -> partition.streamAll(null).toList().stream());
+        return Pages.merge(sorted, BY_ID).toList();
+    }
+
+    @Override
+    public List<User> findAll(UserCursor cursor, int limit) {
+        return page(partition -> partition.streamAll(cursor), BY_ID, cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return Arrays.stream(partitions).flatMap(UserRepositoryImpl::streamAll);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return partition(id).findById(id);
+    }
+
+    @Override
+    public List<User> findByEmail(String email) {
+        return Arrays.stream(partitions).flatMap(partition -> partition.findByEmail(email).stream()).sorted(BY_ID).toList();
+    }
+
+    // Each partition returns its first matches by id, so the first of all of them are among those.
+    @Override
+    public List<User> search(String query, int limit) {
+        return Arrays.stream(partitions).flatMap(partition -> partition.search(query, limit).stream()).sorted(BY_ID).limit(limit).toList();
+    }
+
+    @Override
+    public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        List<Stream<User>> sorted = fanOut(partition -> partition.findByBirthDateBetween(startDate, endDate).stream());
+        return Pages.merge(sorted, BY_BIRTH_DATE).toList();
+    }
+
+    @Override
+    public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor, int limit) {
+        return page(partition -> partition.streamByBirthDateBetween(startDate, endDate, cursor), BY_BIRTH_DATE, cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        return Pages.merge(Arrays.stream(partitions).map(partition -> partition.streamByBirthDateBetween(startDate, endDate)).toList(), BY_BIRTH_DATE);
+    }
+
+    @Override
+    public UserChanges findChangedSince(long sequence, int limit) {
+        return ChangeIndex.findAfter(changeIndexes, sequence, limit, id -> partition(id).findById(id).orElse(null));
+    }
+
+    @Override
+    public void compactChanges(long sequence) {
+        Arrays.stream(partitions).forEach(partition -> partition.compactChanges(sequence));
+    }
+
+    @Override
+    public List<User> findByBirthDateAfter(LocalDate date) {
+        return findByBirthDateBetween(date, LocalDate.MAX);
+    }
+
+    @Override
+    public List<User> findByBirthDateBefore(LocalDate date) {
+        return findByBirthDateBetween(LocalDate.MIN, date);
+    }
+
+    @Override
+    public Long create(User user) {
+        Long id = sequence.incrementAndGet();
+        partition(id).update(user.withId(id));
+        return id;
+    }
+
+    @Override
+    public List<Long> createAll(List<User> users) {
+        long first = sequence.getAndAdd(users.size()) + 1;
+        List<User> identified = new ArrayList<>(users.size());
+        for (User user : users) {
+            identified.add(user.withId(first + identified.size()));
+        }
+        writeAll(identified);
+
+        return identified.stream().map(User::getId).toList();
+    }
+
+    @Override
+    public User update(User user) {
+        return update(user, ANY_VERSION);
+    }
+
+    @Override
+    public User update(User user, LongPredicate version) {
+        User updated = partition(user.getId()).update(user, version);
+        sequence.accumulateAndGet(user.getId(), Math::max);
+        return updated;
+    }
+
+    @Override
+    public Optional<User> compute(Long id, UnaryOperator<User> update) {
+        return partition(id).compute(id, update);
+    }
+
+    @Override
+    public List<User> updateAll(List<User> users) {
+        List<User> updated = writeAll(users);
+        users.stream().mapToLong(User::getId).max().ifPresent(maxId -> sequence.accumulateAndGet(maxId, Math::max));
+
+        return updated;
+    }
+
+    @Override
+    public Optional<User> delete(Long id) {
+        return partition(id).delete(id);
+    }
+
+    @Override
+    public void apply(Long id, User user) {
+        partition(id).apply(id, user);
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public void addListener(UserWriteListener listener) {
+        Arrays.stream(partitions).forEach(partition -> partition.addListener(listener));
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return partition(id).existsById(id);
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (UserRepositoryImpl partition : partitions) {
+            count += partition.count();
+        }
+        return count;
+    }
+
+    private UserRepositoryImpl partition(Long id) {
+        return partitions[partition(id, partitions.length)];
+    }
+
+    // Picked by the high bits of a Fibonacci hash of the id, as the maps of a partition find their bins by its low bits,
+    // which a plain modulo would leave the same for every id in the partition.
+    private static int partition(Long id, int partitions) {
+        return (int) ((((id * 0x9E3779B97F4A7C15L) >>> 32) * partitions) >>> 32);
+    }
+
+    // Writes the users of each partition as one batch and returns the written users in the order given.
+    private List<User> writeAll(List<User> users) {
+        List<List<User>> batches = Arrays.stream(partitions).<List<User>>map(partition -> new ArrayList<>()).toList();
+        int[] partitionOf = new int[users.size()];
+        for (int i = 0; i < users.size(); i++) {
+            partitionOf[i] = partition(users.get(i).getId(), partitions.length);
+            batches.get(partitionOf[i]).add(users.get(i));
+        }
+
+        List<List<User>> written = new ArrayList<>(partitions.length);
+        for (int partition = 0; partition < partitions.length; partition++) {
+            written.add(batches.get(partition).isEmpty() ? List.of() : partitions[partition].updateAll(batches.get(partition)));
+        }
+        int[] next = new int[partitions.length];
+        List<User> ordered = new ArrayList<>(users.size());
+        for (int partition : partitionOf) {
+            ordered.add(written.get(partition).get(next[partition]++));
+        }
+        return ordered;
+    }
+
+    private <T> List<T> fanOut(Function<UserRepositoryImpl, T> query) {
+        return Arrays.stream(partitions).parallel().map(query).toList();
+    }
+
+    // A page is read by walking every partition from the cursor at once, backwards for a page before it, so only the
+    // users on the page and one more per partition are read, rather than a whole page from each.
+    private List<User> page(Function<UserRepositoryImpl, Stream<User>> query, Comparator<User> order, UserCursor cursor, int limit) {
+        boolean backward = cursor != null && cursor.backward();
+        List<Stream<User>> walks = Arrays.stream(partitions).map(query).toList();
+        return Pages.collect(Pages.merge(walks, backward ? order.reversed() : order), cursor, limit);
+    }
+}
@@ -0,0 +1,79 @@
+package pawlin.userapi.repository.implementation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Strings stored back to back as UTF-8 in one array and referred to by offset and length, so a value costs its bytes and
+// a long instead of a String with its own array. Released values stay behind as garbage until the owner copies the
+// live ones into a new arena.
+final class StringArena {
+    static final long NONE = -1;
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] bytes;
+    private int used;
+    private int garbage;
+
+    StringArena() {
+        this(MIN_CAPACITY);
+    }
+
+    StringArena(int capacity) {
+        bytes = new byte[Math.max(MIN_CAPACITY, capacity)];
+    }
+
+    long add(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        return add(encoded, 0, encoded.length);
+    }
+
+    String get(long reference) {
+        return reference == NONE ? null : new String(bytes, offset(reference), length(reference), StandardCharsets.UTF_8);
+    }
+
+    void release(long reference) {
+        if (reference != NONE) {
+            garbage += length(reference);
+        }
+    }
+
+    long copy(StringArena source, long reference) {
+        return reference == NONE ? NONE : add(source.bytes, offset(reference), length(reference));
+    }
+
+    boolean wasteful() {
+        return garbage > MIN_CAPACITY && garbage > used / 2;
+    }
+
+    int live() {
+        return used - garbage;
+    }
+
+    private long add(byte[] value, int offset, int length) {
+        if (length > MAX_CAPACITY - used) {
+            throw new IllegalStateException("String arena is full");
+        }
+        if (used + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_CAPACITY, Math.max(used + length, bytes.length * 3L / 2)));
+        }
+
+        System.arraycopy(value, offset, bytes, used, length);
+        long reference = (long) used << 32 | length;
+        used += length;
+        return reference;
+    }
+
+    private static int offset(long reference) {
+        return (int) (reference >>> 32);
+    }
+
+    private static int length(long reference) {
+        return (int) reference;
+    }
+}
@@ -0,0 +1,57 @@
+package pawlin.userapi.repository.implementation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class StringDictionary {
+    static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[64];
+    private int[] references = new int[64];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int size;
+
+    int acquire(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = freeCount > 0 ? free[--freeCount] : size++;
+            if (code == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+                references = Arrays.copyOf(references, references.length * 2);
+            }
+            values[code] = value;
+            codes.put(value, code);
+        }
+        references[code]++;
+
+        return code;
+    }
+
+    void release(int code) {
+        if (code == NONE || --references[code] > 0) {
+            return;
+        }
+
+        codes.remove(values[code]);
+        values[code] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, free.length * 2);
+        }
+        free[freeCount++] = code;
+    }
+
+    String get(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
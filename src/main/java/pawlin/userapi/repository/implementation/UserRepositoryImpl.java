@@ -1,21 +1,74 @@
 package pawlin.userapi.repository.implementation;
 
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
+import pawlin.userapi.exception.PreconditionFailedException;
 import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRecovery;
 import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.UserWriteListener;
+import pawlin.userapi.repository.index.BirthDateIndex;
+import pawlin.userapi.repository.index.ChangeIndex;
+import pawlin.userapi.repository.index.EmailIndex;
+import pawlin.userapi.repository.index.SearchIndex;
 
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Repository
+@Timed("user.repository")
+@ConditionalOnProperty(prefix = "user.repository", name = "storage", havingValue = "map", matchIfMissing = true)
 public class UserRepositoryImpl implements UserRepository {
-    private final Map<Long, User> users;
+    private static final LongPredicate ANY_VERSION = version -> true;
+
+    private final ConcurrentMap<Long, User> users = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+    private final EmailIndex emailIndex = new EmailIndex();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final ChangeIndex changeIndex;
+    private final List<UserWriteListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence;
+    // New users start after the highest version deleted so far, so a user created again under a deleted id never
+    // repeats a version of the one before it. It starts from the highest recovered version, as deleted versions are
+    // not persisted.
+    private final AtomicLong deletedVersion;
+    private final UserJournal journal;
 
     public UserRepositoryImpl(Map<Long, User> users) {
-        this.users = new HashMap<>(users);
+        this(users, UserJournal.NONE);
+    }
+
+    public UserRepositoryImpl(Map<Long, User> users, UserJournal journal) {
+        this(users, journal, new ChangeIndex());
+    }
+
+    @Autowired
+    public UserRepositoryImpl(UserRecovery recovery, UserJournal journal) {
+        this(recovery.recover(), journal);
+    }
+
+    // Partitions of a sharded repository number their changes in one change sequence, so they are read in a single order.
+    UserRepositoryImpl(Map<Long, User> users, UserJournal journal, ChangeIndex changeIndex) {
+        this.changeIndex = changeIndex;
+        users.entrySet().parallelStream().forEach(entry -> index(entry.getKey(), this.users.put(entry.getKey(), entry.getValue()), entry.getValue()));
+        this.users.keySet().forEach(changeIndex::add);
+        this.journal = journal;
+        this.sequence = new AtomicLong(this.users.keySet().stream().max(Long::compareTo).orElse(0L));
+        this.deletedVersion = new AtomicLong(this.users.values().stream().mapToLong(User::getVersion).max().orElse(0));
     }
 
     @Override
@@ -23,47 +76,246 @@ public class UserRepositoryImpl implements UserRepository {
         return users.values().stream().toList();
     }
 
+    @Override
+    public List<User> findAll(UserCursor cursor, int limit) {
+        return Pages.collect(streamAll(cursor), cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return users.values().stream();
+    }
+
     @Override
     public Optional<User> findById(Long id) {
         return Optional.ofNullable(users.get(id));
     }
 
+    @Override
+    public List<User> findByEmail(String email) {
+        return emailIndex.find(email)
+                .map(users::get)
+                .filter(user -> user != null && EmailIndex.matches(user.getEmail(), email))
+                .toList();
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        Stream<Long> candidates = searchIndex.covers(query) ? searchIndex.find(query) : ids.stream();
+        return candidates
+                .map(users::get)
+                .filter(user -> user != null && SearchIndex.matches(user.getEmail(), user.getFirstName(), user.getLastName(), query))
+                .limit(limit)
+                .toList();
+    }
+
     @Override
     public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
-        return users.values().stream().filter(user -> !user.getBirthDate().isBefore(startDate) && !user.getBirthDate().isAfter(endDate)).toList();
+        return findByBirthDateBetween(startDate, endDate, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<User> findByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor, int limit) {
+        return Pages.collect(streamByBirthDateBetween(startDate, endDate, cursor), cursor, limit);
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate) {
+        return streamByBirthDateBetween(startDate, endDate, null);
+    }
+
+    @Override
+    public UserChanges findChangedSince(long sequence, int limit) {
+        return changeIndex.findAfter(sequence, limit, users::get);
+    }
+
+    @Override
+    public void compactChanges(long sequence) {
+        changeIndex.compact(sequence, users::containsKey);
     }
 
     @Override
     public List<User> findByBirthDateAfter(LocalDate date) {
-        return users.values().stream().filter(user -> !user.getBirthDate().isBefore(date)).toList();
+        return findByBirthDateBetween(date, LocalDate.MAX);
     }
 
     @Override
     public List<User> findByBirthDateBefore(LocalDate date) {
-        return users.values().stream().filter(user -> !user.getBirthDate().isAfter(date)).toList();
+        return findByBirthDateBetween(LocalDate.MIN, date);
     }
 
     @Override
     public Long create(User user) {
-        Long id = users.keySet().stream().max(Long::compareTo).orElse(0L) + 1;
-        users.put(id, user.withId(id));
+        Long id = sequence.incrementAndGet();
+        long[] position = new long[1];
+        write(id, user.withId(id), ANY_VERSION, position);
+        journal.sync(position[0]);
 
         return id;
     }
 
+    @Override
+    public List<Long> createAll(List<User> users) {
+        long first = sequence.getAndAdd(users.size()) + 1;
+        List<Long> created = new ArrayList<>(users.size());
+        long[] position = new long[1];
+        for (User user : users) {
+            Long id = first + created.size();
+            write(id, user.withId(id), ANY_VERSION, position);
+            created.add(id);
+        }
+        journal.sync(position[0]);
+
+        return created;
+    }
+
     @Override
     public User update(User user) {
-        users.put(user.getId(), user);
-        return users.get(user.getId());
+        return update(user, ANY_VERSION);
+    }
+
+    @Override
+    public User update(User user, LongPredicate version) {
+        long[] position = new long[1];
+        User updated = write(user.getId(), user, version, position);
+        sequence.accumulateAndGet(user.getId(), Math::max);
+        journal.sync(position[0]);
+        return updated;
     }
 
     @Override
-    public void delete(Long id) {
-        users.remove(id);
+    public Optional<User> compute(Long id, UnaryOperator<User> update) {
+        long[] position = new long[1];
+        Optional<User> updated = Optional.ofNullable(users.computeIfPresent(id, (key, existing) -> {
+            User stored = update.apply(existing).withId(key).withVersion(existing.getVersion() + 1);
+            position[0] = journal.append(key, stored);
+            index(key, existing, stored);
+            written(key, existing, stored);
+            return stored;
+        }));
+        updated.ifPresent(user -> changeIndex.add(id));
+        journal.sync(position[0]);
+        return updated;
+    }
+
+    @Override
+    public List<User> updateAll(List<User> users) {
+        List<User> updated = new ArrayList<>(users.size());
+        long[] position = new long[1];
+        long maxId = 0;
+        for (User user : users) {
+            updated.add(write(user.getId(), user, ANY_VERSION, position));
+            maxId = Math.max(maxId, user.getId());
+        }
+        sequence.accumulateAndGet(maxId, Math::max);
+        journal.sync(position[0]);
+
+        return updated;
+    }
+
+    @Override
+    public Optional<User> delete(Long id) {
+        User[] deleted = new User[1];
+        long[] position = new long[1];
+        users.computeIfPresent(id, (key, existing) -> {
+            deleted[0] = existing;
+            deletedVersion.accumulateAndGet(existing.getVersion(), Math::max);
+            position[0] = journal.append(key, null);
+            index(key, existing, null);
+            written(key, existing, null);
+            return null;
+        });
+        if (deleted[0] != null) {
+            changeIndex.add(id);
+        }
+        journal.sync(position[0]);
+        return Optional.ofNullable(deleted[0]);
+    }
+
+    @Override
+    public void apply(Long id, User user) {
+        users.compute(id, (key, existing) -> {
+            if (existing != null && user == null) {
+                deletedVersion.accumulateAndGet(existing.getVersion(), Math::max);
+            }
+            index(key, existing, user);
+            return user;
+        });
+        changeIndex.add(id);
+        sequence.accumulateAndGet(id, Math::max);
+    }
+
+    @Override
+    public void addListener(UserWriteListener listener) {
+        listeners.add(listener);
     }
 
     @Override
     public boolean existsById(Long id) {
         return users.containsKey(id);
     }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    // Changes are indexed once stored, so a reader that finds one also finds the stored user. The write is journaled
+    // under the lock of its map bin and its position left for the caller to sync once the lock is released.
+    private User write(Long id, User user, LongPredicate version, long[] position) {
+        User written = users.compute(id, (key, existing) -> {
+            long current = existing == null ? 0 : existing.getVersion();
+            if (!version.test(current)) {
+                throw new PreconditionFailedException(key);
+            }
+
+            User stored = user.withVersion((existing == null ? deletedVersion.get() : current) + 1);
+            position[0] = journal.append(key, stored);
+            index(key, existing, stored);
+            written(key, existing, stored);
+            return stored;
+        });
+        changeIndex.add(id);
+        return written;
+    }
+
+    private void written(Long id, User existing, User user) {
+        listeners.forEach(listener -> listener.written(id, existing, user));
+    }
+
+    private void index(Long id, User existing, User user) {
+        if (existing != null && user != null) {
+            searchIndex.update(id, existing.getEmail(), existing.getFirstName(), existing.getLastName(), user.getEmail(), user.getFirstName(), user.getLastName());
+        } else if (existing != null) {
+            searchIndex.remove(id, existing.getEmail(), existing.getFirstName(), existing.getLastName());
+        } else if (user != null) {
+            searchIndex.add(id, user.getEmail(), user.getFirstName(), user.getLastName());
+        }
+        if (existing != null) {
+            birthDateIndex.remove(id, existing.getBirthDate());
+            emailIndex.remove(id, existing.getEmail());
+        }
+        if (user != null) {
+            ids.add(id);
+            birthDateIndex.add(id, user.getBirthDate());
+            emailIndex.add(id, user.getEmail());
+        } else {
+            ids.remove(id);
+        }
+    }
+
+    Stream<User> streamAll(UserCursor cursor) {
+        NavigableSet<Long> page = ids;
+        if (cursor != null) {
+            page = cursor.backward() ? ids.headSet(cursor.id(), false).descendingSet() : ids.tailSet(cursor.id(), false);
+        }
+
+        return page.stream().map(users::get).filter(Objects::nonNull);
+    }
+
+    Stream<User> streamByBirthDateBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor) {
+        return birthDateIndex.findBetween(startDate, endDate, cursor)
+                .map(users::get)
+                .filter(user -> user != null && BirthDateIndex.matches(user.getBirthDate(), startDate, endDate));
+    }
 }
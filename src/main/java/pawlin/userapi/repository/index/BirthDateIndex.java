@@ -0,0 +1,72 @@
+package pawlin.userapi.repository.index;
+
+import pawlin.userapi.repository.UserCursor;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+public class BirthDateIndex {
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+
+    public void add(Long id, LocalDate birthDate) {
+        if (birthDate != null) {
+            entries.add(new Entry(birthDate.toEpochDay(), id));
+        }
+    }
+
+    public void remove(Long id, LocalDate birthDate) {
+        if (birthDate != null) {
+            entries.remove(new Entry(birthDate.toEpochDay(), id));
+        }
+    }
+
+    public Stream<Long> findBetween(LocalDate startDate, LocalDate endDate) {
+        return findBetween(startDate, endDate, null);
+    }
+
+    public Stream<Long> findBetween(LocalDate startDate, LocalDate endDate, UserCursor cursor) {
+        Entry from = new Entry(startDate.toEpochDay(), Long.MIN_VALUE);
+        Entry to = new Entry(endDate.toEpochDay(), Long.MAX_VALUE);
+        if (cursor == null) {
+            return entries.subSet(from, true, to, true).stream().map(Entry::id);
+        }
+
+        Entry position = new Entry(cursor.birthDate().toEpochDay(), cursor.id());
+        NavigableSet<Entry> page;
+        if (cursor.backward()) {
+            page = position.compareTo(from) <= 0 ? Collections.emptyNavigableSet()
+                    : entries.subSet(from, true, min(position, to), position.compareTo(to) > 0).descendingSet();
+        } else {
+            page = position.compareTo(to) >= 0 ? Collections.emptyNavigableSet()
+                    : entries.subSet(max(position, from), position.compareTo(from) < 0, to, true);
+        }
+        return page.stream().map(Entry::id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static boolean matches(LocalDate date, LocalDate startDate, LocalDate endDate) {
+        return date != null && !date.isBefore(startDate) && !date.isAfter(endDate);
+    }
+
+    private static Entry min(Entry first, Entry second) {
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    private static Entry max(Entry first, Entry second) {
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
+    private record Entry(long epochDay, long id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int result = Long.compare(epochDay, other.epochDay);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+}
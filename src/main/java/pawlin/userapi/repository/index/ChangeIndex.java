@@ -0,0 +1,162 @@
+package pawlin.userapi.repository.index;
+
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Keeps the ids of changed users, deleted ones included, ordered by the sequence of their latest change, so the changes
+// since a sequence are a tail of the index. Changes are added after they are stored, and without a lock, numbered by a
+// change sequence that partitions of a sharded repository share, so each keeps its own index and readers merge them.
+public class ChangeIndex {
+    private final NavigableMap<Long, Long> ids = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Long> sequences = new ConcurrentHashMap<>();
+    private final ChangeSequence changeSequence;
+    private long compacted;
+
+    public ChangeIndex() {
+        this(new ChangeSequence());
+    }
+
+    public ChangeIndex(ChangeSequence changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    public void add(Long id) {
+        long sequence = changeSequence.claim();
+        ids.put(sequence, id);
+        // Changes of one user can claim their sequences out of order, so the latest of them is kept whatever the order.
+        sequences.compute(id, (key, previous) -> {
+            if (previous != null && previous > sequence) {
+                ids.remove(sequence);
+                return previous;
+            }
+            if (previous != null) {
+                ids.remove(previous);
+            }
+            return sequence;
+        });
+        changeSequence.publish(sequence);
+    }
+
+    public long lastSequence() {
+        return changeSequence.last();
+    }
+
+    // Drops the deleted users whose latest change is at or before the sequence. The compacted sequence is raised first,
+    // so a reader from before it that may miss a dropped deletion starts over instead. Entries up to the previous
+    // compaction are all live users by then, so only those after it are looked at.
+    public synchronized void compact(long sequence, Predicate<Long> exists) {
+        if (sequence <= compacted) {
+            return;
+        }
+
+        changeSequence.compact(sequence);
+        for (Map.Entry<Long, Long> entry : ids.subMap(compacted, false, sequence, true).entrySet()) {
+            Long id = entry.getValue();
+            if (!exists.test(id) && sequences.remove(id, entry.getKey())) {
+                ids.remove(entry.getKey(), id);
+            }
+        }
+        compacted = sequence;
+    }
+
+    public UserChanges findAfter(long sequence, int limit, Function<Long, User> users) {
+        return findAfter(List.of(this), sequence, limit, users);
+    }
+
+    // Reads indexes sharing one change sequence as one, through a heap of the indexes ordered by the sequence of their
+    // next change. The users are looked up when read, so a change made meanwhile is returned now and again with its own
+    // sequence.
+    public static UserChanges findAfter(List<ChangeIndex> indexes, long sequence, int limit, Function<Long, User> users) {
+        ChangeSequence changeSequence = indexes.get(0).changeSequence;
+        boolean reset = sequence > 0 && sequence < changeSequence.compacted();
+        UserChanges changes = read(indexes, reset ? 0 : sequence, limit, users, reset);
+        // A compaction that started meanwhile may have dropped a deletion this read needed.
+        return !reset && sequence > 0 && sequence < changeSequence.compacted() ? findAfter(indexes, sequence, limit, users) : changes;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private static UserChanges read(List<ChangeIndex> indexes, long sequence, int limit, Function<Long, User> users, boolean reset) {
+        long last = indexes.get(0).lastSequence();
+        if (sequence >= last) {
+            return new UserChanges(List.of(), List.of(), last, false, reset);
+        }
+
+        List<Iterator<Map.Entry<Long, Long>>> iterators = new ArrayList<>(indexes.size());
+        long[] headSequences = new long[indexes.size()];
+        Long[] headIds = new Long[indexes.size()];
+        int[] heap = new int[indexes.size()];
+        int heapSize = 0;
+        for (int i = 0; i < indexes.size(); i++) {
+            iterators.add(indexes.get(i).ids.subMap(sequence, false, last, true).entrySet().iterator());
+            if (advance(iterators.get(i), headSequences, headIds, i)) {
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, headSequences);
+        }
+
+        List<User> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long position = sequence;
+        while (heapSize > 0 && changed.size() + deleted.size() < limit) {
+            int next = heap[0];
+            Long id = headIds[next];
+            User user = users.apply(id);
+            if (user != null) {
+                changed.add(user);
+            } else {
+                deleted.add(id);
+            }
+            position = headSequences[next];
+            if (!advance(iterators.get(next), headSequences, headIds, next)) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, headSequences);
+        }
+
+        boolean more = heapSize > 0;
+        return new UserChanges(changed, deleted, more ? position : last, more, reset);
+    }
+
+    private static boolean advance(Iterator<Map.Entry<Long, Long>> iterator, long[] headSequences, Long[] headIds, int index) {
+        if (!iterator.hasNext()) {
+            return false;
+        }
+
+        Map.Entry<Long, Long> entry = iterator.next();
+        headSequences[index] = entry.getKey();
+        headIds[index] = entry.getValue();
+        return true;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int position, long[] headSequences) {
+        int index = heap[position];
+        int child;
+        while ((child = 2 * position + 1) < heapSize) {
+            if (child + 1 < heapSize && headSequences[heap[child + 1]] < headSequences[heap[child]]) {
+                child++;
+            }
+            if (headSequences[heap[child]] >= headSequences[index]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+}
@@ -0,0 +1,63 @@
+package pawlin.userapi.repository.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.configuration.ChangeProperties;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.replication.ReplicationLeader;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+// Samples the latest change sequence on every run and compacts the changes up to the latest sample older than the
+// retention, or up to the position of the furthest behind follower if that is lower.
+@Slf4j
+@Component
+public class ChangeRetentionScheduler implements SchedulingConfigurer {
+    private final UserRepository userRepository;
+    private final ChangeProperties changeProperties;
+    private final ObjectProvider<ReplicationLeader> replicationLeader;
+    private final Clock clock;
+    private final Deque<long[]> samples = new ArrayDeque<>();
+    private long retained;
+
+    @Autowired
+    public ChangeRetentionScheduler(UserRepository userRepository, ChangeProperties changeProperties, ObjectProvider<ReplicationLeader> replicationLeader) {
+        this(userRepository, changeProperties, replicationLeader, Clock.systemUTC());
+    }
+
+    ChangeRetentionScheduler(UserRepository userRepository, ChangeProperties changeProperties, ObjectProvider<ReplicationLeader> replicationLeader, Clock clock) {
+        this.userRepository = userRepository;
+        this.changeProperties = changeProperties;
+        this.replicationLeader = replicationLeader;
+        this.clock = clock;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::compact, changeProperties.compactionInterval(), changeProperties.compactionInterval()));
+    }
+
+    public synchronized void compact() {
+        long now = clock.millis();
+        // Reading past the end returns the latest sequence.
+        samples.addLast(new long[]{now, userRepository.findChangedSince(Long.MAX_VALUE, 1).sequence()});
+        long expired = now - changeProperties.retention().toMillis();
+        while (!samples.isEmpty() && samples.peekFirst()[0] <= expired) {
+            retained = samples.removeFirst()[1];
+        }
+
+        ReplicationLeader leader = replicationLeader.getIfAvailable();
+        long sequence = leader == null ? retained : Math.min(retained, leader.oldestPosition());
+        if (sequence > 0) {
+            userRepository.compactChanges(sequence);
+            log.debug("Compacted changes up to sequence {}", sequence);
+        }
+    }
+}
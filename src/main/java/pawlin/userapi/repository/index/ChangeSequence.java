@@ -0,0 +1,42 @@
+package pawlin.userapi.repository.index;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Numbers the changes of one or more change indexes without a lock. Each change claims the next number, and the last
+// number is published only once every change up to it is indexed, so a reader that stops there reads every change up
+// to it.
+public class ChangeSequence {
+    private final AtomicLong claimed = new AtomicLong();
+    private final Set<Long> indexed = ConcurrentHashMap.newKeySet();
+    private volatile long last;
+    private volatile long compacted;
+
+    long claim() {
+        return claimed.incrementAndGet();
+    }
+
+    // Whoever publishes the number after the last one moves the last number on, for as long as the numbers after it are
+    // published too. A change published meanwhile is either seen here or sees the last number reach its own.
+    void publish(long sequence) {
+        indexed.add(sequence);
+        long published;
+        while (indexed.remove((published = last) + 1)) {
+            last = published + 1;
+        }
+    }
+
+    public long last() {
+        return last;
+    }
+
+    // Deletions at or before this sequence may have been dropped.
+    long compacted() {
+        return compacted;
+    }
+
+    void compact(long sequence) {
+        compacted = Math.max(compacted, sequence);
+    }
+}
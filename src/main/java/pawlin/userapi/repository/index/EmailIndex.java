@@ -0,0 +1,47 @@
+package pawlin.userapi.repository.index;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+public class EmailIndex {
+    private final ConcurrentMap<String, Set<Long>> entries = new ConcurrentHashMap<>();
+
+    public void add(Long id, String email) {
+        if (email != null) {
+            entries.compute(normalize(email), (key, ids) -> {
+                Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    public void remove(Long id, String email) {
+        if (email != null) {
+            entries.computeIfPresent(normalize(email), (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public Stream<Long> find(String email) {
+        Set<Long> ids = entries.get(normalize(email));
+        return ids == null ? Stream.empty() : ids.stream().sorted();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static boolean matches(String email, String other) {
+        return email != null && email.equalsIgnoreCase(other);
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
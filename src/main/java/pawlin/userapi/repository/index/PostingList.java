@@ -0,0 +1,336 @@
+package pawlin.userapi.repository.index;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Sorted ids kept in blocks of up to BLOCK_SIZE, each stored as its first id followed by the gaps to the next ones as
+// variable-length bytes, so a posting usually costs one or two bytes. Ids mostly arrive in increasing order and are
+// appended to the last block; any other change rewrites the one or two gaps around the id in place.
+final class PostingList {
+    private static final int BLOCK_SIZE = 64;
+    static final int READ_BATCH_SIZE = 256;
+
+    private long[] firsts = new long[1];
+    private byte[][] blocks = new byte[1][];
+    private int[] lengths = new int[1];
+    private int[] counts = new int[1];
+    private int blockCount;
+    private int size;
+    private long last;
+
+    synchronized void add(long id) {
+        if (blockCount == 0 || id > last) {
+            append(id);
+            return;
+        }
+
+        int block = block(id);
+        long previous = firsts[block];
+        if (id == previous) {
+            return;
+        }
+        if (id < previous) {
+            firsts[block] = id;
+            replace(block, 0, 0, previous - id, -1);
+        } else {
+            byte[] bytes = blocks[block];
+            int offset = 0;
+            for (int i = 1; i < counts[block]; i++) {
+                long next = previous + readGap(bytes, offset);
+                int end = skipGap(bytes, offset);
+                if (next == id) {
+                    return;
+                }
+                if (next > id) {
+                    replace(block, offset, end, id - previous, next - id);
+                    break;
+                }
+                previous = next;
+                offset = end;
+            }
+            if (offset == lengths[block]) {
+                replace(block, offset, offset, id - previous, -1);
+            }
+        }
+        counts[block]++;
+        size++;
+        if (counts[block] > BLOCK_SIZE) {
+            split(block);
+        }
+    }
+
+    synchronized boolean remove(long id) {
+        if (blockCount == 0 || id > last) {
+            return false;
+        }
+
+        int block = block(id);
+        long previous = firsts[block];
+        if (id < previous) {
+            return false;
+        }
+        if (id == previous) {
+            if (counts[block] == 1) {
+                removeBlock(block);
+            } else {
+                firsts[block] = previous + readGap(blocks[block], 0);
+                replace(block, 0, skipGap(blocks[block], 0), -1, -1);
+                counts[block]--;
+            }
+        } else {
+            byte[] bytes = blocks[block];
+            int offset = 0;
+            int i = 1;
+            for (; i < counts[block]; i++) {
+                long gap = readGap(bytes, offset);
+                int end = skipGap(bytes, offset);
+                if (previous + gap == id) {
+                    if (end == lengths[block]) {
+                        replace(block, offset, end, -1, -1);
+                    } else {
+                        replace(block, offset, skipGap(bytes, end), gap + readGap(bytes, end), -1);
+                    }
+                    break;
+                }
+                if (previous + gap > id) {
+                    return false;
+                }
+                previous += gap;
+                offset = end;
+            }
+            if (i == counts[block]) {
+                return false;
+            }
+            counts[block]--;
+        }
+        if (id == last) {
+            last = blockCount == 0 ? 0 : lastOf(blockCount - 1);
+        }
+        size--;
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Reads the ids after the given one in batches, so writers wait for one batch at most and see their changes picked
+    // up by the batches that follow.
+    Stream<Long> stream() {
+        Iterator<Long> iterator = new Iterator<>() {
+            private final long[] batch = new long[READ_BATCH_SIZE];
+            private int position;
+            private int limit;
+            private long after = Long.MIN_VALUE;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (position == limit && !exhausted) {
+                    limit = read(after, batch);
+                    position = 0;
+                    exhausted = limit < batch.length;
+                    if (limit > 0) {
+                        after = batch[limit - 1];
+                    }
+                }
+                return position < limit;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch[position++];
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private synchronized int read(long after, long[] into) {
+        int found = 0;
+        for (int block = blockCount == 0 ? 0 : block(after); block < blockCount && found < into.length; block++) {
+            byte[] bytes = blocks[block];
+            long id = firsts[block];
+            int offset = 0;
+            for (int i = 0; i < counts[block] && found < into.length; i++) {
+                if (i > 0) {
+                    long gap = 0;
+                    int shift = 0;
+                    byte next;
+                    do {
+                        next = bytes[offset++];
+                        gap |= (long) (next & 0x7F) << shift;
+                        shift += 7;
+                    } while (next < 0);
+                    id += gap;
+                }
+                if (id > after) {
+                    into[found++] = id;
+                }
+            }
+        }
+        return found;
+    }
+
+    // The last block starting at or before the id, or the first block for an id below all of them.
+    private int block(long id) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firsts[middle] <= id) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void append(long id) {
+        int block = blockCount - 1;
+        if (blockCount == 0 || counts[block] == BLOCK_SIZE) {
+            if (blockCount > 0) {
+                blocks[block] = Arrays.copyOf(blocks[block], lengths[block]);
+            }
+            block = blockCount;
+            insertBlock(block);
+            firsts[block] = id;
+            blocks[block] = new byte[8];
+            lengths[block] = 0;
+            counts[block] = 1;
+        } else {
+            byte[] bytes = blocks[block];
+            if (lengths[block] + 10 > bytes.length) {
+                blocks[block] = Arrays.copyOf(bytes, Math.max(lengths[block] + 10, bytes.length * 2));
+            }
+            lengths[block] = writeGap(blocks[block], lengths[block], id - last);
+            counts[block]++;
+        }
+        last = id;
+        size++;
+    }
+
+    // Replaces the bytes between the offsets with up to two gaps, a negative gap meaning none.
+    private void replace(int block, int from, int to, long gap, long nextGap) {
+        byte[] encoded = new byte[20];
+        int length = gap < 0 ? 0 : writeGap(encoded, 0, gap);
+        length = nextGap < 0 ? length : writeGap(encoded, length, nextGap);
+
+        byte[] bytes = blocks[block];
+        int total = lengths[block] - (to - from) + length;
+        if (total > bytes.length) {
+            bytes = blocks[block] = Arrays.copyOf(bytes, total + 8);
+        }
+        System.arraycopy(bytes, to, bytes, from + length, lengths[block] - to);
+        System.arraycopy(encoded, 0, bytes, from, length);
+        lengths[block] = total;
+    }
+
+    private void split(int block) {
+        long[] ids = decode(block);
+        insertBlock(block + 1);
+        encode(block, ids, 0, ids.length / 2);
+        encode(block + 1, ids, ids.length / 2, ids.length);
+    }
+
+    private long[] decode(int block) {
+        long[] ids = new long[counts[block]];
+        byte[] bytes = blocks[block];
+        long id = firsts[block];
+        ids[0] = id;
+        int offset = 0;
+        for (int i = 1; i < ids.length; i++) {
+            long gap = 0;
+            int shift = 0;
+            byte next;
+            do {
+                next = bytes[offset++];
+                gap |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            } while (next < 0);
+            id += gap;
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private void encode(int block, long[] ids, int from, int to) {
+        byte[] bytes = new byte[(to - from - 1) * 10];
+        int length = 0;
+        for (int i = from + 1; i < to; i++) {
+            length = writeGap(bytes, length, ids[i] - ids[i - 1]);
+        }
+        firsts[block] = ids[from];
+        blocks[block] = Arrays.copyOf(bytes, length);
+        lengths[block] = length;
+        counts[block] = to - from;
+    }
+
+    private long lastOf(int block) {
+        long[] ids = decode(block);
+        return ids[ids.length - 1];
+    }
+
+    private void insertBlock(int block) {
+        if (blockCount == firsts.length) {
+            int capacity = blockCount * 2;
+            firsts = Arrays.copyOf(firsts, capacity);
+            blocks = Arrays.copyOf(blocks, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        int moved = blockCount - block;
+        System.arraycopy(firsts, block, firsts, block + 1, moved);
+        System.arraycopy(blocks, block, blocks, block + 1, moved);
+        System.arraycopy(lengths, block, lengths, block + 1, moved);
+        System.arraycopy(counts, block, counts, block + 1, moved);
+        blockCount++;
+    }
+
+    private void removeBlock(int block) {
+        int moved = blockCount - block - 1;
+        System.arraycopy(firsts, block + 1, firsts, block, moved);
+        System.arraycopy(blocks, block + 1, blocks, block, moved);
+        System.arraycopy(lengths, block + 1, lengths, block, moved);
+        System.arraycopy(counts, block + 1, counts, block, moved);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+
+    private static long readGap(byte[] bytes, int offset) {
+        long gap = 0;
+        int shift = 0;
+        byte next;
+        do {
+            next = bytes[offset++];
+            gap |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        } while (next < 0);
+        return gap;
+    }
+
+    private static int skipGap(byte[] bytes, int offset) {
+        while (bytes[offset++] < 0) {
+        }
+        return offset;
+    }
+
+    private static int writeGap(byte[] bytes, int offset, long gap) {
+        while ((gap & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        bytes[offset++] = (byte) gap;
+        return offset;
+    }
+}
@@ -0,0 +1,225 @@
+package pawlin.userapi.repository.index;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Indexes every trigram of the full name and of the email, so a query matches any substring of either, e.g. "mith",
+// "john s" or "example.c". A query reads the shortest posting list among its own trigrams in id order, and callers check
+// each candidate with matches until they have enough hits. A query of one or two characters merges the lists of the
+// trigrams containing it, found through the trigrams kept by each character and pair of characters, so a short query
+// matching nobody costs one lookup. Names and emails shorter than a trigram are indexed by their characters and pairs
+// instead. Only when the lists to merge hold too many ids is a short query not covered and checked against users in id
+// order; so many users contain it then that the scan stops soon.
+public class SearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    // Ids the lists of a short query may have to read before they are first compared.
+    private static final int MAX_MERGED_IDS = 8 * 1024;
+
+    private final ConcurrentMap<Long, PostingList> postings = new ConcurrentHashMap<>();
+    // The trigrams with a posting list, by each character and pair of characters in them. It grows with the distinct
+    // trigrams rather than with the users.
+    private final ConcurrentMap<Long, Set<Long>> trigrams = new ConcurrentHashMap<>();
+
+    public void add(Long id, String email, String firstName, String lastName) {
+        grams(email, firstName, lastName).distinct().forEach(gram -> add(id, gram));
+    }
+
+    public void remove(Long id, String email, String firstName, String lastName) {
+        grams(email, firstName, lastName).distinct().forEach(gram -> remove(id, gram));
+    }
+
+    // Touches only the trigrams the write adds or removes, as an edit usually keeps most of them.
+    public void update(Long id, String email, String firstName, String lastName, String newEmail, String newFirstName, String newLastName) {
+        if (Objects.equals(email, newEmail) && Objects.equals(firstName, newFirstName) && Objects.equals(lastName, newLastName)) {
+            return;
+        }
+
+        Set<Long> previous = grams(email, firstName, lastName).collect(Collectors.toSet());
+        Set<Long> current = grams(newEmail, newFirstName, newLastName).collect(Collectors.toSet());
+        previous.stream().filter(gram -> !current.contains(gram)).forEach(gram -> remove(id, gram));
+        current.stream().filter(gram -> !previous.contains(gram)).forEach(gram -> add(id, gram));
+    }
+
+    public boolean covers(String query) {
+        String normalized = normalize(query);
+        return normalized.length() >= GRAM_LENGTH || !normalized.isEmpty() && lists(normalized, MAX_MERGED_IDS) != null;
+    }
+
+    // Ids of the users that may match a covered query, in increasing order.
+    public Stream<Long> find(String query) {
+        String normalized = normalize(query);
+        if (normalized.length() < GRAM_LENGTH) {
+            return merge(lists(normalized, Integer.MAX_VALUE));
+        }
+
+        PostingList shortest = null;
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            PostingList list = postings.get(gram(normalized, i, GRAM_LENGTH));
+            if (list == null) {
+                return Stream.empty();
+            }
+            if (shortest == null || list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+        return shortest != null ? shortest.stream() : Stream.empty();
+    }
+
+    public int size() {
+        return postings.values().stream().mapToInt(PostingList::size).sum();
+    }
+
+    public static boolean matches(String email, String firstName, String lastName, String query) {
+        String normalized = normalize(query);
+        String fullName = fullName(firstName, lastName);
+        return fullName != null && normalize(fullName).contains(normalized) || email != null && normalize(email).contains(normalized);
+    }
+
+    // The lists of a short query's own gram and of the trigrams containing it, or null once the ids they would read
+    // before the first comparison exceed the limit.
+    private List<PostingList> lists(String query, int maxIds) {
+        long gram = gram(query, 0, query.length());
+        List<PostingList> lists = new ArrayList<>();
+        PostingList own = postings.get(gram);
+        if (own != null) {
+            lists.add(own);
+        }
+        int ids = own != null ? Math.min(own.size(), PostingList.READ_BATCH_SIZE) : 0;
+        for (Long trigram : trigrams.getOrDefault(gram, Set.of())) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            lists.add(list);
+            ids += Math.min(list.size(), PostingList.READ_BATCH_SIZE);
+            if (ids > maxIds) {
+                return null;
+            }
+        }
+        return lists;
+    }
+
+    private void add(Long id, long gram) {
+        postings.compute(gram, (key, list) -> {
+            PostingList updated = list != null ? list : new PostingList();
+            if (list == null && isTrigram(key)) {
+                for (long part : parts(key)) {
+                    trigrams.compute(part, (partKey, keys) -> {
+                        Set<Long> updatedKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                        updatedKeys.add(key);
+                        return updatedKeys;
+                    });
+                }
+            }
+            updated.add(id);
+            return updated;
+        });
+    }
+
+    private void remove(Long id, long gram) {
+        postings.computeIfPresent(gram, (key, list) -> {
+            if (!list.remove(id) || list.size() > 0) {
+                return list;
+            }
+            if (isTrigram(key)) {
+                for (long part : parts(key)) {
+                    trigrams.computeIfPresent(part, (partKey, keys) -> keys.remove(key) && keys.isEmpty() ? null : keys);
+                }
+            }
+            return null;
+        });
+    }
+
+    // Ids found in any of the lists, each once and in increasing order.
+    private static Stream<Long> merge(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return Stream.empty();
+        }
+        if (lists.size() == 1) {
+            return lists.get(0).stream();
+        }
+
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong(Head::id));
+        lists.forEach(list -> Head.advance(heads, list.stream().iterator()));
+        Iterator<Long> iterator = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Long next() {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                long id = heads.peek().id();
+                while (!heads.isEmpty() && heads.peek().id() == id) {
+                    Head.advance(heads, heads.poll().rest());
+                }
+                return id;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    // Trigrams of names and emails at least as long, and every character and pair of characters of shorter ones.
+    private static Stream<Long> grams(String email, String firstName, String lastName) {
+        return Stream.of(fullName(firstName, lastName), email).filter(Objects::nonNull).map(SearchIndex::normalize).flatMap(value -> {
+            Stream.Builder<Long> grams = Stream.builder();
+            if (value.length() >= GRAM_LENGTH) {
+                for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+                    grams.add(gram(value, i, GRAM_LENGTH));
+                }
+                return grams.build();
+            }
+            for (int length = 1; length <= value.length(); length++) {
+                for (int i = 0; i + length <= value.length(); i++) {
+                    grams.add(gram(value, i, length));
+                }
+            }
+            return grams.build();
+        });
+    }
+
+    // The characters with the length above them, so grams of different lengths never collide.
+    private static long gram(String value, int offset, int length) {
+        long gram = length;
+        for (int i = offset; i < offset + length; i++) {
+            gram = gram << 16 | value.charAt(i);
+        }
+        return gram;
+    }
+
+    private static boolean isTrigram(long gram) {
+        return gram >>> (16 * GRAM_LENGTH) == GRAM_LENGTH;
+    }
+
+    // The characters and pairs of characters of a trigram.
+    private static long[] parts(long trigram) {
+        String value = new String(new char[]{(char) (trigram >>> 32), (char) (trigram >>> 16), (char) trigram});
+        return new long[]{gram(value, 0, 1), gram(value, 1, 1), gram(value, 2, 1), gram(value, 0, 2), gram(value, 1, 2)};
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        if (firstName == null || lastName == null) {
+            return firstName != null ? firstName : lastName;
+        }
+        return firstName + " " + lastName;
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private record Head(long id, Iterator<Long> rest) {
+        static void advance(PriorityQueue<Head> heads, Iterator<Long> rest) {
+            if (rest.hasNext()) {
+                heads.add(new Head(rest.next(), rest));
+            }
+        }
+    }
+}
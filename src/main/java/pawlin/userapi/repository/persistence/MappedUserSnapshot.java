@@ -0,0 +1,126 @@
+package pawlin.userapi.repository.persistence;
+
+import pawlin.userapi.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Read-only view over a snapshot file: the id index is binary searched in place and records are decoded on access.
+final class MappedUserSnapshot extends AbstractMap<Long, User> {
+    static final int MAGIC = 0x55534e50;
+    static final int VERSION = 3;
+    static final int HEADER_SIZE = 32;
+    static final int INDEX_ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final long replayFrom;
+    private final int size;
+    private final int indexOffset;
+
+    private MappedUserSnapshot(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot " + path);
+        }
+
+        this.buffer = buffer;
+        this.replayFrom = buffer.getLong(8);
+        this.size = buffer.getInt(16);
+        long indexOffset = buffer.getLong(24);
+        if (indexOffset + (long) size * INDEX_ENTRY_SIZE != buffer.capacity()) {
+            throw new IOException("Truncated snapshot " + path);
+        }
+        this.indexOffset = (int) indexOffset;
+    }
+
+    static MappedUserSnapshot map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " is too large to map");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedUserSnapshot(buffer, path);
+        }
+    }
+
+    long replayFrom() {
+        return replayFrom;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long id && find(id) >= 0;
+    }
+
+    @Override
+    public User get(Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+
+        int entry = find(id);
+        return entry >= 0 ? decode(entry) : null;
+    }
+
+    @Override
+    public Set<Entry<Long, User>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, User>> iterator() {
+                return entries().iterator();
+            }
+
+            @Override
+            public Spliterator<Entry<Long, User>> spliterator() {
+                return entries().spliterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            private Stream<Entry<Long, User>> entries() {
+                return IntStream.range(0, size).mapToObj(entry -> new SimpleImmutableEntry<>(id(entry), decode(entry)));
+            }
+        };
+    }
+
+    private int find(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = id(middle);
+            if (found < id) {
+                low = middle + 1;
+            } else if (found > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    long id(int entry) {
+        return buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE);
+    }
+
+    User decode(int entry) {
+        int offset = (int) buffer.getLong(indexOffset + entry * INDEX_ENTRY_SIZE + 8);
+        return UserRecords.read(buffer.duplicate().position(offset), id(entry));
+    }
+}
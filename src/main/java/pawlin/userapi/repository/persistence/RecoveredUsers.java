@@ -0,0 +1,116 @@
+package pawlin.userapi.repository.persistence;
+
+import pawlin.userapi.model.User;
+
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Read-only view of the mapped snapshot with the replayed log laid over it, so the repository decodes each record once
+// while it loads them, and nothing but the replayed users is held on to before that. A replayed delete is kept as null.
+final class RecoveredUsers extends AbstractMap<Long, User> {
+    private final MappedUserSnapshot snapshot;
+    private final Map<Long, User> replayed = new HashMap<>();
+    private int size = -1;
+
+    RecoveredUsers(MappedUserSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    void replay(Long id, User user) {
+        replayed.put(id, user);
+        size = -1;
+    }
+
+    @Override
+    public int size() {
+        if (size >= 0) {
+            return size;
+        }
+
+        int size = snapshot != null ? snapshot.size() : 0;
+        for (Entry<Long, User> entry : replayed.entrySet()) {
+            boolean snapshotted = snapshot != null && snapshot.containsKey(entry.getKey());
+            if (entry.getValue() != null && !snapshotted) {
+                size++;
+            } else if (entry.getValue() == null && snapshotted) {
+                size--;
+            }
+        }
+        this.size = size;
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public User get(Object key) {
+        if (replayed.containsKey(key)) {
+            return replayed.get(key);
+        }
+        return snapshot != null ? snapshot.get(key) : null;
+    }
+
+    @Override
+    public Set<Long> keySet() {
+        return new View<>() {
+            @Override
+            Stream<Long> stream(boolean parallel) {
+                return Stream.concat(snapshotEntries(parallel).mapToObj(snapshot::id), replayedIds());
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Long, User>> entrySet() {
+        return new View<>() {
+            @Override
+            Stream<Entry<Long, User>> stream(boolean parallel) {
+                return Stream.concat(
+                        snapshotEntries(parallel).mapToObj(entry -> new SimpleImmutableEntry<>(snapshot.id(entry), snapshot.decode(entry))),
+                        replayedIds().map(id -> new SimpleImmutableEntry<>(id, replayed.get(id))));
+            }
+        };
+    }
+
+    // Snapshot entries the log did not replace, found by id so that replaced records are never decoded.
+    private IntStream snapshotEntries(boolean parallel) {
+        if (snapshot == null) {
+            return IntStream.empty();
+        }
+
+        IntStream entries = IntStream.range(0, snapshot.size()).filter(entry -> !replayed.containsKey(snapshot.id(entry)));
+        return parallel ? entries.parallel() : entries;
+    }
+
+    private Stream<Long> replayedIds() {
+        return replayed.entrySet().stream().filter(entry -> entry.getValue() != null).map(Entry::getKey);
+    }
+
+    private abstract class View<T> extends AbstractSet<T> {
+        abstract Stream<T> stream(boolean parallel);
+
+        @Override
+        public Iterator<T> iterator() {
+            return stream(false).iterator();
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return stream(false).spliterator();
+        }
+
+        @Override
+        public Stream<T> parallelStream() {
+            return stream(true);
+        }
+
+        @Override
+        public int size() {
+            return RecoveredUsers.this.size();
+        }
+    }
+}
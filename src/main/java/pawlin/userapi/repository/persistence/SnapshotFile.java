@@ -0,0 +1,102 @@
+package pawlin.userapi.repository.persistence;
+
+import pawlin.userapi.model.User;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+final class SnapshotFile {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".dat";
+
+    private SnapshotFile() {
+    }
+
+    static long write(Path directory, long replayFrom, Iterator<User> users) throws IOException {
+        Path temporary = directory.resolve(PREFIX + replayFrom + ".tmp");
+        List<IndexEntry> index = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel.position(MappedUserSnapshot.HEADER_SIZE)), 64 * 1024));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            DataOutputStream record = new DataOutputStream(buffer);
+            long position = MappedUserSnapshot.HEADER_SIZE;
+
+            while (users.hasNext()) {
+                User user = users.next();
+                buffer.reset();
+                UserRecords.write(record, user);
+                buffer.writeTo(output);
+                index.add(new IndexEntry(user.getId(), position));
+                position += buffer.size();
+            }
+
+            index.sort(Comparator.comparingLong(IndexEntry::id));
+            for (IndexEntry entry : index) {
+                output.writeLong(entry.id());
+                output.writeLong(entry.offset());
+            }
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(MappedUserSnapshot.HEADER_SIZE)
+                    .putInt(MappedUserSnapshot.MAGIC)
+                    .putInt(MappedUserSnapshot.VERSION)
+                    .putLong(replayFrom)
+                    .putInt(index.size())
+                    .putInt(0)
+                    .putLong(position)
+                    .flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        Files.move(temporary, path(directory, replayFrom), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteBefore(directory, replayFrom);
+        return index.size();
+    }
+
+    static Optional<Path> latest(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX) && path.getFileName().toString().endsWith(SUFFIX))
+                    .max((left, right) -> Long.compare(segment(left), segment(right)));
+        }
+    }
+
+    static MappedUserSnapshot read(Path snapshot) throws IOException {
+        return MappedUserSnapshot.map(snapshot);
+    }
+
+    private static void deleteBefore(Path directory, long replayFrom) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX) && segment(path) < replayFrom) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static Path path(Path directory, long replayFrom) {
+        return directory.resolve(PREFIX + String.format("%020d", replayFrom) + SUFFIX);
+    }
+
+    private static long segment(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private record IndexEntry(long id, long offset) {
+    }
+}
@@ -0,0 +1,114 @@
+package pawlin.userapi.repository.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import pawlin.userapi.configuration.PersistenceProperties;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRecovery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+@Slf4j
+public class UserPersistence implements UserJournal, UserRecovery, Closeable {
+    private final Path directory;
+    private final WriteAheadLog writeAheadLog;
+    private final AtomicBoolean recovered = new AtomicBoolean();
+
+    public UserPersistence(PersistenceProperties properties) {
+        this.directory = properties.directory();
+        this.writeAheadLog = new WriteAheadLog(directory, Math.max(1, properties.fsyncBatchSize()));
+    }
+
+    // The snapshot is mapped rather than read, and its records are decoded as the repository loads them.
+    @Override
+    public Map<Long, User> recover() {
+        if (!recovered.compareAndSet(false, true)) {
+            throw new IllegalStateException("Users have already been recovered");
+        }
+
+        try {
+            long started = System.nanoTime();
+            Files.createDirectories(directory);
+
+            Optional<Path> snapshot = SnapshotFile.latest(directory);
+            MappedUserSnapshot mapped = snapshot.isPresent() ? SnapshotFile.read(snapshot.get()) : null;
+            long replayFrom = mapped != null ? mapped.replayFrom() : 0;
+
+            RecoveredUsers users = new RecoveredUsers(mapped);
+            int loaded = mapped != null ? mapped.size() : 0;
+
+            long replayed = 0;
+            long last = replayFrom;
+            for (Long segment : writeAheadLog.segments()) {
+                if (segment >= replayFrom) {
+                    replayed += writeAheadLog.replay(segment, users::replay);
+                }
+                last = Math.max(last, segment);
+            }
+            writeAheadLog.open(last + 1);
+
+            log.info("Recovered {} users ({} in snapshot, {} log records replayed) in {} ms",
+                    users.size(), loaded, replayed, (System.nanoTime() - started) / 1_000_000);
+            return users;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long append(Long id, User user) {
+        try {
+            return writeAheadLog.append(id, user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void sync(long position) {
+        try {
+            writeAheadLog.sync(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void sync() {
+        try {
+            writeAheadLog.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long snapshot(Stream<User> users) {
+        try (users) {
+            // Writes racing with the rotation can land in the closed segment after the snapshot started reading,
+            // so the snapshot replays from that segment rather than the fresh one.
+            long replayFrom = writeAheadLog.rotate();
+            long written = SnapshotFile.write(directory, replayFrom, users.iterator());
+            writeAheadLog.deleteBefore(replayFrom);
+            return written;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    List<Long> segments() throws IOException {
+        return writeAheadLog.segments();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeAheadLog.close();
+    }
+}
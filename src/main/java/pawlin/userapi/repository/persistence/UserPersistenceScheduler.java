@@ -0,0 +1,37 @@
+package pawlin.userapi.repository.persistence;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import pawlin.userapi.configuration.PersistenceProperties;
+import pawlin.userapi.repository.UserRepository;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "user.repository.persistence", name = "enabled", havingValue = "true")
+public class UserPersistenceScheduler implements SchedulingConfigurer {
+    private final UserPersistence userPersistence;
+    private final UserRepository userRepository;
+    private final PersistenceProperties persistenceProperties;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::sync, persistenceProperties.fsyncInterval(), persistenceProperties.fsyncInterval()));
+        taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::snapshot, persistenceProperties.snapshotInterval(), persistenceProperties.snapshotInterval()));
+    }
+
+    public void sync() {
+        userPersistence.sync();
+    }
+
+    public void snapshot() {
+        long started = System.nanoTime();
+        long written = userPersistence.snapshot(userRepository.streamAll());
+        log.info("Wrote snapshot of {} users in {} ms", written, (System.nanoTime() - started) / 1_000_000);
+    }
+}
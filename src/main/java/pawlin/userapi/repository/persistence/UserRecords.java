@@ -0,0 +1,87 @@
+package pawlin.userapi.repository.persistence;
+
+import pawlin.userapi.model.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+public final class UserRecords {
+    private static final int NULL_LENGTH = -1;
+
+    private UserRecords() {
+    }
+
+    public static void write(DataOutput output, User user) throws IOException {
+        writeString(output, user.getEmail());
+        writeString(output, user.getFirstName());
+        writeString(output, user.getLastName());
+        output.writeBoolean(user.getBirthDate() != null);
+        if (user.getBirthDate() != null) {
+            output.writeLong(user.getBirthDate().toEpochDay());
+        }
+        writeString(output, user.getAddress());
+        writeString(output, user.getPhoneNumber());
+        output.writeLong(user.getVersion());
+    }
+
+    public static User read(DataInput input, Long id) throws IOException {
+        String email = readString(input);
+        String firstName = readString(input);
+        String lastName = readString(input);
+        LocalDate birthDate = input.readBoolean() ? LocalDate.ofEpochDay(input.readLong()) : null;
+        String address = readString(input);
+        String phoneNumber = readString(input);
+        long version = input.readLong();
+
+        return new User(id, email, firstName, lastName, birthDate, address, phoneNumber, version);
+    }
+
+    static User read(ByteBuffer input, Long id) {
+        String email = readString(input);
+        String firstName = readString(input);
+        String lastName = readString(input);
+        LocalDate birthDate = input.get() != 0 ? LocalDate.ofEpochDay(input.getLong()) : null;
+        String address = readString(input);
+        String phoneNumber = readString(input);
+        long version = input.getLong();
+
+        return new User(id, email, firstName, lastName, birthDate, address, phoneNumber, version);
+    }
+
+    private static void writeString(DataOutput output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = input.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,251 @@
+package pawlin.userapi.repository.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import pawlin.userapi.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Slf4j
+class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final int syncBatchSize;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+    // Held while a record is written to the channel, so a record reaches the OS before its writer returns and survives
+    // the process crashing, while appending never waits for the disk.
+    private final ReentrantLock lock = new ReentrantLock();
+    // Held while the channel is forced. Writers queued behind a force usually find their records forced by it, so
+    // concurrent writes share an fsync. Locks rather than monitors, so virtual threads waiting for a force do not pin
+    // their carrier threads. Only the append runs inside a monitor, that of the map bin being written, and it only hands
+    // the record to the OS.
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private FileChannel channel;
+    private long segment;
+    private long appended;
+    private volatile long forced;
+    // Once a write or force fails, the records after the last forced one may never reach the disk, and a later force
+    // succeeding says nothing about them, so the log refuses to append or sync past that record until it is recovered.
+    private volatile IOException failure;
+
+    WriteAheadLog(Path directory, int syncBatchSize) {
+        this.directory = directory;
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    void open(long segment) throws IOException {
+        syncLock.lock();
+        lock.lock();
+        try {
+            this.segment = segment;
+            this.channel = openSegment(segmentPath(segment));
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    // Returns the position of the record, to be passed to sync.
+    long append(Long id, User user) throws IOException {
+        lock.lock();
+        try {
+            requireHealthy();
+            buffer.reset();
+            record.writeByte(user != null ? PUT : DELETE);
+            record.writeLong(id);
+            if (user != null) {
+                UserRecords.write(record, user);
+            }
+
+            byte[] payload = buffer.toByteArray();
+            crc.reset();
+            crc.update(payload);
+            header.clear();
+            header.putInt(payload.length).putInt((int) crc.getValue()).flip();
+            ByteBuffer[] bytes = {header, ByteBuffer.wrap(payload)};
+            try {
+                while (bytes[1].hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forces the written records once syncBatchSize of them wait up to the position; fewer are left to the next sync.
+    void sync(long position) throws IOException {
+        if (position <= forced) {
+            return;
+        }
+        requireHealthy();
+        if (position - forced < syncBatchSize) {
+            return;
+        }
+
+        syncLock.lock();
+        try {
+            if (forced < position) {
+                force();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    void sync() throws IOException {
+        syncLock.lock();
+        try {
+            force();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Appends wait for the rotation, so every record written to the closed segment is forced before it is closed.
+    long rotate() throws IOException {
+        syncLock.lock();
+        lock.lock();
+        try {
+            requireHealthy();
+            long closed = segment;
+            close();
+            open(closed + 1);
+            return closed;
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        lock.lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                try {
+                    if (failure == null) {
+                        force();
+                    }
+                } finally {
+                    channel.close();
+                }
+            }
+        } finally {
+            lock.unlock();
+            syncLock.unlock();
+        }
+    }
+
+    List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.valueOf(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    void deleteBefore(long segment) throws IOException {
+        for (Long existing : segments()) {
+            if (existing < segment) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    long replay(long segment, BiConsumer<Long, User> consumer) throws IOException {
+        long records = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath(segment)), 64 * 1024))) {
+            CRC32 checksum = new CRC32();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = input.readInt();
+                    int expected = input.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        log.warn("Stopping replay of {} at corrupt record {}", segmentPath(segment), records);
+                        return records;
+                    }
+                    payload = new byte[length];
+                    input.readFully(payload);
+                    checksum.reset();
+                    checksum.update(payload);
+                    if ((int) checksum.getValue() != expected) {
+                        log.warn("Stopping replay of {} at corrupt record {}", segmentPath(segment), records);
+                        return records;
+                    }
+                } catch (EOFException e) {
+                    return records;
+                }
+
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = entry.readByte();
+                Long id = entry.readLong();
+                consumer.accept(id, type == PUT ? UserRecords.read(entry, id) : null);
+                records++;
+            }
+        }
+    }
+
+    FileChannel openSegment(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Records up to the last one appended before the force are fully written, so they are the ones it makes durable.
+    private void force() throws IOException {
+        requireHealthy();
+        long last;
+        lock.lock();
+        try {
+            last = appended;
+        } finally {
+            lock.unlock();
+        }
+        if (last == forced) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        forced = last;
+    }
+
+    private void requireHealthy() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed after record " + forced + ", restart to recover what reached the disk", failure);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(PREFIX + String.format("%020d", segment) + SUFFIX);
+    }
+}
@@ -0,0 +1,177 @@
+package pawlin.userapi.repository.replication;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import pawlin.userapi.configuration.ReplicationProperties;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserRepository;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Applies the changes streamed by the leader to the local repository on a single thread, reconnecting whenever the
+// connection drops and resuming where it stopped. When the leader asks it to start over, the follower keeps serving
+// what it has while the snapshot arrives, then removes the users the snapshot did not contain.
+@Slf4j
+public class ReplicationFollower implements Closeable {
+    private final UserRepository userRepository;
+    private final ReplicationProperties properties;
+    private final Counter applied;
+    private final Counter resyncs;
+
+    private volatile boolean running;
+    private volatile Socket socket;
+    private volatile boolean connected;
+    private volatile long sequence;
+    private volatile long head;
+    private volatile long caughtUp = System.nanoTime();
+    private String epoch = "";
+    private volatile boolean resyncing;
+    private Set<Long> resynced;
+    private Thread thread;
+
+    public ReplicationFollower(UserRepository userRepository, ReplicationProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.applied = Counter.builder("user.replication.applied")
+                .description("Changes applied from the leader")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("user.replication.resyncs")
+                .description("Times the follower started over from a snapshot")
+                .register(meterRegistry);
+        Gauge.builder("user.replication.connected", this, follower -> follower.connected ? 1 : 0)
+                .description("Whether the follower is connected to the leader")
+                .register(meterRegistry);
+        Gauge.builder("user.replication.lag.changes", this, follower -> follower.head - follower.sequence)
+                .description("Changes the leader had reported that are not applied yet")
+                .register(meterRegistry);
+        TimeGauge.builder("user.replication.lag", this, TimeUnit.NANOSECONDS, follower -> System.nanoTime() - follower.caughtUp)
+                .description("Time since the follower last had every change of the leader, an idle leader confirms that with each heartbeat")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        running = true;
+        thread = ReplicationLeader.daemon("replication-follower", this::run);
+        thread.start();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isCaughtUp() {
+        return connected && !resyncing && sequence >= head;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket socket = new Socket()) {
+                this.socket = socket;
+                if (!running) {
+                    return;
+                }
+                socket.connect(new InetSocketAddress(properties.host(), properties.port()), (int) properties.reconnectDelay().toMillis());
+                // A leader that stops sending heartbeats is treated as gone.
+                socket.setSoTimeout((int) properties.heartbeatInterval().toMillis() * 3);
+                socket.setTcpNoDelay(true);
+                replicate(socket);
+            } catch (IOException e) {
+                // Retries while the leader is away are only worth a debug line.
+                if (running && connected) {
+                    log.warn("Lost connection to leader {}: {}", properties.leader(), e.toString());
+                } else if (running) {
+                    log.debug("Failed to connect to leader {}: {}", properties.leader(), e.toString());
+                }
+            } finally {
+                connected = false;
+            }
+
+            if (running) {
+                LockSupport.parkNanos(properties.reconnectDelay().toNanos());
+            }
+        }
+    }
+
+    private void replicate(Socket socket) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        ReplicationFrames.writePosition(output, epoch, sequence);
+        output.flush();
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        ReplicationFrames.Hello hello = ReplicationFrames.readHello(input);
+        if (hello.reset()) {
+            epoch = hello.epoch();
+            sequence = 0;
+            resyncing = true;
+            // Only users already held here can be missing from the snapshot.
+            resynced = userRepository.count() > 0 ? new HashSet<>() : null;
+            resyncs.increment();
+            log.info("Replicating a snapshot from leader {}", properties.leader());
+        } else {
+            log.info("Resuming replication from leader {} after {}", properties.leader(), sequence);
+        }
+        connected = true;
+
+        while (running) {
+            apply(ReplicationFrames.readBatch(input));
+        }
+    }
+
+    private void apply(ReplicationFrames.Batch batch) {
+        UserChanges changes = batch.changes();
+        for (User user : changes.users()) {
+            userRepository.apply(user.getId(), user);
+        }
+        for (Long id : changes.deleted()) {
+            userRepository.apply(id, null);
+        }
+        if (resynced != null) {
+            changes.users().forEach(user -> resynced.add(user.getId()));
+            resynced.addAll(changes.deleted());
+        }
+        applied.increment(changes.users().size() + changes.deleted().size());
+        head = batch.head();
+        sequence = changes.sequence();
+
+        if (!changes.more()) {
+            if (resyncing) {
+                finishResync();
+            }
+            caughtUp = System.nanoTime();
+        }
+    }
+
+    private void finishResync() {
+        if (resynced != null) {
+            List<Long> removed = userRepository.streamAll().map(User::getId).filter(id -> !resynced.contains(id)).toList();
+            removed.forEach(id -> userRepository.apply(id, null));
+            log.info("Removed {} users that are gone from leader {}", removed.size(), properties.leader());
+        }
+        resyncing = false;
+        resynced = null;
+        log.info("Caught up with leader {} at {} users", properties.leader(), userRepository.count());
+    }
+}
@@ -0,0 +1,80 @@
+package pawlin.userapi.repository.replication;
+
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.persistence.UserRecords;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// A follower opens with the epoch and sequence it has replicated up to, empty and 0 at first. The leader answers with
+// its own epoch and whether the follower has to start over, then sends batches of changes for as long as the
+// connection lasts, an empty one as a heartbeat. Each batch carries the latest sequence of the leader, so a follower
+// knows how far behind it is.
+final class ReplicationFrames {
+    private ReplicationFrames() {
+    }
+
+    static void writePosition(DataOutput output, String epoch, long sequence) throws IOException {
+        output.writeUTF(epoch);
+        output.writeLong(sequence);
+    }
+
+    static Position readPosition(DataInput input) throws IOException {
+        return new Position(input.readUTF(), input.readLong());
+    }
+
+    static void writeHello(DataOutput output, String epoch, boolean reset) throws IOException {
+        output.writeUTF(epoch);
+        output.writeBoolean(reset);
+    }
+
+    static Hello readHello(DataInput input) throws IOException {
+        return new Hello(input.readUTF(), input.readBoolean());
+    }
+
+    static void writeBatch(DataOutput output, UserChanges changes, long head) throws IOException {
+        output.writeLong(changes.sequence());
+        output.writeLong(head);
+        output.writeBoolean(changes.more());
+        output.writeInt(changes.users().size());
+        for (User user : changes.users()) {
+            output.writeLong(user.getId());
+            UserRecords.write(output, user);
+        }
+        output.writeInt(changes.deleted().size());
+        for (Long id : changes.deleted()) {
+            output.writeLong(id);
+        }
+    }
+
+    static Batch readBatch(DataInput input) throws IOException {
+        long sequence = input.readLong();
+        long head = input.readLong();
+        boolean more = input.readBoolean();
+        int userCount = input.readInt();
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            users.add(UserRecords.read(input, input.readLong()));
+        }
+        int deletedCount = input.readInt();
+        List<Long> deleted = new ArrayList<>(deletedCount);
+        for (int i = 0; i < deletedCount; i++) {
+            deleted.add(input.readLong());
+        }
+
+        return new Batch(new UserChanges(users, deleted, sequence, more), head);
+    }
+
+    record Position(String epoch, long sequence) {
+    }
+
+    record Hello(String epoch, boolean reset) {
+    }
+
+    record Batch(UserChanges changes, long head) {
+    }
+}
@@ -0,0 +1,172 @@
+package pawlin.userapi.repository.replication;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import pawlin.userapi.configuration.ReplicationProperties;
+import pawlin.userapi.event.UserEventBuffer;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserRepository;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+// Streams the changes of the user repository to followers, one thread per follower. The stream is read from the
+// change index, which holds every change once it is stored, so a follower that starts from sequence 0 receives every
+// user, i.e. a snapshot, and then whatever changed while it was reading. The epoch is the start time of this instance,
+// so a follower of an earlier leader is told to start over rather than resume from a sequence that means nothing here,
+// as is one whose sequence is older than the compacted deletions. Connected followers hold back compaction, as they
+// would otherwise start over too.
+@Slf4j
+public class ReplicationLeader implements Closeable {
+    private final UserRepository userRepository;
+    private final ReplicationProperties properties;
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final Counter snapshots;
+    private final Counter sent;
+
+    private volatile ServerSocket serverSocket;
+
+    public ReplicationLeader(UserRepository userRepository, UserEventBuffer userEventBuffer, ReplicationProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.snapshots = Counter.builder("user.replication.snapshots")
+                .description("Followers that started over from a snapshot")
+                .register(meterRegistry);
+        this.sent = Counter.builder("user.replication.sent")
+                .description("Changes sent to followers")
+                .register(meterRegistry);
+        Gauge.builder("user.replication.followers", sessions, Set::size)
+                .description("Connected followers")
+                .register(meterRegistry);
+        // Writes wake the followers at once through their events, applied ones are picked up on the next poll.
+        userEventBuffer.addListener(() -> sessions.forEach(Session::signal));
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(properties.port());
+        daemon("replication-leader", this::accept).start();
+        log.info("Replicating users to followers on port {}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        sessions.forEach(Session::close);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Session session = new Session(serverSocket.accept());
+                session.thread = daemon("replication-session-" + session.socket.getPort(), session);
+                sessions.add(session);
+                session.thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Failed to accept a follower", e);
+                }
+            }
+        }
+    }
+
+    // The sequence the furthest behind follower has read up to.
+    public long oldestPosition() {
+        return sessions.stream().mapToLong(session -> session.position).min().orElse(Long.MAX_VALUE);
+    }
+
+    static Thread daemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private final class Session implements Runnable {
+        private final Socket socket;
+        private volatile Thread thread;
+        private volatile long position = Long.MAX_VALUE;
+
+        private Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            try (socket) {
+                socket.setTcpNoDelay(true);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+
+                ReplicationFrames.Position start = ReplicationFrames.readPosition(input);
+                boolean reset = !start.epoch().equals(epoch);
+                // Holds back compaction before checking the sequence against it.
+                position = reset ? 0 : start.sequence();
+                reset = reset || userRepository.findChangedSince(position, 0).reset();
+                long sequence = reset ? 0 : position;
+                position = sequence;
+                ReplicationFrames.writeHello(output, epoch, reset);
+                output.flush();
+                if (reset) {
+                    snapshots.increment();
+                }
+                log.info("Follower {} connected, {}", socket.getRemoteSocketAddress(), reset ? "sending a snapshot" : "resuming after " + sequence);
+
+                long pollInterval = properties.pollInterval().toNanos();
+                long heartbeatInterval = properties.heartbeatInterval().toNanos();
+                long lastSent = System.nanoTime() - heartbeatInterval;
+                while (!socket.isClosed()) {
+                    UserChanges changes = userRepository.findChangedSince(sequence, properties.batchSize());
+                    if (changes.reset()) {
+                        log.info("Follower {} fell behind the compacted changes, closing to send a snapshot", socket.getRemoteSocketAddress());
+                        break;
+                    }
+                    int size = changes.users().size() + changes.deleted().size();
+                    if (size > 0 || System.nanoTime() - lastSent >= heartbeatInterval) {
+                        // Reading past the end returns the latest sequence.
+                        long head = changes.more() ? userRepository.findChangedSince(Long.MAX_VALUE, 1).sequence() : changes.sequence();
+                        ReplicationFrames.writeBatch(output, changes, head);
+                        output.flush();
+                        sent.increment(size);
+                        lastSent = System.nanoTime();
+                    }
+                    sequence = changes.sequence();
+                    position = sequence;
+                    if (!changes.more()) {
+                        LockSupport.parkNanos(Math.min(pollInterval, heartbeatInterval));
+                    }
+                }
+            } catch (IOException e) {
+                log.info("Follower {} disconnected: {}", socket.getRemoteSocketAddress(), e.toString());
+            } finally {
+                sessions.remove(this);
+            }
+        }
+
+        private void signal() {
+            Thread waiting = thread;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Failed to close follower connection", e);
+            }
+        }
+    }
+}
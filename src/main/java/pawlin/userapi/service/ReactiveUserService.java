@@ -0,0 +1,23 @@
+package pawlin.userapi.service;
+
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserRequestDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.function.LongPredicate;
+
+public interface ReactiveUserService {
+    Flux<UserDto> findAll(LocalDate startDate, LocalDate endDate);
+
+    Mono<UserDto> findById(Long id);
+
+    Mono<Long> create(UserRequestDto userRequestDto);
+
+    Mono<UserDto> update(Long id, UserRequestDto userRequestDto, LongPredicate version);
+
+    Mono<UserDto> partialUpdate(Long id, UserRequestDto userRequestDto, LongPredicate version);
+
+    Mono<Void> delete(Long id);
+}
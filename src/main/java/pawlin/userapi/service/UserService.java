@@ -1,20 +1,51 @@
 package pawlin.userapi.service;
 
 import org.springframework.hateoas.CollectionModel;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserBatchResultDto;
+import pawlin.userapi.dto.UserBatchUpdateRequestDto;
+import pawlin.userapi.dto.UserChangesDto;
 import pawlin.userapi.dto.UserDto;
 import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
 
 public interface UserService {
     CollectionModel<UserDto> findAll(LocalDate startDate, LocalDate endDate);
 
+    // Serialized HAL limited to a comma-separated list of fields, see UserField.
+    byte[] findAll(LocalDate startDate, LocalDate endDate, String fields);
+
+    CollectionModel<UserDto> findPage(LocalDate startDate, LocalDate endDate, int limit, String after, String before);
+
+    Stream<User> export(LocalDate startDate, LocalDate endDate);
+
     UserDto findById(Long id);
+
+    SerializedUserDto findSerializedById(Long id);
+
+    SerializedUserDto findSerializedById(Long id, String fields);
+
+    CollectionModel<UserDto> findByEmail(String email);
+
+    CollectionModel<UserDto> search(String query, int limit);
+
+    // Changes after a high-water mark from an earlier call, or from the start for 0.
+    UserChangesDto findChanges(String since, int limit);
+
     Long create(UserRequestDto userRequestDto);
 
-    UserDto update(Long id, UserRequestDto userRequestDto);
+    List<UserBatchResultDto> createAll(List<UserRequestDto> userRequestDtos);
+
+    UserDto update(Long id, UserRequestDto userRequestDto, LongPredicate version);
+
+    List<UserBatchResultDto> updateAll(List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos);
 
-    UserDto partialUpdate(Long id, UserRequestDto userRequestDto);
+    UserDto partialUpdate(Long id, UserRequestDto userRequestDto, LongPredicate version);
 
     void delete(Long id);
 }
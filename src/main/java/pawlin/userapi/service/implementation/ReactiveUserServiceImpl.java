@@ -0,0 +1,141 @@
+package pawlin.userapi.service.implementation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.stereotype.Service;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.dto.mapper.ReactiveUserDtoModelAssembler;
+import pawlin.userapi.dto.validation.UserRequestValidator;
+import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.exception.RequestParameterNotValidException;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.ReactiveUserRepository;
+import pawlin.userapi.service.ReactiveUserService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+@Service
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    private final ReactiveUserDtoModelAssembler reactiveUserDtoModelAssembler;
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserRequestValidator userRequestValidator;
+    private final Timer validationTimer;
+
+    public ReactiveUserServiceImpl(ReactiveUserDtoModelAssembler reactiveUserDtoModelAssembler, ReactiveUserRepository reactiveUserRepository, UserRequestValidator userRequestValidator, MeterRegistry meterRegistry) {
+        this.reactiveUserDtoModelAssembler = reactiveUserDtoModelAssembler;
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.userRequestValidator = userRequestValidator;
+        this.validationTimer = Timer.builder("user.validation")
+                .description("Time spent validating user requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Flux<UserDto> findAll(LocalDate startDate, LocalDate endDate) {
+        Flux<User> users;
+
+        if (startDate == null && endDate == null) {
+            users = reactiveUserRepository.findAll();
+        } else if (startDate != null && endDate == null) {
+            users = reactiveUserRepository.findByBirthDateAfter(startDate);
+        } else if (startDate == null) {
+            users = reactiveUserRepository.findByBirthDateBefore(endDate);
+        } else if (startDate.isAfter(endDate)) {
+            return Flux.error(new RequestParameterNotValidException("Invalid date range"));
+        } else {
+            users = reactiveUserRepository.findByBirthDateBetween(startDate, endDate);
+        }
+
+        return reactiveUserDtoModelAssembler.toModels(users);
+    }
+
+    @Override
+    public Mono<UserDto> findById(Long id) {
+        return reactiveUserDtoModelAssembler.toModel(findUser(id));
+    }
+
+    @Override
+    public Mono<Long> create(UserRequestDto userRequestDto) {
+        return Mono.fromCallable(() -> validate(userRequestDto))
+                .flatMap(valid -> reactiveUserRepository.create(new User(null, valid.email(), valid.firstName(), valid.lastName(), valid.birthDate(), valid.address(), valid.phoneNumber())));
+    }
+
+    @Override
+    public Mono<UserDto> update(Long id, UserRequestDto userRequestDto, LongPredicate version) {
+        return reactiveUserDtoModelAssembler.toModel(Mono.fromCallable(() -> validate(userRequestDto))
+                .flatMap(valid -> reactiveUserRepository.update(new User(id, valid.email(), valid.firstName(), valid.lastName(), valid.birthDate(), valid.address(), valid.phoneNumber()), version)));
+    }
+
+    @Override
+    public Mono<UserDto> partialUpdate(Long id, UserRequestDto userRequestDto, LongPredicate version) {
+        return reactiveUserDtoModelAssembler.toModel(Mono.fromCallable(() -> validatePresent(userRequestDto))
+                .flatMap(valid -> reactiveUserRepository.compute(id, existing -> {
+                    if (!version.test(existing.getVersion())) {
+                        throw new PreconditionFailedException(id);
+                    }
+                    return merge(existing, valid);
+                }))
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(id))));
+    }
+
+    @Override
+    public Mono<Void> delete(Long id) {
+        return reactiveUserRepository.delete(id)
+                .switchIfEmpty(Mono.error(() -> new EntityNotFoundException(id)))
+                .then();
+    }
+
+    private Mono<User> findUser(Long id) {
+        return reactiveUserRepository.findById(id).switchIfEmpty(Mono.error(() -> new EntityNotFoundException(id)));
+    }
+
+    private UserRequestDto validate(UserRequestDto userRequestDto) {
+        Set<ConstraintViolation<UserRequestDto>> violations = validationTimer.record(() -> userRequestValidator.validate(userRequestDto));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        return userRequestDto;
+    }
+
+    private UserRequestDto validatePresent(UserRequestDto userRequestDto) {
+        Set<ConstraintViolation<UserRequestDto>> violations = validationTimer.record(() -> userRequestValidator.validatePresent(userRequestDto));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        return userRequestDto;
+    }
+
+    private static User merge(User existing, UserRequestDto userRequestDto) {
+        User.UserBuilder user = existing.toBuilder();
+        if (userRequestDto.email() != null) {
+            user.email(userRequestDto.email());
+        }
+        if (userRequestDto.firstName() != null) {
+            user.firstName(userRequestDto.firstName());
+        }
+        if (userRequestDto.lastName() != null) {
+            user.lastName(userRequestDto.lastName());
+        }
+        if (userRequestDto.birthDate() != null) {
+            user.birthDate(userRequestDto.birthDate());
+        }
+        if (userRequestDto.address() != null) {
+            user.address(userRequestDto.address());
+        }
+        if (userRequestDto.phoneNumber() != null) {
+            user.phoneNumber(userRequestDto.phoneNumber());
+        }
+
+        return user.build();
+    }
+}
@@ -1,53 +1,156 @@
 package pawlin.userapi.service.implementation;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.Validator;
-import lombok.RequiredArgsConstructor;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserBatchResultDto;
+import pawlin.userapi.dto.UserBatchUpdateRequestDto;
+import pawlin.userapi.dto.UserChangeDto;
+import pawlin.userapi.dto.UserChangesDto;
 import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserField;
 import pawlin.userapi.dto.UserRequestDto;
 import pawlin.userapi.dto.mapper.UserDtoModelAssembler;
+import pawlin.userapi.dto.mapper.UserFieldsWriter;
+import pawlin.userapi.dto.mapper.UserResponseCache;
+import pawlin.userapi.dto.validation.UserRequestValidator;
+import pawlin.userapi.event.UserEvent;
+import pawlin.userapi.event.UserEventBuffer;
 import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.PreconditionFailedException;
 import pawlin.userapi.exception.RequestParameterNotValidException;
 import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
 import pawlin.userapi.repository.UserRepository;
 import pawlin.userapi.service.UserService;
 
+import java.net.URI;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final String CURSOR_SEPARATOR = "_";
+    private static final String MARK_SEPARATOR = "-";
+
     private final UserDtoModelAssembler userDtoModelAssembler;
+    private final UserResponseCache userResponseCache;
+    private final UserFieldsWriter userFieldsWriter;
     private final UserRepository userRepository;
-    private final Validator validator;
+    private final UserRequestValidator userRequestValidator;
+    private final UserEventBuffer userEventBuffer;
+    // Sequences restart with the repository, so marks carry the start time of this instance.
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Timer validationTimer;
+    private final DistributionSummary rangeResultSize;
+
+    public UserServiceImpl(UserDtoModelAssembler userDtoModelAssembler, UserResponseCache userResponseCache, UserFieldsWriter userFieldsWriter, UserRepository userRepository, UserRequestValidator userRequestValidator, UserEventBuffer userEventBuffer, MeterRegistry meterRegistry) {
+        this.userDtoModelAssembler = userDtoModelAssembler;
+        this.userResponseCache = userResponseCache;
+        this.userFieldsWriter = userFieldsWriter;
+        this.userRepository = userRepository;
+        this.userRequestValidator = userRequestValidator;
+        this.userEventBuffer = userEventBuffer;
+        this.validationTimer = Timer.builder("user.validation")
+                .description("Time spent validating user requests")
+                .register(meterRegistry);
+        this.rangeResultSize = DistributionSummary.builder("user.range.results")
+                .description("Number of users returned by birth date range queries")
+                .register(meterRegistry);
+        userRepository.addListener(this::publish);
+    }
 
     @Override
     public CollectionModel<UserDto> findAll(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null && endDate == null) {
-            return userDtoModelAssembler.toCollectionModel(userRepository.findAll());
+        return userDtoModelAssembler.toCollectionModel(findUsers(startDate, endDate));
+    }
+
+    @Override
+    public byte[] findAll(LocalDate startDate, LocalDate endDate, String fields) {
+        Set<UserField> selected = parseFields(fields);
+        return userFieldsWriter.write(findUsers(startDate, endDate), selected);
+    }
+
+    @Override
+    public CollectionModel<UserDto> findPage(LocalDate startDate, LocalDate endDate, int limit, String after, String before) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestParameterNotValidException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (after != null && before != null) {
+            throw new RequestParameterNotValidException("Only one of after and before can be specified");
+        }
+
+        boolean byBirthDate = startDate != null || endDate != null;
+        UserCursor cursor = null;
+        if (after != null) {
+            cursor = parseCursor(after, byBirthDate, false);
+        } else if (before != null) {
+            cursor = parseCursor(before, byBirthDate, true);
         }
 
         List<User> users;
 
-        if (startDate != null && endDate == null) {
-            users = userRepository.findByBirthDateAfter(startDate);
-        } else if (startDate == null) {
-            users = userRepository.findByBirthDateBefore(endDate);
+        if (byBirthDate) {
+            LocalDate from = startDate != null ? startDate : LocalDate.MIN;
+            LocalDate to = endDate != null ? endDate : LocalDate.MAX;
+            if (from.isAfter(to)) {
+                throw new RequestParameterNotValidException("Invalid date range");
+            }
+            users = userRepository.findByBirthDateBetween(from, to, cursor, limit + 1);
+        } else {
+            users = userRepository.findAll(cursor, limit + 1);
         }
-        else if (startDate.isAfter(endDate)) {
-            throw new RequestParameterNotValidException("Invalid date range");
+
+        boolean backward = cursor != null && cursor.backward();
+        boolean hasMore = users.size() > limit;
+        if (hasMore) {
+            users = backward ? users.subList(1, users.size()) : users.subList(0, limit);
         }
-        else {
-            users = userRepository.findByBirthDateBetween(startDate, endDate);
+        if (byBirthDate) {
+            rangeResultSize.record(users.size());
+        }
+
+        String next = null;
+        String previous = null;
+
+        if (!users.isEmpty()) {
+            if (backward || hasMore) {
+                next = formatCursor(users.get(users.size() - 1), byBirthDate);
+            }
+            if (backward ? hasMore : cursor != null) {
+                previous = formatCursor(users.get(0), byBirthDate);
+            }
+        }
+
+        return userDtoModelAssembler.toPagedModel(users, startDate, endDate, limit, next, previous);
+    }
+
+    @Override
+    public Stream<User> export(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null && endDate == null) {
+            return userRepository.streamAll();
+        }
+
+        LocalDate from = startDate != null ? startDate : LocalDate.MIN;
+        LocalDate to = endDate != null ? endDate : LocalDate.MAX;
+        if (from.isAfter(to)) {
+            throw new RequestParameterNotValidException("Invalid date range");
         }
 
-        return userDtoModelAssembler.toCollectionModel(users);
+        return userRepository.streamByBirthDateBetween(from, to);
     }
 
     @Override
@@ -55,9 +158,54 @@ public class UserServiceImpl implements UserService {
         return userDtoModelAssembler.toModel(userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(id)));
     }
 
+    @Override
+    public SerializedUserDto findSerializedById(Long id) {
+        return userResponseCache.get(userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(id)), userDtoModelAssembler::toModel);
+    }
+
+    @Override
+    public SerializedUserDto findSerializedById(Long id, String fields) {
+        Set<UserField> selected = parseFields(fields);
+        User user = userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(id));
+        return new SerializedUserDto(user.getVersion(), userFieldsWriter.write(user, selected));
+    }
+
+    @Override
+    public CollectionModel<UserDto> findByEmail(String email) {
+        if (email.isBlank()) {
+            throw new RequestParameterNotValidException("Email must not be blank");
+        }
+
+        return userDtoModelAssembler.toCollectionModel(userRepository.findByEmail(email));
+    }
+
+    @Override
+    public CollectionModel<UserDto> search(String query, int limit) {
+        if (query.isBlank()) {
+            throw new RequestParameterNotValidException("Query must not be blank");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestParameterNotValidException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return userDtoModelAssembler.toCollectionModel(userRepository.search(query.strip(), limit));
+    }
+
+    @Override
+    public UserChangesDto findChanges(String since, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestParameterNotValidException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        OptionalLong sequence = parseMark(since);
+        UserChanges changes = userRepository.findChangedSince(sequence.orElse(0), limit);
+        List<UserChangeDto> users = changes.users().stream().map(UserChangeDto::of).toList();
+        return new UserChangesDto(epoch + MARK_SEPARATOR + changes.sequence(), sequence.isEmpty() || changes.reset(), changes.more(), users, changes.deleted());
+    }
+
     @Override
     public Long create(UserRequestDto userRequestDto) {
-        Set<ConstraintViolation<UserRequestDto>> violations = validator.validate(userRequestDto);
+        Set<ConstraintViolation<UserRequestDto>> violations = validate(userRequestDto);
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
         }
@@ -67,59 +215,230 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public UserDto update(Long id, UserRequestDto userRequestDto) {
-        Set<ConstraintViolation<UserRequestDto>> violations = validator.validate(userRequestDto);
+    public List<UserBatchResultDto> createAll(List<UserRequestDto> userRequestDtos) {
+        requireBatchSize(userRequestDtos);
+
+        UserBatchResultDto[] results = new UserBatchResultDto[userRequestDtos.size()];
+        List<Integer> indexes = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < userRequestDtos.size(); i++) {
+            UserRequestDto userRequestDto = userRequestDtos.get(i);
+            String violations = validateBatchItem(userRequestDto);
+            if (violations != null) {
+                results[i] = new UserBatchResultDto(i, HttpStatus.BAD_REQUEST.value(), null, null, violations);
+                continue;
+            }
+
+            indexes.add(i);
+            users.add(new User(null, userRequestDto.email(), userRequestDto.firstName(), userRequestDto.lastName(), userRequestDto.birthDate(), userRequestDto.address(), userRequestDto.phoneNumber()));
+        }
+
+        if (!users.isEmpty()) {
+            List<Long> ids = userRepository.createAll(users);
+            Function<Long, URI> locations = userDtoModelAssembler.toLocations();
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                results[indexes.get(i)] = new UserBatchResultDto(indexes.get(i), HttpStatus.CREATED.value(), id, locations.apply(id), null);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public UserDto update(Long id, UserRequestDto userRequestDto, LongPredicate version) {
+        Set<ConstraintViolation<UserRequestDto>> violations = validate(userRequestDto);
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
         }
 
         User user = new User(id, userRequestDto.email(), userRequestDto.firstName(), userRequestDto.lastName(), userRequestDto.birthDate(), userRequestDto.address(), userRequestDto.phoneNumber());
-        return userDtoModelAssembler.toModel(userRepository.update(user));
+        User updated = userRepository.update(user, version);
+        userResponseCache.invalidate(id);
+        return userDtoModelAssembler.toModel(updated);
     }
 
     @Override
-    public UserDto partialUpdate(Long id, UserRequestDto userRequestDto) {
-        User user = userRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(id));
-        Set<ConstraintViolation<UserRequestDto>> violations = new HashSet<>();
+    public List<UserBatchResultDto> updateAll(List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos) {
+        requireBatchSize(userBatchUpdateRequestDtos);
+
+        UserBatchResultDto[] results = new UserBatchResultDto[userBatchUpdateRequestDtos.size()];
+        List<User> users = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for (int i = 0; i < userBatchUpdateRequestDtos.size(); i++) {
+            UserBatchUpdateRequestDto item = userBatchUpdateRequestDtos.get(i);
+            if (item == null || item.id() == null) {
+                results[i] = new UserBatchResultDto(i, HttpStatus.BAD_REQUEST.value(), null, null, "Missing id");
+                continue;
+            }
+
+            UserRequestDto userRequestDto = item.user();
+            String violations = validateBatchItem(userRequestDto);
+            if (violations != null) {
+                results[i] = new UserBatchResultDto(i, HttpStatus.BAD_REQUEST.value(), item.id(), null, violations);
+                continue;
+            }
+
+            indexes.add(i);
+            users.add(new User(item.id(), userRequestDto.email(), userRequestDto.firstName(), userRequestDto.lastName(), userRequestDto.birthDate(), userRequestDto.address(), userRequestDto.phoneNumber()));
+        }
+
+        if (!users.isEmpty()) {
+            List<User> updated = userRepository.updateAll(users);
+            Function<Long, URI> locations = userDtoModelAssembler.toLocations();
+            for (int i = 0; i < updated.size(); i++) {
+                Long id = updated.get(i).getId();
+                userResponseCache.invalidate(id);
+                results[indexes.get(i)] = new UserBatchResultDto(indexes.get(i), HttpStatus.OK.value(), id, locations.apply(id), null);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public UserDto partialUpdate(Long id, UserRequestDto userRequestDto, LongPredicate version) {
+        Set<ConstraintViolation<UserRequestDto>> violations = validatePresent(userRequestDto);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        User updated = userRepository.compute(id, existing -> {
+            if (!version.test(existing.getVersion())) {
+                throw new PreconditionFailedException(id);
+            }
+            return merge(existing, userRequestDto);
+        }).orElseThrow(() -> new EntityNotFoundException(id));
+        userResponseCache.invalidate(id);
+        return userDtoModelAssembler.toModel(updated);
+    }
 
+    @Override
+    public void delete(Long id) {
+        userRepository.delete(id).orElseThrow(() -> new EntityNotFoundException(id));
+        userResponseCache.invalidate(id);
+    }
+
+    // Published while the repository holds the lock of the write, so the events of a user keep the order of its writes.
+    // Updates of a missing user store it under the given id and count as created.
+    private void publish(Long id, User previous, User stored) {
+        UserEvent.Type type = previous == null ? UserEvent.Type.CREATED : stored == null ? UserEvent.Type.DELETED : UserEvent.Type.UPDATED;
+        userEventBuffer.publish(type, id, stored);
+    }
+
+    private Set<ConstraintViolation<UserRequestDto>> validate(UserRequestDto userRequestDto) {
+        return validationTimer.record(() -> userRequestValidator.validate(userRequestDto));
+    }
+
+    private Set<ConstraintViolation<UserRequestDto>> validatePresent(UserRequestDto userRequestDto) {
+        return validationTimer.record(() -> userRequestValidator.validatePresent(userRequestDto));
+    }
+
+    private static User merge(User existing, UserRequestDto userRequestDto) {
+        User.UserBuilder user = existing.toBuilder();
         if (userRequestDto.email() != null) {
-            violations.addAll(validator.validateProperty(userRequestDto, "email"));
-            user.setEmail(userRequestDto.email());
+            user.email(userRequestDto.email());
         }
         if (userRequestDto.firstName() != null) {
-            violations.addAll(validator.validateProperty(userRequestDto, "firstName"));
-            user.setFirstName(userRequestDto.firstName());
+            user.firstName(userRequestDto.firstName());
         }
         if (userRequestDto.lastName() != null) {
-            violations.addAll(validator.validateProperty(userRequestDto, "lastName"));
-            user.setLastName(userRequestDto.lastName());
+            user.lastName(userRequestDto.lastName());
         }
         if (userRequestDto.birthDate() != null) {
-            violations.addAll(validator.validateProperty(userRequestDto, "birthDate"));
-            user.setBirthDate(userRequestDto.birthDate());
+            user.birthDate(userRequestDto.birthDate());
         }
         if (userRequestDto.address() != null) {
-            validator.validateProperty(userRequestDto, "address");
-            user.setAddress(userRequestDto.address());
+            user.address(userRequestDto.address());
         }
         if (userRequestDto.phoneNumber() != null) {
-            validator.validateProperty(userRequestDto, "phoneNumber");
-            user.setPhoneNumber(userRequestDto.phoneNumber());
+            user.phoneNumber(userRequestDto.phoneNumber());
         }
 
-        if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(violations);
+        return user.build();
+    }
+
+    private String validateBatchItem(UserRequestDto userRequestDto) {
+        if (userRequestDto == null) {
+            return "Missing user";
         }
 
-        return userDtoModelAssembler.toModel(userRepository.update(user));
+        Set<ConstraintViolation<UserRequestDto>> violations = validate(userRequestDto);
+        return violations.isEmpty() ? null : new ConstraintViolationException(violations).getMessage();
     }
 
-    @Override
-    public void delete(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new EntityNotFoundException(id);
+    private static void requireBatchSize(List<?> items) {
+        if (items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+            throw new RequestParameterNotValidException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
         }
+    }
+
+    private List<User> findUsers(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null && endDate == null) {
+            return userRepository.findAll();
+        }
+
+        List<User> users;
+
+        if (startDate != null && endDate == null) {
+            users = userRepository.findByBirthDateAfter(startDate);
+        } else if (startDate == null) {
+            users = userRepository.findByBirthDateBefore(endDate);
+        }
+        else if (startDate.isAfter(endDate)) {
+            throw new RequestParameterNotValidException("Invalid date range");
+        }
+        else {
+            users = userRepository.findByBirthDateBetween(startDate, endDate);
+        }
+
+        rangeResultSize.record(users.size());
+        return users;
+    }
+
+    private static Set<UserField> parseFields(String fields) {
+        Set<UserField> selected = EnumSet.noneOf(UserField.class);
+        for (String field : fields.split(",")) {
+            selected.add(UserField.of(field.strip()).orElseThrow(() -> new RequestParameterNotValidException("Unknown field " + field.strip())));
+        }
+
+        return selected;
+    }
+
+    // Empty for a mark issued before a restart or by another instance.
+    private OptionalLong parseMark(String mark) {
+        if (mark.equals("0")) {
+            return OptionalLong.of(0);
+        }
+
+        int separator = mark.lastIndexOf(MARK_SEPARATOR);
+        if (separator <= 0) {
+            throw new RequestParameterNotValidException("Invalid mark " + mark);
+        }
+        try {
+            long sequence = Long.parseLong(mark.substring(separator + 1));
+            return mark.substring(0, separator).equals(epoch) ? OptionalLong.of(sequence) : OptionalLong.empty();
+        } catch (NumberFormatException e) {
+            throw new RequestParameterNotValidException("Invalid mark " + mark);
+        }
+    }
+
+    private static UserCursor parseCursor(String cursor, boolean byBirthDate, boolean backward) {
+        try {
+            if (!byBirthDate) {
+                return new UserCursor(Long.valueOf(cursor), null, backward);
+            }
+
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            return new UserCursor(Long.valueOf(cursor.substring(separator + 1)), LocalDate.parse(cursor.substring(0, Math.max(separator, 0))), backward);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new RequestParameterNotValidException("Invalid cursor " + cursor);
+        }
+    }
 
-        userRepository.delete(id);
+    private static String formatCursor(User user, boolean byBirthDate) {
+        return byBirthDate ? user.getBirthDate() + CURSOR_SEPARATOR + user.getId() : String.valueOf(user.getId());
     }
 }
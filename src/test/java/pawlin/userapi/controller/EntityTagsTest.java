@@ -0,0 +1,82 @@
+package pawlin.userapi.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityTagsTest {
+    @Test
+    void shouldFormatStrongTag() {
+        // when
+        // then
+        assertEquals("\"3\"", EntityTags.of(3));
+    }
+
+    @Test
+    void shouldMatchListedVersions() {
+        // when
+        LongPredicate version = EntityTags.ifMatch("\"1\", \"3\"");
+
+        // then
+        assertTrue(version.test(1));
+        assertTrue(version.test(3));
+        assertFalse(version.test(2));
+    }
+
+    @Test
+    void shouldMatchAnyExistingVersionForWildcard() {
+        // when
+        LongPredicate version = EntityTags.ifMatch("*");
+
+        // then
+        assertTrue(version.test(5));
+        assertFalse(version.test(0));
+    }
+
+    @Test
+    void shouldNotMatchWeakOrMalformedTags() {
+        // when
+        LongPredicate version = EntityTags.ifMatch("W/\"1\", \"x\", 1");
+
+        // then
+        assertFalse(version.test(1));
+    }
+
+    @Test
+    void shouldMatchAnyVersionWithoutHeader() {
+        // when
+        // then
+        assertSame(EntityTags.ANY_VERSION, EntityTags.ifMatch(null));
+    }
+
+    @Test
+    void shouldFormatRepresentationTag() {
+        // when
+        // then
+        assertEquals("\"3\"", EntityTags.of(3, ""));
+        assertEquals("\"3-cbor\"", EntityTags.of(3, "cbor"));
+    }
+
+    @Test
+    void shouldMatchVersionOfAnyRepresentation() {
+        // when
+        LongPredicate version = EntityTags.ifMatch("\"1-cbor\", \"3-json-fields3\", \"-\"");
+
+        // then
+        assertTrue(version.test(1));
+        assertTrue(version.test(3));
+        assertFalse(version.test(2));
+    }
+
+    @Test
+    void shouldMatchWeakTagsForIfNoneMatch() {
+        // when
+        // then
+        assertTrue(EntityTags.ifNoneMatch(List.of("\"1\"", "W/\"3-cbor\""), "\"3-cbor\""));
+        assertTrue(EntityTags.ifNoneMatch(List.of("*"), "\"3\""));
+        assertFalse(EntityTags.ifNoneMatch(List.of("\"3\""), "\"3-cbor\""));
+    }
+}
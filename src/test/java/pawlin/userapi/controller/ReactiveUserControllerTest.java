@@ -0,0 +1,109 @@
+package pawlin.userapi.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import pawlin.userapi.dto.UserRequestDto;
+
+import java.time.LocalDate;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+class ReactiveUserControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void shouldCreateAndGetUsers() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto("john@example.com", "John", "Smith", LocalDate.of(1990, 1, 1), "Main Street", "+380000000000");
+
+        // when
+        String location = webTestClient.post().uri("/api/users").bodyValue(userRequestDto)
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getLocation().toString();
+
+        // then
+        webTestClient.get().uri(location)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("john@example.com")
+                .jsonPath("$._links.self.href").isEqualTo(location);
+        webTestClient.get().uri("/api/users?startDate=1989-01-01&endDate=1990-01-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[?(@.email == 'john@example.com')]._links.self.href").isEqualTo(location);
+    }
+
+    @Test
+    void shouldNotGetMissingUser() {
+        // when
+        // then
+        webTestClient.get().uri("/api/users/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Could not find entity with id " + Long.MAX_VALUE);
+    }
+
+    @Test
+    void shouldNotGetAllWithInvalidDateRange() {
+        // when
+        // then
+        webTestClient.get().uri("/api/users?startDate=2000-01-01&endDate=1990-01-01")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldNotCreateInvalidUser() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto("not an email", "John", "Smith", LocalDate.of(1990, 1, 1), null, null);
+
+        // when
+        // then
+        webTestClient.post().uri("/api/users").bodyValue(userRequestDto)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldUseEntityTags() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto("jane@example.com", "Jane", "Smith", LocalDate.of(1990, 1, 1), null, null);
+        String location = webTestClient.post().uri("/api/users").bodyValue(userRequestDto)
+                .exchange()
+                .expectStatus().isCreated()
+                .returnResult(Void.class).getResponseHeaders().getLocation().toString();
+
+        // when
+        // then
+        webTestClient.get().uri(location)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+        webTestClient.get().uri(location).header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        webTestClient.patch().uri(location).header(HttpHeaders.IF_MATCH, "\"1\"").bodyValue(new UserRequestDto(null, "Janet", null, null, null, null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"");
+        webTestClient.put().uri(location).header(HttpHeaders.IF_MATCH, "\"1\"").bodyValue(userRequestDto)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient.get().uri(location).header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("Janet");
+    }
+}
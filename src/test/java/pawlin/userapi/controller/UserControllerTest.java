@@ -6,25 +6,49 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserBatchResultDto;
+import pawlin.userapi.dto.UserBatchUpdateRequestDto;
+import pawlin.userapi.dto.UserChangesDto;
 import pawlin.userapi.dto.UserDto;
 import pawlin.userapi.dto.UserRequestDto;
+import pawlin.userapi.dto.mapper.SerializedUserHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserNdjsonWriter;
+import pawlin.userapi.model.User;
 import pawlin.userapi.service.UserService;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 class UserControllerTest {
     @Mock
     private UserService userService;
+    @Mock
+    private UserNdjsonWriter userNdjsonWriter;
+    @Mock
+    private UserEventStreams userEventStreams;
     @InjectMocks
     private UserController userController;
 
@@ -61,15 +85,61 @@ class UserControllerTest {
     @Test
     void shouldGetOne() {
         // given
-        given(userService.findById(1L)).willReturn(new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+        byte[] body = "{\"id\":1}".getBytes();
+        given(userService.findSerializedById(1L)).willReturn(new SerializedUserDto(3, body));
 
         // when
-        ResponseEntity<UserDto> response = userController.getOne(1L);
+        ResponseEntity<SerializedUserDto> response = userController.getOne(1L);
+
+        // then
+        assertSame(body, response.getBody().body());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void shouldGetChanges() {
+        // given
+        UserChangesDto changes = new UserChangesDto("epoch-3", false, false, List.of(), List.of(2L));
+        given(userService.findChanges("epoch-1", 100)).willReturn(changes);
+
+        // when
+        ResponseEntity<UserChangesDto> response = userController.changes("epoch-1", 100);
 
         // then
-        assertNotNull(response.getBody());
-        assertEquals(1L, response.getBody().getId());
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(changes, response.getBody());
+    }
+
+    @Test
+    void shouldSubscribeToEvents() {
+        // given
+        SseEmitter emitter = new SseEmitter();
+        given(userEventStreams.subscribe("id-1")).willReturn(emitter);
+
+        // when
+        SseEmitter response = userController.events("id-1");
+
+        // then
+        assertSame(emitter, response);
+    }
+
+    @Test
+    void shouldNegotiateOneUserWithHalAsDefault() throws Exception {
+        // given
+        byte[] body = "{\"id\":1,\"_links\":{\"self\":{\"href\":\"/api/users/1\"}}}".getBytes(StandardCharsets.UTF_8);
+        given(userService.findSerializedById(1L)).willReturn(new SerializedUserDto(3, body));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(userController).setMessageConverters(new SerializedUserHttpMessageConverter()).build();
+
+        // when
+        // then
+        mockMvc.perform(get("/api/users/1")).andExpect(content().contentType(MediaTypes.HAL_JSON)).andExpect(content().bytes(body));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.ALL)).andExpect(content().contentType(MediaTypes.HAL_JSON));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_JSON)).andExpect(content().contentType(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.ACCEPT, "application/x-jackson-smile;q=0, */*"))
+                .andExpect(content().contentType(MediaTypes.HAL_JSON));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_XML)).andExpect(status().isNotAcceptable());
     }
 
     @Test
@@ -91,10 +161,11 @@ class UserControllerTest {
         // given
         UserRequestDto userRequestDto = new UserRequestDto("email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
         UserDto userDto = new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
-        given(userService.update(1L, userRequestDto)).willReturn(userDto);
+        userDto.setVersion(2);
+        given(userService.update(1L, userRequestDto, EntityTags.ANY_VERSION)).willReturn(userDto);
 
         // when
-        ResponseEntity<UserDto> response = userController.update(1L, userRequestDto);
+        ResponseEntity<UserDto> response = userController.update(1L, userRequestDto, null);
 
         // then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -106,10 +177,10 @@ class UserControllerTest {
         // given
         UserRequestDto userRequestDto = new UserRequestDto(null, "newFirstName", null, null, null, null);
         UserDto userDto = new UserDto(1L, "email", "newFirstName", "lastName", LocalDate.now(), "address", "phoneNumber");
-        given(userService.partialUpdate(1L, userRequestDto)).willReturn(userDto);
+        given(userService.partialUpdate(1L, userRequestDto, EntityTags.ANY_VERSION)).willReturn(userDto);
 
         // when
-        ResponseEntity<UserDto> response = userController.partialUpdate(1L, userRequestDto);
+        ResponseEntity<UserDto> response = userController.partialUpdate(1L, userRequestDto, null);
 
         // then
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -127,4 +198,107 @@ class UserControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(userService).delete(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGetPage() {
+        // given
+        given(userService.findPage(null, null, 1, "5", null)).willReturn(CollectionModel.of(List.of(new UserDto(6L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"))));
+
+        // when
+        ResponseEntity<CollectionModel<UserDto>> response = userController.getPage(null, null, 1, "5", null);
+
+        // then
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getContent().size());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void shouldExport() throws Exception {
+        // given
+        Stream<User> users = Stream.of(new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+        given(userService.export(null, null)).willReturn(users);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        ResponseEntity<StreamingResponseBody> response = userController.export(null, null);
+        assertNotNull(response.getBody());
+        response.getBody().writeTo(outputStream);
+
+        // then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        verify(userNdjsonWriter).write(users, outputStream);
+    }
+
+    @Test
+    void shouldCreateAll() {
+        // given
+        List<UserRequestDto> userRequestDtos = List.of(new UserRequestDto("email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+        List<UserBatchResultDto> results = List.of(new UserBatchResultDto(0, 201, 1L, null, null));
+        given(userService.createAll(userRequestDtos)).willReturn(results);
+
+        // when
+        ResponseEntity<List<UserBatchResultDto>> response = userController.createAll(userRequestDtos);
+
+        // then
+        assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+        assertEquals(results, response.getBody());
+    }
+
+    @Test
+    void shouldUpdateAll() {
+        // given
+        List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos = List.of(new UserBatchUpdateRequestDto(1L, new UserRequestDto("email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber")));
+        List<UserBatchResultDto> results = List.of(new UserBatchResultDto(0, 200, 1L, null, null));
+        given(userService.updateAll(userBatchUpdateRequestDtos)).willReturn(results);
+
+        // when
+        ResponseEntity<List<UserBatchResultDto>> response = userController.updateAll(userBatchUpdateRequestDtos);
+
+        // then
+        assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+        assertEquals(results, response.getBody());
+    }
+
+    @Test
+    void shouldGetByEmail() {
+        // given
+        given(userService.findByEmail("email")).willReturn(CollectionModel.of(List.of(new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"))));
+
+        // when
+        ResponseEntity<CollectionModel<UserDto>> response = userController.getByEmail("email");
+
+        // then
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getContent().size());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void shouldSearch() {
+        // given
+        given(userService.search("first", 10)).willReturn(CollectionModel.of(List.of(new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"))));
+
+        // when
+        ResponseEntity<CollectionModel<UserDto>> response = userController.search("first", 10);
+
+        // then
+        assertNotNull(response.getBody());
+        assertEquals(1, response.getBody().getContent().size());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+
+    @Test
+    void shouldGetOneWithFields() {
+        // given
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        given(userService.findSerializedById(1L, "id")).willReturn(new SerializedUserDto(2, body));
+
+        // when
+        ResponseEntity<SerializedUserDto> response = userController.getOneFields(1L, "id");
+
+        // then
+        assertSame(body, response.getBody().body());
+    }
+}
@@ -0,0 +1,92 @@
+package pawlin.userapi.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.mapper.SerializedUserHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserModelHttpMessageConverter;
+import pawlin.userapi.dto.mapper.UserNdjsonWriter;
+import pawlin.userapi.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class UserEntityTagAdviceTest {
+    @Mock
+    private UserService userService;
+    @Mock
+    private UserNdjsonWriter userNdjsonWriter;
+    @Mock
+    private UserEventStreams userEventStreams;
+    @InjectMocks
+    private UserController userController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new UserEntityTagAdvice())
+                .setMessageConverters(new SerializedUserHttpMessageConverter())
+                .build();
+    }
+
+    @Test
+    void shouldTagEachRepresentation() throws Exception {
+        // given
+        given(userService.findSerializedById(1L)).willReturn(new SerializedUserDto(3, "{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        // then
+        mockMvc.perform(get("/api/users/1")).andExpect(header().string(HttpHeaders.ETAG, "\"3\"")).andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_JSON)).andExpect(header().string(HttpHeaders.ETAG, "\"3-json\""));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR)).andExpect(header().string(HttpHeaders.ETAG, "\"3-cbor\""));
+        mockMvc.perform(get("/api/users/1").accept(UserModelHttpMessageConverter.APPLICATION_SMILE)).andExpect(header().string(HttpHeaders.ETAG, "\"3-x-jackson-smile\""));
+    }
+
+    @Test
+    void shouldTagFieldSelectionWhateverItsOrder() throws Exception {
+        // given
+        given(userService.findSerializedById(eq(1L), anyString())).willReturn(new SerializedUserDto(3, "{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        // then
+        mockMvc.perform(get("/api/users/1").param("fields", "id,email")).andExpect(header().string(HttpHeaders.ETAG, "\"3-fields3\""));
+        mockMvc.perform(get("/api/users/1").param("fields", "email, id")).andExpect(header().string(HttpHeaders.ETAG, "\"3-fields3\""));
+        mockMvc.perform(get("/api/users/1").param("fields", "id").accept(MediaType.APPLICATION_JSON)).andExpect(header().string(HttpHeaders.ETAG, "\"3-json-fields1\""));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedOnlyForTagOfSameRepresentation() throws Exception {
+        // given
+        given(userService.findSerializedById(1L)).willReturn(new SerializedUserDto(3, "{\"id\":1}".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        // then
+        mockMvc.perform(get("/api/users/1").accept(MediaTypes.HAL_JSON).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, "\"3\"")).andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk()).andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+        mockMvc.perform(get("/api/users/1").accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, "W/\"3-cbor\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk());
+    }
+}
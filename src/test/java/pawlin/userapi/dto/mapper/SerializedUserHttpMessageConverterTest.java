@@ -0,0 +1,69 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserDto;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializedUserHttpMessageConverterTest {
+    private final SerializedUserHttpMessageConverter converter = new SerializedUserHttpMessageConverter();
+
+    @Test
+    void shouldWriteHalAsIs() throws IOException {
+        // given
+        byte[] body = "{\"id\":1}".getBytes();
+
+        // when
+        MockHttpOutputMessage message = write(new SerializedUserDto(1, body), MediaTypes.HAL_JSON);
+
+        // then
+        assertArrayEquals(body, message.getBodyAsBytes());
+        assertEquals(body.length, message.getHeaders().getContentLength());
+    }
+
+    @Test
+    void shouldWriteSameDocumentAsModelConverterInBinaryEncodings() throws IOException {
+        // given
+        UserDto user = new UserDto(1L, "email", "firstName", null, LocalDate.of(2000, 1, 1), null, "phoneNumber");
+        user.add(Link.of("/api/users/1"));
+        UserModelHttpMessageConverter modelConverter = new UserModelHttpMessageConverter(new ObjectMapper());
+        MockHttpOutputMessage hal = new MockHttpOutputMessage();
+        modelConverter.write(user, MediaTypes.HAL_JSON, hal);
+        SerializedUserDto serialized = new SerializedUserDto(1, hal.getBodyAsBytes());
+
+        // when
+        byte[] cbor = write(serialized, MediaType.APPLICATION_CBOR).getBodyAsBytes();
+        byte[] smile = write(serialized, UserModelHttpMessageConverter.APPLICATION_SMILE).getBodyAsBytes();
+
+        // then
+        MockHttpOutputMessage modelCbor = new MockHttpOutputMessage();
+        modelConverter.write(user, MediaType.APPLICATION_CBOR, modelCbor);
+        assertEquals(new CBORMapper().readTree(modelCbor.getBodyAsBytes()), new CBORMapper().readTree(cbor));
+        assertEquals(new ObjectMapper().readTree(hal.getBodyAsBytes()), new SmileMapper().readTree(smile));
+    }
+
+    @Test
+    void shouldOnlyWriteSerializedUsers() {
+        assertTrue(converter.canWrite(SerializedUserDto.class, UserModelHttpMessageConverter.APPLICATION_SMILE));
+        assertFalse(converter.canWrite(SerializedUserDto.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canWrite(UserDto.class, MediaTypes.HAL_JSON));
+        assertFalse(converter.canRead(SerializedUserDto.class, MediaType.APPLICATION_JSON));
+    }
+
+    private MockHttpOutputMessage write(SerializedUserDto user, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(user, mediaType, message);
+        return message;
+    }
+}
@@ -2,13 +2,22 @@ package pawlin.userapi.dto.mapper;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import pawlin.userapi.controller.UserController;
 import pawlin.userapi.dto.UserDto;
 import pawlin.userapi.model.User;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 class UserDtoModelAssemblerTest {
     private final UserDtoModelAssembler userDtoModelAssembler = new UserDtoModelAssembler();
@@ -39,4 +48,87 @@ class UserDtoModelAssemblerTest {
         assertEquals(1, result.getContent().size());
         assertTrue(result.getContent().contains(userDto));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldMapToPagedModelWithNextAndPrevLinks() {
+        // given
+        User user = new User(2L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+
+        // when
+        CollectionModel<UserDto> result = userDtoModelAssembler.toPagedModel(List.of(user), null, null, 1, "2", "2");
+
+        // then
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.getRequiredLink(IanaLinkRelations.NEXT).getHref().endsWith("/api/users?limit=1&after=2"));
+        assertTrue(result.getRequiredLink(IanaLinkRelations.PREV).getHref().endsWith("/api/users?limit=1&before=2"));
+    }
+
+    @Test
+    void shouldMapToPagedModelWithDateRange() {
+        // given
+        User user = new User(2L, "email", "firstName", "lastName", LocalDate.of(2000, 1, 1), "address", "phoneNumber");
+
+        // when
+        CollectionModel<UserDto> result = userDtoModelAssembler.toPagedModel(List.of(user), LocalDate.of(1990, 1, 1), null, 1, "2000-01-01_2", null);
+
+        // then
+        assertTrue(result.getRequiredLink(IanaLinkRelations.NEXT).getHref().endsWith("/api/users?startDate=1990-01-01&limit=1&after=2000-01-01_2"));
+        assertFalse(result.getLink(IanaLinkRelations.PREV).isPresent());
+    }
+
+    @Test
+    void shouldMapToLocations() {
+        // when
+        Function<Long, URI> locations = userDtoModelAssembler.toLocations();
+
+        // then
+        assertEquals(linkTo(methodOn(UserController.class).getOne(5L)).toUri(), locations.apply(5L));
+        assertEquals(linkTo(methodOn(UserController.class).getOne(6L)).toUri(), locations.apply(6L));
+    }
+
+    @Test
+    void shouldBuildSameLinksAsMethodOnWithinRequest() {
+        // given
+        User user = new User(7L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setScheme("https");
+        request.setServerName("users.example.com");
+        request.setServerPort(8443);
+        request.setContextPath("/context");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        try {
+            // when
+            UserDto model = userDtoModelAssembler.toModel(user);
+            CollectionModel<UserDto> collection = userDtoModelAssembler.toCollectionModel(List.of(user));
+
+            // then
+            assertEquals(linkTo(methodOn(UserController.class).getOne(7L)).withSelfRel().toString(), model.getRequiredLink(IanaLinkRelations.SELF).toString());
+            assertEquals(linkTo(methodOn(UserController.class).getOne(7L)).withSelfRel().toString(), collection.getContent().iterator().next().getRequiredLink(IanaLinkRelations.SELF).toString());
+            assertEquals(linkTo(UserController.class).withSelfRel().toString(), collection.getRequiredLink(IanaLinkRelations.SELF).toString());
+            assertEquals("https://users.example.com:8443/context/api/users/7", model.getRequiredLink(IanaLinkRelations.SELF).getHref());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void shouldNotKeepLinksOfOneRequestForCallsOutsideOfIt() {
+        // given
+        User user = new User(7L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName("users.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            userDtoModelAssembler.toModel(user);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        // when
+        UserDto model = userDtoModelAssembler.toModel(user);
+
+        // then
+        assertEquals(linkTo(methodOn(UserController.class).getOne(7L)).withSelfRel().toString(), model.getRequiredLink(IanaLinkRelations.SELF).toString());
+    }
+}
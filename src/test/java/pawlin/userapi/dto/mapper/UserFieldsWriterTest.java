@@ -0,0 +1,54 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.dto.UserField;
+import pawlin.userapi.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserFieldsWriterTest {
+    private final UserFieldsWriter userFieldsWriter = new UserFieldsWriter(new ObjectMapper(), new UserDtoModelAssembler());
+
+    @Test
+    void shouldWriteOnlySelectedFields() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.of(2000, 1, 1), "address", null);
+
+        // when
+        byte[] body = userFieldsWriter.write(user, EnumSet.of(UserField.FIRST_NAME, UserField.ID, UserField.PHONE_NUMBER));
+
+        // then
+        assertEquals("{\"id\":1,\"firstName\":\"firstName\"}", new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteCollectionWithLinks() {
+        // given
+        User user1 = new User(1L, "email1", "firstName", "lastName", LocalDate.of(2000, 1, 1), "address", "phoneNumber");
+        User user2 = new User(2L, "email2", "firstName", "lastName", null, null, null);
+
+        // when
+        byte[] body = userFieldsWriter.write(List.of(user1, user2), EnumSet.of(UserField.EMAIL, UserField.BIRTH_DATE, UserField.LINKS));
+
+        // then
+        assertEquals("{\"_embedded\":{\"users\":["
+                + "{\"email\":\"email1\",\"birthDate\":\"2000-01-01\",\"_links\":{\"self\":{\"href\":\"/api/users/1\"}}},"
+                + "{\"email\":\"email2\",\"_links\":{\"self\":{\"href\":\"/api/users/2\"}}}"
+                + "]},\"_links\":{\"self\":{\"href\":\"/api/users\"}}}", new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteEmptyCollectionWithoutLinks() {
+        // when
+        byte[] body = userFieldsWriter.write(List.of(), EnumSet.of(UserField.ID));
+
+        // then
+        assertEquals("{}", new String(body, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,91 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import pawlin.userapi.dto.UserDto;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserModelHttpMessageConverterTest {
+    private static final Type USER_COLLECTION = ResolvableType.forClassWithGenerics(CollectionModel.class, UserDto.class).getType();
+
+    private final UserModelHttpMessageConverter converter = new UserModelHttpMessageConverter(new ObjectMapper());
+
+    @Test
+    void shouldWriteHalCollection() throws IOException {
+        // given
+        CollectionModel<UserDto> model = CollectionModel.of(List.of(user(1L, LocalDate.of(2000, 1, 1)), user(2L, null)), Link.of("/api/users"), Link.of("/api/users?after=2", IanaLinkRelations.NEXT));
+
+        // when
+        MockHttpOutputMessage message = write(model, MediaTypes.HAL_JSON);
+
+        // then
+        assertEquals(MediaTypes.HAL_JSON, message.getHeaders().getContentType());
+        assertEquals("{\"_embedded\":{\"users\":["
+                + "{\"id\":1,\"email\":\"email1\",\"firstName\":\"firstName\",\"birthDate\":\"2000-01-01\",\"_links\":{\"self\":{\"href\":\"/api/users/1\"}}},"
+                + "{\"id\":2,\"email\":\"email2\",\"firstName\":\"firstName\",\"_links\":{\"self\":{\"href\":\"/api/users/2\"}}}"
+                + "]},\"_links\":{\"self\":{\"href\":\"/api/users\"},\"next\":{\"href\":\"/api/users?after=2\"}}}", message.getBodyAsString());
+    }
+
+    @Test
+    void shouldWriteEmptyCollectionWithoutEmbedded() throws IOException {
+        // when
+        MockHttpOutputMessage message = write(CollectionModel.of(List.<UserDto>of(), Link.of("/api/users")), MediaType.APPLICATION_JSON);
+
+        // then
+        assertEquals("{\"_links\":{\"self\":{\"href\":\"/api/users\"}}}", message.getBodyAsString());
+    }
+
+    @Test
+    void shouldWriteSameDocumentInBinaryEncodings() throws IOException {
+        // given
+        CollectionModel<UserDto> model = CollectionModel.of(List.of(user(1L, LocalDate.of(2000, 1, 1))), Link.of("/api/users"));
+        JsonNode json = new ObjectMapper().readTree(write(model, MediaTypes.HAL_JSON).getBodyAsBytes());
+
+        // when
+        byte[] cbor = write(model, MediaType.APPLICATION_CBOR).getBodyAsBytes();
+        byte[] smile = write(model, UserModelHttpMessageConverter.APPLICATION_SMILE).getBodyAsBytes();
+
+        // then
+        assertEquals(json, new CBORMapper().readTree(cbor));
+        assertEquals(json, new SmileMapper().readTree(smile));
+    }
+
+    @Test
+    void shouldOnlyWriteUserModels() {
+        assertTrue(converter.canWrite(USER_COLLECTION, CollectionModel.class, MediaType.APPLICATION_CBOR));
+        assertTrue(converter.canWrite(UserDto.class, UserDto.class, UserModelHttpMessageConverter.APPLICATION_SMILE));
+        assertFalse(converter.canWrite(ResolvableType.forClassWithGenerics(CollectionModel.class, String.class).getType(), CollectionModel.class, MediaTypes.HAL_JSON));
+        assertFalse(converter.canWrite(ResolvableType.forClassWithGenerics(PagedModel.class, UserDto.class).getType(), PagedModel.class, MediaTypes.HAL_JSON));
+        assertFalse(converter.canWrite(UserDto.class, UserDto.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canRead(UserDto.class, MediaType.APPLICATION_JSON));
+    }
+
+    private MockHttpOutputMessage write(CollectionModel<UserDto> model, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(model, USER_COLLECTION, mediaType, message);
+        return message;
+    }
+
+    private static UserDto user(Long id, LocalDate birthDate) {
+        UserDto user = new UserDto(id, "email" + id, "firstName", null, birthDate, null, null);
+        user.add(Link.of("/api/users/" + id));
+        return user;
+    }
+}
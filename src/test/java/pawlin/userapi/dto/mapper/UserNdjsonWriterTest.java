@@ -0,0 +1,45 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserNdjsonWriterTest {
+    private final UserNdjsonWriter userNdjsonWriter = new UserNdjsonWriter(new ObjectMapper());
+
+    @Test
+    void shouldWriteOneUserPerLine() throws Exception {
+        // given
+        User user1 = new User(1L, "email", "firstName", "lastName", LocalDate.of(2000, 1, 1), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", LocalDate.of(2000, 1, 2), null, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        userNdjsonWriter.write(Stream.of(user1, user2), outputStream);
+
+        // then
+        assertEquals("""
+                {"id":1,"email":"email","firstName":"firstName","lastName":"lastName","birthDate":"2000-01-01","address":"address","phoneNumber":"phoneNumber"}
+                {"id":2,"email":"email","firstName":"firstName","lastName":"lastName","birthDate":"2000-01-02"}
+                """, outputStream.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteNothingForEmptyStream() throws Exception {
+        // given
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        userNdjsonWriter.write(Stream.empty(), outputStream);
+
+        // then
+        assertEquals(0, outputStream.size());
+    }
+}
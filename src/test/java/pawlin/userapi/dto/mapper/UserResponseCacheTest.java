@@ -0,0 +1,83 @@
+package pawlin.userapi.dto.mapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import pawlin.userapi.configuration.ResponseCacheProperties;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger assembled = new AtomicInteger();
+    private final Function<User, UserDto> assembler = user -> {
+        assembled.incrementAndGet();
+        return new UserDto(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(), null, null, null);
+    };
+
+    @Test
+    void shouldServeCachedBytesForSameVersion() {
+        // given
+        UserResponseCache userResponseCache = cache(DataSize.ofMegabytes(1));
+        User user = new User(1L, "email", "firstName", "lastName", null, null, null).withVersion(1);
+
+        // when
+        SerializedUserDto first = userResponseCache.get(user, assembler);
+        SerializedUserDto second = userResponseCache.get(user, assembler);
+
+        // then
+        assertEquals("{\"id\":1,\"email\":\"email\",\"firstName\":\"firstName\",\"lastName\":\"lastName\",\"links\":[]}", new String(first.body(), StandardCharsets.UTF_8));
+        assertSame(first.body(), second.body());
+        assertEquals(1, second.version());
+        assertEquals(1, assembled.get());
+        assertEquals(1, meterRegistry.get("user.response.cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("user.response.cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void shouldRenderAgainForNewVersionOrAfterInvalidation() {
+        // given
+        UserResponseCache userResponseCache = cache(DataSize.ofMegabytes(1));
+        User user = new User(1L, "email", "firstName", "lastName", null, null, null).withVersion(1);
+        userResponseCache.get(user, assembler);
+
+        // when
+        SerializedUserDto updated = userResponseCache.get(user.toBuilder().firstName("updated").build().withVersion(2), assembler);
+        userResponseCache.invalidate(1L);
+        userResponseCache.get(user.withVersion(2), assembler);
+
+        // then
+        assertEquals(2, updated.version());
+        assertTrue(new String(updated.body(), StandardCharsets.UTF_8).contains("\"firstName\":\"updated\""));
+        assertEquals(3, assembled.get());
+        assertEquals(3, meterRegistry.get("user.response.cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void shouldEvictToStayWithinSize() {
+        // given
+        UserResponseCache userResponseCache = cache(DataSize.ofKilobytes(1));
+
+        // when
+        for (long id = 1; id <= 100; id++) {
+            userResponseCache.get(new User(id, "email", "firstName", "lastName", null, null, null), assembler);
+        }
+
+        // then
+        assertTrue(meterRegistry.get("user.response.cache.evictions").counter().count() > 0);
+        assertTrue(meterRegistry.get("user.response.cache.size").gauge().value() <= 1024);
+    }
+
+    private UserResponseCache cache(DataSize maximumSize) {
+        return new UserResponseCache(new ObjectMapper(), new ResponseCacheProperties(maximumSize), meterRegistry, Runnable::run);
+    }
+}
@@ -0,0 +1,57 @@
+package pawlin.userapi.dto.validation;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.configuration.UserProperties;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalAgeCutoffTest {
+    @Test
+    void shouldMoveCutoffAtDayRollover() {
+        // given
+        MutableClock clock = new MutableClock(LocalDate.of(2024, 3, 1).atTime(23, 59).toInstant(ZoneOffset.UTC));
+        LegalAgeCutoff legalAgeCutoff = new LegalAgeCutoff(new UserProperties(18), clock);
+        LocalDate birthDate = LocalDate.of(2006, 3, 2);
+
+        // when
+        boolean beforeMidnight = legalAgeCutoff.isLegal(birthDate);
+        clock.instant = clock.instant.plus(Duration.ofMinutes(1));
+        boolean afterMidnight = legalAgeCutoff.isLegal(birthDate);
+
+        // then
+        assertFalse(beforeMidnight);
+        assertTrue(afterMidnight);
+    }
+
+    @Test
+    void shouldNotBeLegalWithoutBirthDate() {
+        // when
+        // then
+        assertFalse(new LegalAgeCutoff(new UserProperties(18)).isLegal(null));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -8,7 +8,7 @@ import java.time.LocalDate;
 import static org.junit.jupiter.api.Assertions.*;
 
 class LegalDateValidatorTest {
-    private final LegalDateValidator validator = new LegalDateValidator(new UserProperties(18));
+    private final LegalDateValidator validator = new LegalDateValidator(new LegalAgeCutoff(new UserProperties(18)));
 
     @Test
     void shouldBeValid() {
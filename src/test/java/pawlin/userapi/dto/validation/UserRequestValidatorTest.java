@@ -0,0 +1,122 @@
+package pawlin.userapi.dto.validation;
+
+import jakarta.validation.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.configuration.UserProperties;
+import pawlin.userapi.dto.UserRequestDto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserRequestValidatorTest {
+    private static final LegalAgeCutoff LEGAL_AGE_CUTOFF = new LegalAgeCutoff(new UserProperties(18));
+    private static final ValidatorFactory VALIDATOR_FACTORY = validatorFactory();
+    private static final Validator VALIDATOR = VALIDATOR_FACTORY.getValidator();
+
+    private final UserRequestValidator userRequestValidator = new UserRequestValidator(VALIDATOR, LEGAL_AGE_CUTOFF);
+
+    @AfterAll
+    static void tearDown() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @Test
+    void shouldReportSameViolationsAsValidator() {
+        // given
+        LocalDate now = LocalDate.now();
+        List<UserRequestDto> userRequestDtos = List.of(
+                new UserRequestDto("john@example.com", "John", "Smith", now.minusYears(30), "address", "phoneNumber"),
+                new UserRequestDto(null, null, null, null, null, null),
+                new UserRequestDto("not an email", " ", "\t", now.minusYears(17), null, null),
+                new UserRequestDto("john@example", "John", "", now.plusDays(1), null, null),
+                new UserRequestDto("@example.com", "John", "Smith", now.minusYears(18), null, null),
+                new UserRequestDto("john.smith@[127.0.0.1]", " ", "Smith", now.minusYears(18).plusDays(1), null, null));
+
+        for (UserRequestDto userRequestDto : userRequestDtos) {
+            // when
+            Set<ConstraintViolation<UserRequestDto>> violations = userRequestValidator.validate(userRequestDto);
+
+            // then
+            assertEquals(describe(VALIDATOR.validate(userRequestDto)), describe(violations), userRequestDto.toString());
+        }
+    }
+
+    @Test
+    void shouldValidateOnlyPresentProperties() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto(null, " ", null, null, "address", null);
+
+        // when
+        Set<ConstraintViolation<UserRequestDto>> violations = userRequestValidator.validatePresent(userRequestDto);
+
+        // then
+        assertEquals(describe(VALIDATOR.validateProperty(userRequestDto, "firstName")), describe(violations));
+    }
+
+    @Test
+    void shouldAcceptSameEmailsAsValidator() {
+        // given
+        List<String> emails = List.of("", "john@example.com", "John.Smith@Example.COM", "john", "john@", "@example.com", "john@example.com.",
+                "john..smith@example.com", ".john@example.com", "john.@example.com", "\"john smith\"@example.com", "\"john\\\"smith\"@example.com",
+                "\"john@smith\".doe@example.com", "john@localhost", "john@-example.com", "john@example-.com", "john@exa--mple.com",
+                "john@[127.0.0.1]", "john@[256.1.1.1]", "john@[IPv6:2001:db8::1]", "john@[IPv6:::ffff:10.0.0.1]", "john@[2001:db8::1]",
+                "jöhn@exämple.com", "john@例え.jp", "john@@example.com", "john smith@example.com", "john@exam ple.com",
+                "a".repeat(64) + "@example.com", "a".repeat(65) + "@example.com", "john@" + "a".repeat(63) + ".com", "john@" + "a".repeat(64) + ".com",
+                "john@" + "a.".repeat(126) + "com", "john@" + "a.".repeat(127) + "com", "john!#$%&'*+/=?^_`{|}~-@example.com",
+                "John_Smith+tag@mail-1.Example.com", "john@123", "john@a", "john@a-.com", "john@" + "a".repeat(63) + "." + "b".repeat(63) + ".com",
+                "john@example.com\n", "\u212Aelvin@example.com");
+
+        for (String email : emails) {
+            // when
+            UserRequestDto userRequestDto = new UserRequestDto(email, null, null, null, null, null);
+            Set<ConstraintViolation<UserRequestDto>> violations = userRequestValidator.validatePresent(userRequestDto);
+
+            // then
+            assertEquals(describe(VALIDATOR.validateProperty(userRequestDto, "email")), describe(violations), email);
+        }
+    }
+
+    @Test
+    void shouldReportViolationsInPropertyOrder() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto("not an email", " ", "\t", LocalDate.now().minusYears(17), null, null);
+
+        // when
+        Set<ConstraintViolation<UserRequestDto>> violations = userRequestValidator.validate(userRequestDto);
+        Set<ConstraintViolation<UserRequestDto>> presentViolations = userRequestValidator.validatePresent(userRequestDto);
+
+        // then
+        List<String> properties = List.of("email", "firstName", "lastName", "birthDate");
+        assertEquals(properties, violations.stream().map(violation -> violation.getPropertyPath().toString()).toList());
+        assertEquals(properties, presentViolations.stream().map(violation -> violation.getPropertyPath().toString()).toList());
+        assertEquals(describe(VALIDATOR.validate(userRequestDto)), describe(violations));
+    }
+
+    private static Set<String> describe(Set<ConstraintViolation<UserRequestDto>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + "|" + violation.getMessage() + "|" + violation.getMessageTemplate() + "|" + violation.getInvalidValue()
+                        + "|" + violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName() + "|" + violation.getRootBean())
+                .collect(Collectors.toSet());
+    }
+
+    private static ValidatorFactory validatorFactory() {
+        Configuration<?> configuration = Validation.byDefaultProvider().configure();
+        ConstraintValidatorFactory defaultFactory = configuration.getDefaultConstraintValidatorFactory();
+        return configuration.constraintValidatorFactory(new ConstraintValidatorFactory() {
+            @Override
+            public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+                return key == LegalDateValidator.class ? key.cast(new LegalDateValidator(LEGAL_AGE_CUTOFF)) : defaultFactory.getInstance(key);
+            }
+
+            @Override
+            public void releaseInstance(ConstraintValidator<?, ?> instance) {
+                defaultFactory.releaseInstance(instance);
+            }
+        }).buildValidatorFactory();
+    }
+}
@@ -0,0 +1,114 @@
+package pawlin.userapi.event;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserEventBufferTest {
+    private final UserEventBuffer userEventBuffer = new UserEventBuffer(4);
+
+    @Test
+    void shouldReadEventsAfterSequence() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        userEventBuffer.publish(UserEvent.Type.CREATED, 1L, user);
+        userEventBuffer.publish(UserEvent.Type.UPDATED, 1L, user);
+        userEventBuffer.publish(UserEvent.Type.DELETED, 1L, null);
+
+        // when
+        List<UserEvent> events = userEventBuffer.readAfter(1, 10);
+
+        // then
+        assertEquals(List.of(new UserEvent(2, UserEvent.Type.UPDATED, 1L, user), new UserEvent(3, UserEvent.Type.DELETED, 1L, null)), events);
+        assertEquals(List.of(2L), userEventBuffer.readAfter(1, 1).stream().map(UserEvent::sequence).toList());
+        assertTrue(userEventBuffer.readAfter(3, 10).isEmpty());
+        assertEquals(3, userEventBuffer.lastSequence());
+    }
+
+    @Test
+    void shouldReturnOldestEventsAfterGap() {
+        // given
+        for (long id = 1; id <= 6; id++) {
+            userEventBuffer.publish(UserEvent.Type.DELETED, id, null);
+        }
+
+        // when
+        List<UserEvent> events = userEventBuffer.readAfter(1, 10);
+
+        // then
+        assertEquals(List.of(3L, 4L, 5L, 6L), events.stream().map(UserEvent::sequence).toList());
+    }
+
+    @Test
+    void shouldReturnOldestEventsForUnknownSequence() {
+        // given
+        userEventBuffer.publish(UserEvent.Type.DELETED, 1L, null);
+        userEventBuffer.publish(UserEvent.Type.DELETED, 2L, null);
+
+        // when
+        List<UserEvent> events = userEventBuffer.readAfter(100, 10);
+
+        // then
+        assertEquals(List.of(1L, 2L), events.stream().map(UserEvent::sequence).toList());
+    }
+
+    @Test
+    void shouldNotifyListenersAfterPublishing() {
+        // given
+        AtomicInteger readable = new AtomicInteger();
+        userEventBuffer.addListener(() -> readable.addAndGet(userEventBuffer.readAfter(0, 10).size()));
+
+        // when
+        userEventBuffer.publish(UserEvent.Type.DELETED, 1L, null);
+        userEventBuffer.publish(UserEvent.Type.DELETED, 2L, null);
+
+        // then
+        assertEquals(3, readable.get());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentEvents() throws Exception {
+        // given
+        int threads = 8;
+        int eventsPerThread = 1_000;
+        UserEventBuffer buffer = new UserEventBuffer(threads * eventsPerThread);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (long id = 1; id <= eventsPerThread; id++) {
+                    buffer.publish(UserEvent.Type.DELETED, id, null);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        List<UserEvent> events = buffer.readAfter(0, Integer.MAX_VALUE);
+        assertEquals(threads * eventsPerThread, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).sequence());
+        }
+    }
+}
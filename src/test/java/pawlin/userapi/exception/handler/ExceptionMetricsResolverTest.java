@@ -0,0 +1,31 @@
+package pawlin.userapi.exception.handler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.RequestParameterNotValidException;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExceptionMetricsResolverTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExceptionMetricsResolver exceptionMetricsResolver = new ExceptionMetricsResolver(meterRegistry);
+
+    @Test
+    void shouldCountExceptions() {
+        // when
+        assertNull(exceptionMetricsResolver.resolveException(null, null, null, new EntityNotFoundException(1L)));
+        assertNull(exceptionMetricsResolver.resolveException(null, null, null, new EntityNotFoundException(2L)));
+        assertNull(exceptionMetricsResolver.resolveException(null, null, null, new RequestParameterNotValidException("Invalid date range")));
+        assertNull(exceptionMetricsResolver.resolveException(null, null, null, new IllegalStateException()));
+
+        // then
+        assertEquals(2, meterRegistry.get("user.exceptions").tag("exception", "EntityNotFoundException").counter().count());
+        assertEquals(1, meterRegistry.get("user.exceptions").tag("exception", "RequestParameterNotValidException").counter().count());
+        assertEquals(0, meterRegistry.get("user.exceptions").tag("exception", ConstraintViolationException.class.getSimpleName()).counter().count());
+    }
+}
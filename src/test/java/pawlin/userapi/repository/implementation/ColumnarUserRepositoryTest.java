@@ -0,0 +1,551 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarUserRepositoryTest {
+    @Test
+    void shouldFindAll() {
+        // given
+        User user1 = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", LocalDate.now(), null, null);
+
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user1, 2L, user2));
+
+        // when
+        List<User> users = userRepository.findAll();
+
+        // then
+        assertEquals(List.of(user1, user2), users);
+    }
+
+    @Test
+    void shouldFindById() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user));
+
+        // when
+        Optional<User> foundUser = userRepository.findById(1L);
+        Optional<User> missingUser = userRepository.findById(2L);
+
+        // then
+        assertEquals(Optional.of(user), foundUser);
+        assertTrue(missingUser.isEmpty());
+    }
+
+    @Test
+    void shouldFindByBirthDate() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user1 = new User(1L, "email", "firstName", "lastName", now.minusDays(1), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", now.minusDays(2), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user1, 2L, user2));
+
+        // when
+        List<User> between = userRepository.findByBirthDateBetween(now.minusDays(2), now);
+        List<User> after = userRepository.findByBirthDateAfter(now.minusDays(1));
+        List<User> before = userRepository.findByBirthDateBefore(now.minusDays(2));
+
+        // then
+        assertEquals(List.of(user2, user1), between);
+        assertEquals(List.of(user1), after);
+        assertEquals(List.of(user2), before);
+    }
+
+    @Test
+    void shouldFindByEmail() {
+        // given
+        User user = new User(1L, "john@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user));
+
+        // when
+        List<User> users = userRepository.findByEmail("JOHN@example.com");
+
+        // then
+        assertEquals(List.of(user), users);
+    }
+
+    @Test
+    void shouldFindPageAfterAndBeforeCursor() {
+        // given
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        for (int i = 0; i < 5; i++) {
+            userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+        }
+        userRepository.delete(3L);
+
+        // when
+        List<User> first = userRepository.findAll(null, 2);
+        List<User> second = userRepository.findAll(UserCursor.after(2L), 2);
+        List<User> previous = userRepository.findAll(UserCursor.before(5L), 2);
+
+        // then
+        assertEquals(List.of(1L, 2L), first.stream().map(User::getId).toList());
+        assertEquals(List.of(4L, 5L), second.stream().map(User::getId).toList());
+        assertEquals(List.of(2L, 4L), previous.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldStreamAllInBatches() {
+        // given
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        userRepository.createAll(Collections.nCopies(3_000, user));
+
+        // when
+        List<User> users = userRepository.streamAll().toList();
+
+        // then
+        assertEquals(3_000, users.size());
+        assertEquals(3_000L, users.get(users.size() - 1).getId());
+    }
+
+    @Test
+    void shouldCreateUpdateAndDelete() {
+        // given
+        LocalDate now = LocalDate.now();
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(new User(null, "email", "firstName", "lastName", now.minusYears(30), "address", "phoneNumber"));
+
+        // when
+        User updated = new User(id, "newEmail", "newFirstName", "newLastName", now.minusYears(20), "newAddress", "newPhoneNumber");
+        userRepository.update(updated);
+
+        // then
+        assertEquals(Optional.of(updated), userRepository.findById(id));
+        assertTrue(userRepository.findByBirthDateBefore(now.minusYears(25)).isEmpty());
+        assertTrue(userRepository.findByEmail("email").isEmpty());
+
+        // when
+        userRepository.delete(id);
+
+        // then
+        assertFalse(userRepository.existsById(id));
+        assertTrue(userRepository.findByEmail("newEmail").isEmpty());
+        assertTrue(userRepository.findAll().isEmpty());
+    }
+
+    @Test
+    void shouldNotRepeatVersionsOfDeletedUser() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+        userRepository.update(user.withId(id));
+        userRepository.delete(id);
+
+        // when
+        User recreated = userRepository.update(user.withId(id), version -> version == 0);
+
+        // then
+        assertEquals(3, recreated.getVersion());
+        assertEquals(3, userRepository.findById(userRepository.create(user)).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldTellListenersOfWritesInOrder() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        List<String> written = new ArrayList<>();
+        userRepository.addListener((id, previous, stored) -> written.add(id + ":" + (previous == null ? 0 : previous.getVersion()) + ">" + (stored == null ? 0 : stored.getVersion())));
+
+        // when
+        Long id = userRepository.create(user);
+        userRepository.update(user.withId(id));
+        Optional<User> deleted = userRepository.delete(id);
+        Optional<User> missing = userRepository.delete(id);
+
+        // then
+        assertEquals(List.of(id + ":0>1", id + ":1>2", id + ":2>0"), written);
+        assertEquals(Optional.of(user.withId(id).withVersion(2)), deleted);
+        assertTrue(missing.isEmpty());
+    }
+
+    @Test
+    void shouldInsertUpsertedIdsInOrder() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user.withId(1L), 10L, user.withId(10L)));
+
+        // when
+        userRepository.update(user.withId(5L));
+        Long id = userRepository.create(user);
+
+        // then
+        assertEquals(11L, id);
+        assertEquals(List.of(1L, 5L, 10L, 11L), userRepository.findAll().stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldDeduplicateNamesAndAddresses() {
+        // given
+        ColumnarUserRepository userRepository = new ColumnarUserRepository(Map.of());
+        User user = new User(null, "email", "John", "Smith", LocalDate.now(), "Main Street", "phoneNumber");
+
+        // when
+        userRepository.createAll(Collections.nCopies(100, user));
+
+        // then
+        assertEquals(3, userRepository.dictionarySize());
+    }
+
+    @Test
+    void shouldCompactAfterDeletes() {
+        // given
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        List<Long> ids = userRepository.createAll(Collections.nCopies(4_000, user));
+
+        // when
+        ids.stream().filter(id -> id % 4 != 0).forEach(userRepository::delete);
+
+        // then
+        List<User> users = userRepository.findAll();
+        assertEquals(1_000, users.size());
+        assertTrue(users.stream().allMatch(found -> found.getId() % 4 == 0));
+        assertEquals(Optional.of(user.withId(4_000L)), userRepository.findById(4_000L));
+    }
+
+    @Test
+    void shouldAllocateUniqueIdsUnderConcurrentCreates() throws Exception {
+        // given
+        int threads = 8;
+        int usersPerThread = 2_000;
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < usersPerThread; j++) {
+                    ids.add(userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber")));
+                    userRepository.findById(ids.get(ids.size() - 1));
+                }
+                return ids;
+            }));
+        }
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            ids.addAll(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(threads * usersPerThread, ids.size());
+        assertEquals(threads * usersPerThread, userRepository.findAll().size());
+    }
+
+    @Test
+    void shouldIncrementVersionOnWrite() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        User updated = userRepository.update(user.withId(id).withVersion(7));
+
+        // then
+        assertEquals(2, updated.getVersion());
+        assertEquals(2, userRepository.findById(id).orElseThrow().getVersion());
+        assertEquals(List.of(3L), userRepository.updateAll(List.of(updated)).stream().map(User::getVersion).toList());
+    }
+
+    @Test
+    void shouldNotUpdateWhenVersionDoesNotMatch() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        // then
+        assertThrows(PreconditionFailedException.class, () -> userRepository.update(user.toBuilder().firstName("stale").build().withId(id), version -> version == 0));
+        assertThrows(PreconditionFailedException.class, () -> userRepository.update(user.withId(id + 1), version -> version != 0));
+        assertEquals("firstName", userRepository.findById(id).orElseThrow().getFirstName());
+        assertFalse(userRepository.existsById(id + 1));
+        assertEquals(2, userRepository.update(user.withId(id), version -> version == 1).getVersion());
+    }
+
+    @Test
+    void shouldComputeOnStoredUser() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        User computed = userRepository.compute(id, existing -> existing.toBuilder().firstName("newFirstName").build()).orElseThrow();
+
+        // then
+        assertEquals("newFirstName", computed.getFirstName());
+        assertEquals(2, computed.getVersion());
+        assertEquals(computed, userRepository.findById(id).orElseThrow());
+        assertTrue(userRepository.compute(id + 1, existing -> existing).isEmpty());
+        assertFalse(userRepository.existsById(id + 1));
+    }
+
+    @Test
+    void shouldNotComputeWhenUpdateThrows() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        // then
+        assertThrows(PreconditionFailedException.class, () -> userRepository.compute(id, existing -> {
+            throw new PreconditionFailedException(id);
+        }));
+        assertEquals(1, userRepository.findById(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentComputes() throws Exception {
+        // given
+        User user = new User(null, "email", "", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id = userRepository.create(user);
+        int threads = 4;
+        int computesPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < computesPerThread; j++) {
+                    userRepository.compute(id, existing -> existing.toBuilder().firstName(existing.getFirstName() + "x").build());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        User computed = userRepository.findById(id).orElseThrow();
+        assertEquals(threads * computesPerThread, computed.getFirstName().length());
+        assertEquals(threads * computesPerThread + 1, computed.getVersion());
+    }
+
+    @Test
+    void shouldSearchBySubstring() {
+        // given
+        User user1 = new User(null, "john.smith@example.com", "John", "Smith", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(null, "olga@example.com", "Olga", "Johnson", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        Long id1 = userRepository.create(user1);
+        Long id2 = userRepository.create(user2);
+
+        // when
+        userRepository.update(user1.toBuilder().firstName("Adam").build().withId(id1));
+
+        // then
+        assertEquals(List.of(id1, id2), userRepository.search("jo", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("jo", 1).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("Adam S", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("SMITH", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id2), userRepository.search("nson", 10).stream().map(User::getId).toList());
+        assertTrue(userRepository.search("john s", 10).isEmpty());
+        userRepository.delete(id2);
+        assertTrue(userRepository.search("olga", 10).isEmpty());
+    }
+
+    @Test
+    void shouldFindChangedSinceSequence() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user.withId(1L).withVersion(1)));
+        Long id2 = userRepository.create(user);
+        Long id3 = userRepository.create(user);
+        long mark = userRepository.findChangedSince(0, 10).sequence();
+
+        // when
+        userRepository.update(user.toBuilder().firstName("Adam").build().withId(1L));
+        userRepository.delete(id2);
+        UserChanges changes = userRepository.findChangedSince(mark, 10);
+
+        // then
+        assertEquals(List.of(1L), changes.users().stream().map(User::getId).toList());
+        assertEquals("Adam", changes.users().get(0).getFirstName());
+        assertEquals(List.of(id2), changes.deleted());
+        assertFalse(changes.more());
+        assertEquals(changes.sequence(), userRepository.findChangedSince(changes.sequence(), 10).sequence());
+        assertTrue(userRepository.findChangedSince(changes.sequence(), 10).users().isEmpty());
+        UserChanges first = userRepository.findChangedSince(0, 2);
+        assertEquals(List.of(id3, 1L), first.users().stream().map(User::getId).toList());
+        assertTrue(first.more());
+        assertEquals(List.of(id2), userRepository.findChangedSince(first.sequence(), 2).deleted());
+    }
+
+    @Test
+    void shouldCompactDeletedUsersAndResetOlderMarks() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        List<Long> ids = userRepository.createAll(Collections.nCopies(4, user));
+        long mark = userRepository.findChangedSince(0, 10).sequence();
+        userRepository.delete(ids.get(0));
+        userRepository.delete(ids.get(1));
+        long compacted = userRepository.findChangedSince(0, 10).sequence();
+        userRepository.delete(ids.get(2));
+
+        // when
+        userRepository.compactChanges(compacted);
+        UserChanges older = userRepository.findChangedSince(mark, 10);
+        UserChanges newer = userRepository.findChangedSince(compacted, 10);
+
+        // then
+        assertTrue(older.reset());
+        assertEquals(List.of(ids.get(3)), older.users().stream().map(User::getId).toList());
+        assertEquals(List.of(ids.get(2)), older.deleted());
+        assertFalse(newer.reset());
+        assertEquals(List.of(ids.get(2)), newer.deleted());
+        assertEquals(List.of(ids.get(3)), userRepository.findAll().stream().map(User::getId).toList());
+        assertEquals(ids.get(3) + 1, userRepository.create(user));
+    }
+
+    @Test
+    void shouldApplyReplicatedUserWithItsVersion() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of(1L, user.withId(1L).withVersion(1)));
+
+        // when
+        userRepository.apply(1L, user.toBuilder().firstName("Adam").build().withId(1L).withVersion(5));
+        userRepository.apply(7L, user.withId(7L).withVersion(3));
+
+        // then
+        assertEquals(5, userRepository.findById(1L).orElseThrow().getVersion());
+        assertEquals(List.of(1L), userRepository.search("adam", 10).stream().map(User::getId).toList());
+        assertEquals(user.withId(7L).withVersion(3), userRepository.findById(7L).orElseThrow());
+        assertEquals(8L, userRepository.create(user));
+        userRepository.apply(7L, null);
+        assertFalse(userRepository.existsById(7L));
+        assertEquals(List.of(1L, 8L), userRepository.findByEmail("email").stream().map(User::getId).sorted().toList());
+        assertEquals(List.of(7L), userRepository.findChangedSince(0, 10).deleted());
+    }
+
+    @Test
+    void shouldStoreBirthDatesOfAnyYear() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.MAX, "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+
+        // when
+        Long max = userRepository.create(user);
+        Long min = userRepository.create(user.toBuilder().birthDate(LocalDate.MIN).build());
+
+        // then
+        assertEquals(LocalDate.MAX, userRepository.findById(max).orElseThrow().getBirthDate());
+        assertEquals(List.of(min, max), userRepository.findByBirthDateBetween(LocalDate.MIN, LocalDate.MAX).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldKeepLatestChangesWhenChangeLogFillsUp() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        List<Long> ids = userRepository.createAll(Collections.nCopies(100, user));
+
+        // when
+        for (int i = 0; i < 5_000; i++) {
+            userRepository.update(user.toBuilder().firstName("name" + i).build().withId(ids.get(i % 100)));
+        }
+        userRepository.delete(ids.get(0));
+
+        // then
+        UserChanges changes = userRepository.findChangedSince(0, 1_000);
+        assertEquals(99, changes.users().size());
+        assertEquals(List.of(ids.get(0)), changes.deleted());
+        assertEquals("name4999", changes.users().get(98).getFirstName());
+        assertFalse(changes.more());
+    }
+
+    @Test
+    void shouldPageBirthDateRangeInBatches() {
+        // given
+        LocalDate start = LocalDate.of(1990, 1, 1);
+        UserRepository userRepository = new ColumnarUserRepository(Map.of());
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            users.add(new User(null, "email", "firstName", "lastName", start.plusDays(i % 7), "address", "phoneNumber"));
+        }
+        userRepository.createAll(users);
+
+        User cursor = userRepository.findById(100L).orElseThrow();
+
+        // when
+        List<User> all = userRepository.findByBirthDateBetween(start, start.plusDays(6));
+        List<User> page = userRepository.findByBirthDateBetween(start, start.plusDays(6), UserCursor.after(cursor.getBirthDate(), 100L), 60);
+        List<User> previous = userRepository.findByBirthDateBetween(start, start.plusDays(6), UserCursor.before(cursor.getBirthDate(), 100L), 60);
+
+        // then
+        assertEquals(500, all.size());
+        Comparator<User> order = Comparator.comparing(User::getBirthDate).thenComparing(User::getId);
+        assertEquals(all.stream().sorted(order).toList(), all);
+        int position = all.indexOf(cursor);
+        assertEquals(all.subList(position + 1, position + 61), page);
+        assertEquals(all.subList(position - 60, position), previous);
+    }
+
+    // Both repositories are filled the same way and measured as heap retained after full collections. The size nearly
+    // fills the columns as grown, so the spare capacity of the last growth does not count against the columnar one.
+    @Test
+    void shouldTakeAThirdOfTheMemoryOfMapRepository() {
+        // given
+        int size = 130_000;
+
+        // when
+        double map = bytesPerUser(new UserRepositoryImpl(Map.of()), size);
+        double columnar = bytesPerUser(new ColumnarUserRepository(Map.of()), size);
+
+        // then
+        assertTrue(map / columnar >= 3, "map " + map + " bytes per user, columnar " + columnar);
+    }
+
+    private static double bytesPerUser(UserRepository userRepository, int size) {
+        String[] names = {"John", "Jane", "Adam", "Olga", "Maria", "Smith", "Kowalski", "Shevchenko"};
+        Random random = new Random(7);
+        long baseline = usedHeap();
+        for (int created = 0; created < size; created += 1_000) {
+            List<User> users = new ArrayList<>(1_000);
+            for (int i = 0; i < 1_000; i++) {
+                users.add(new User(null, "user" + random.nextInt() + "@example.com", names[random.nextInt(names.length)], names[random.nextInt(names.length)],
+                        LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)), random.nextInt(200) + " Main Street", "+380" + random.nextInt(100_000_000, 999_999_999)));
+            }
+            userRepository.createAll(users);
+        }
+
+        long used = usedHeap() - baseline;
+        assertEquals(size, userRepository.count());
+        return (double) used / size;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            memory.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
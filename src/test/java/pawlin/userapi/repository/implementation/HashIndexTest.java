@@ -0,0 +1,54 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashIndexTest {
+    private final HashIndex hashIndex = new HashIndex();
+
+    @Test
+    void shouldFindIdsSharingHash() {
+        // when
+        hashIndex.add(7, 3L);
+        hashIndex.add(7, -1L);
+        hashIndex.add(7, 2L);
+        hashIndex.add(0, 5L);
+
+        // then
+        assertArrayEquals(new long[]{-1L, 2L, 3L}, hashIndex.find(7));
+        assertArrayEquals(new long[]{5L}, hashIndex.find(0));
+        assertArrayEquals(new long[]{}, hashIndex.find(8));
+        hashIndex.remove(7, 2L);
+        hashIndex.remove(7, -1L);
+        assertArrayEquals(new long[]{3L}, hashIndex.find(7));
+    }
+
+    @Test
+    void shouldKeepProbeSequencesAfterRemovals() {
+        // given
+        Map<Long, TreeSet<Long>> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        // when
+        for (long id = 0; id < 20_000; id++) {
+            long hash = 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0 && !expected.getOrDefault(hash, new TreeSet<>()).isEmpty()) {
+                Long removed = expected.get(hash).first();
+                hashIndex.remove(hash, removed);
+                expected.get(hash).remove(removed);
+            } else {
+                hashIndex.add(hash, id);
+                expected.computeIfAbsent(hash, key -> new TreeSet<>()).add(id);
+            }
+        }
+
+        // then
+        expected.forEach((hash, ids) -> assertArrayEquals(ids.stream().mapToLong(Long::longValue).toArray(), hashIndex.find(hash)));
+    }
+}
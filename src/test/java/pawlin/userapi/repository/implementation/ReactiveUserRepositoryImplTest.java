@@ -0,0 +1,42 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.ReactiveUserRepository;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+class ReactiveUserRepositoryImplTest {
+    private final User user1 = new User(1L, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+    private final User user2 = new User(2L, "email", "firstName", "lastName", LocalDate.of(2000, 1, 1), "address", "phoneNumber");
+    private final ReactiveUserRepository reactiveUserRepository = new ReactiveUserRepositoryImpl(new UserRepositoryImpl(Map.of(1L, user1, 2L, user2)));
+
+    @Test
+    void shouldStreamByBirthDateBetweenOnDemand() {
+        // when
+        // then
+        StepVerifier.create(reactiveUserRepository.findByBirthDateBetween(LocalDate.of(1980, 1, 1), LocalDate.of(2010, 1, 1)), 1)
+                .expectNext(user1)
+                .thenRequest(1)
+                .expectNext(user2)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldFindById() {
+        // when
+        // then
+        StepVerifier.create(reactiveUserRepository.findById(1L)).expectNext(user1).verifyComplete();
+        StepVerifier.create(reactiveUserRepository.findById(3L)).verifyComplete();
+    }
+
+    @Test
+    void shouldCreateAndDelete() {
+        // when
+        // then
+        StepVerifier.create(reactiveUserRepository.create(user1.withId(null))).expectNext(3L).verifyComplete();
+        StepVerifier.create(reactiveUserRepository.delete(3L).then(reactiveUserRepository.existsById(3L))).expectNext(false).verifyComplete();
+    }
+}
@@ -0,0 +1,186 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.configuration.ShardingProperties;
+import pawlin.userapi.exception.PreconditionFailedException;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
+import pawlin.userapi.repository.UserJournal;
+import pawlin.userapi.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedUserRepositoryTest {
+    private static final String[] NAMES = {"John", "Johanna", "Adam", "Olga", "Maria", "Smith", "Smithson", "Kowalski"};
+    private static final LocalDate OLDEST = LocalDate.of(1960, 1, 1);
+
+    @Test
+    void shouldQueryLikeSingleRepository() {
+        // given
+        Map<Long, User> users = users(500);
+        UserRepository single = new UserRepositoryImpl(users);
+        UserRepository sharded = new ShardedUserRepository(users, 7);
+
+        // then
+        assertEquals(single.count(), sharded.count());
+        assertEquals(sorted(single.findAll()), sharded.findAll());
+        assertEquals(sorted(single.streamAll().toList()), sorted(sharded.streamAll().toList()));
+        assertEquals(single.findById(42L), sharded.findById(42L));
+        assertEquals(single.findByEmail("user7@example.com"), sharded.findByEmail("USER7@example.com"));
+        for (String query : List.of("jo", "smi", "olga k", "user1", "example.c")) {
+            assertEquals(single.search(query, 10), sharded.search(query, 10), query);
+        }
+        LocalDate startDate = OLDEST.plusDays(100);
+        LocalDate endDate = OLDEST.plusDays(400);
+        assertEquals(single.findByBirthDateBetween(startDate, endDate), sharded.findByBirthDateBetween(startDate, endDate));
+        assertEquals(single.streamByBirthDateBetween(startDate, endDate).toList(), sharded.streamByBirthDateBetween(startDate, endDate).toList());
+        assertEquals(single.findByBirthDateAfter(endDate), sharded.findByBirthDateAfter(endDate));
+        assertEquals(single.findByBirthDateBefore(startDate), sharded.findByBirthDateBefore(startDate));
+    }
+
+    @Test
+    void shouldPageLikeSingleRepository() {
+        // given
+        Map<Long, User> users = users(300);
+        UserRepository single = new UserRepositoryImpl(users);
+        UserRepository sharded = new ShardedUserRepository(users, 4);
+        LocalDate startDate = OLDEST;
+        LocalDate endDate = OLDEST.plusDays(1000);
+
+        // then
+        for (UserCursor cursor : Arrays.asList(null, UserCursor.after(17L), UserCursor.before(250L), UserCursor.before(3L), UserCursor.after(300L))) {
+            assertEquals(single.findAll(cursor, 25), sharded.findAll(cursor, 25), String.valueOf(cursor));
+        }
+        for (UserCursor cursor : Arrays.asList(null, UserCursor.after(OLDEST.plusDays(200), 5L), UserCursor.before(OLDEST.plusDays(700), 120L), UserCursor.before(OLDEST.plusDays(3), 1L))) {
+            assertEquals(single.findByBirthDateBetween(startDate, endDate, cursor, 25), sharded.findByBirthDateBetween(startDate, endDate, cursor, 25), String.valueOf(cursor));
+        }
+    }
+
+    @Test
+    void shouldWriteAcrossPartitions() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new ShardedUserRepository(Map.of(1L, user.withId(1L).withVersion(1)), 3);
+
+        // when
+        Long id2 = userRepository.create(user);
+        List<Long> ids = userRepository.createAll(List.of(user, user, user));
+        User updated = userRepository.update(user.toBuilder().firstName("Adam").build().withId(id2));
+        Optional<User> computed = userRepository.compute(ids.get(0), existing -> existing.toBuilder().lastName("Smith").build());
+        userRepository.delete(ids.get(1));
+
+        // then
+        assertEquals(2L, id2);
+        assertEquals(List.of(3L, 4L, 5L), ids);
+        assertEquals(2, updated.getVersion());
+        assertEquals("Smith", computed.orElseThrow().getLastName());
+        assertFalse(userRepository.existsById(4L));
+        assertEquals(4, userRepository.count());
+        assertThrows(PreconditionFailedException.class, () -> userRepository.update(user.withId(id2), version -> version == 1));
+        assertEquals(6L, userRepository.create(user));
+    }
+
+    @Test
+    void shouldWriteBatchOncePerPartitionAndListByIds() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        AtomicInteger syncs = new AtomicInteger();
+        UserJournal journal = new UserJournal() {
+            @Override
+            public long append(Long id, User user) {
+                return id;
+            }
+
+            @Override
+            public void sync(long position) {
+                syncs.incrementAndGet();
+            }
+        };
+        UserRepository userRepository = new ShardedUserRepository(Map.of(), journal, new ShardingProperties(4));
+
+        // when
+        List<Long> ids = userRepository.createAll(Collections.nCopies(1000, user));
+        int createSyncs = syncs.getAndSet(0);
+        List<User> updated = userRepository.updateAll(ids.stream().map(id -> user.toBuilder().firstName("name" + id).build().withId(id)).toList());
+
+        // then
+        assertEquals(4, createSyncs);
+        assertEquals(4, syncs.get());
+        assertEquals(LongStream.rangeClosed(1, 1000).boxed().toList(), ids);
+        assertEquals(ids, updated.stream().map(User::getId).toList());
+        assertEquals("name7", updated.get(6).getFirstName());
+        assertEquals(2, updated.get(6).getVersion());
+        assertEquals(ids, userRepository.findAll().stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldFindChangedSinceSequenceAcrossPartitions() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new ShardedUserRepository(Map.of(1L, user.withId(1L).withVersion(1), 2L, user.withId(2L).withVersion(1)), 2);
+        long mark = userRepository.findChangedSince(0, 10).sequence();
+
+        // when
+        Long id3 = userRepository.create(user);
+        userRepository.update(user.withId(1L));
+        userRepository.delete(2L);
+        UserChanges changes = userRepository.findChangedSince(mark, 10);
+
+        // then
+        assertEquals(List.of(id3, 1L), changes.users().stream().map(User::getId).toList());
+        assertEquals(List.of(2L), changes.deleted());
+        assertFalse(changes.more());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentWrites() throws Exception {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new ShardedUserRepository(Map.of(), 4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // when
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < 250; j++) {
+                    ids.add(userRepository.create(user));
+                }
+                return ids;
+            }));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            ids.addAll(future.get());
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(1000, ids.size());
+        assertEquals(1000, userRepository.count());
+        assertEquals(1000, userRepository.findAll(null, 2000).size());
+        assertEquals(1000, userRepository.findChangedSince(0, 2000).users().size());
+    }
+
+    private static Map<Long, User> users(int count) {
+        Random random = new Random(7);
+        Map<Long, User> users = new HashMap<>();
+        for (long id = 1; id <= count; id++) {
+            LocalDate birthDate = random.nextInt(10) == 0 ? null : OLDEST.plusDays(random.nextInt(1000));
+            users.put(id, new User(id, "user" + id + "@example.com", NAMES[random.nextInt(NAMES.length)], NAMES[random.nextInt(NAMES.length)], birthDate, "address", "phoneNumber", 1));
+        }
+        return users;
+    }
+
+    private static List<User> sorted(List<User> users) {
+        return users.stream().sorted(Comparator.comparing(User::getId)).toList();
+    }
+}
@@ -0,0 +1,42 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringArenaTest {
+    private final StringArena arena = new StringArena();
+
+    @Test
+    void shouldReadBackValues() {
+        // when
+        long ascii = arena.add("john@example.com");
+        long unicode = arena.add("Олександр");
+        long empty = arena.add("");
+
+        // then
+        assertEquals("john@example.com", arena.get(ascii));
+        assertEquals("Олександр", arena.get(unicode));
+        assertEquals("", arena.get(empty));
+        assertEquals(StringArena.NONE, arena.add(null));
+        assertNull(arena.get(StringArena.NONE));
+    }
+
+    @Test
+    void shouldCopyLiveValuesIntoNewArena() {
+        // given
+        long kept = arena.add("kept");
+        for (int i = 0; i < 1_000; i++) {
+            arena.release(arena.add("released" + i));
+        }
+
+        // when
+        StringArena compacted = new StringArena(arena.live());
+        long copied = compacted.copy(arena, kept);
+
+        // then
+        assertTrue(arena.wasteful());
+        assertEquals("kept", compacted.get(copied));
+        assertEquals(4, compacted.live());
+    }
+}
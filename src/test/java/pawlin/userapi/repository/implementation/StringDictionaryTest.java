@@ -0,0 +1,49 @@
+package pawlin.userapi.repository.implementation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+    private final StringDictionary dictionary = new StringDictionary();
+
+    @Test
+    void shouldDeduplicateValues() {
+        // when
+        int first = dictionary.acquire(new String("John"));
+        int second = dictionary.acquire(new String("John"));
+
+        // then
+        assertEquals(first, second);
+        assertEquals("John", dictionary.get(first));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void shouldReleaseAndReuseCodes() {
+        // given
+        int code = dictionary.acquire("John");
+        dictionary.acquire("John");
+
+        // when
+        dictionary.release(code);
+        int stillReferenced = dictionary.size();
+        dictionary.release(code);
+        int reused = dictionary.acquire("Jane");
+
+        // then
+        assertEquals(1, stillReferenced);
+        assertEquals(code, reused);
+        assertEquals("Jane", dictionary.get(reused));
+    }
+
+    @Test
+    void shouldMapNullToNone() {
+        // when
+        int code = dictionary.acquire(null);
+
+        // then
+        assertEquals(StringDictionary.NONE, code);
+        assertNull(dictionary.get(code));
+    }
+}
@@ -1,15 +1,20 @@
 package pawlin.userapi.repository.implementation;
 
 import org.junit.jupiter.api.Test;
+import pawlin.userapi.exception.PreconditionFailedException;
 import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
 import pawlin.userapi.repository.UserRepository;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class UserRepositoryImplTest {
     @Test
@@ -29,6 +34,20 @@ class UserRepositoryImplTest {
         assertTrue(users.contains(user2));
     }
 
+    @Test
+    void shouldCount() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+
+        // when
+        userRepository.create(user);
+        userRepository.delete(1L);
+
+        // then
+        assertEquals(1, userRepository.count());
+    }
+
     @Test
     void shouldFindById() {
         // given
@@ -176,6 +195,61 @@ class UserRepositoryImplTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void shouldReturnDeletedUserOnce() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber", 1);
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+        long sequence = userRepository.findChangedSince(Long.MAX_VALUE, 1).sequence();
+
+        // when
+        Optional<User> deleted = userRepository.delete(1L);
+        Optional<User> missing = userRepository.delete(1L);
+
+        // then
+        assertEquals(Optional.of(user), deleted);
+        assertTrue(missing.isEmpty());
+        assertEquals(List.of(1L), userRepository.findChangedSince(sequence, 10).deleted());
+        assertEquals(sequence + 1, userRepository.findChangedSince(sequence, 10).sequence());
+    }
+
+    @Test
+    void shouldNotRepeatVersionsOfDeletedUser() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+        userRepository.update(user.withId(id));
+        userRepository.delete(id);
+
+        // when
+        User recreated = userRepository.update(user.withId(id), version -> version == 0);
+
+        // then
+        assertEquals(3, recreated.getVersion());
+        assertEquals(3, userRepository.findById(userRepository.create(user)).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldTellListenersOfWritesInOrder() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        List<String> written = new ArrayList<>();
+        userRepository.addListener((id, previous, stored) -> written.add(id + ":" + (previous == null ? 0 : previous.getVersion()) + ">" + (stored == null ? 0 : stored.getVersion())));
+
+        // when
+        Long id = userRepository.create(user);
+        userRepository.update(user.withId(id));
+        userRepository.compute(id, existing -> existing.toBuilder().firstName("Adam").build());
+        userRepository.delete(id);
+        userRepository.delete(id);
+        userRepository.apply(7L, user.withId(7L).withVersion(1));
+
+        // then
+        assertEquals(List.of(id + ":0>1", id + ":1>2", id + ":2>3", id + ":3>0"), written);
+    }
+
     @Test
     void existsById() {
         // given
@@ -187,4 +261,447 @@ class UserRepositoryImplTest {
         // then
         assertTrue(userRepository.existsById(1L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldAllocateUniqueIdsUnderConcurrentCreates() throws Exception {
+        // given
+        int threads = 8;
+        int usersPerThread = 2_000;
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < usersPerThread; j++) {
+                    ids.add(userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber")));
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Long> ids = new HashSet<>();
+        for (Future<List<Long>> future : futures) {
+            ids.addAll(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(threads * usersPerThread, ids.size());
+        assertEquals(threads * usersPerThread, userRepository.findAll().size());
+        assertEquals(threads * usersPerThread, Collections.max(ids));
+    }
+
+    @Test
+    void shouldNotLoseConcurrentUpdatesAndDeletes() throws Exception {
+        // given
+        int threads = 8;
+        int usersPerThread = 1_000;
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            String thread = String.valueOf(i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < usersPerThread; j++) {
+                    Long id = userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+                    userRepository.update(new User(id, thread, "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+                    if (j % 2 == 0) {
+                        userRepository.delete(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // then
+        List<User> users = userRepository.findAll();
+        assertEquals(threads * usersPerThread / 2, users.size());
+        assertTrue(users.stream().noneMatch(user -> user.getEmail().equals("email")));
+    }
+
+    @Test
+    void shouldNotReuseIdAfterUpdateWithHigherId() {
+        // given
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        userRepository.update(new User(5L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+
+        // when
+        Long id = userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+
+        // then
+        assertEquals(6L, id);
+        assertEquals(2, userRepository.findAll().size());
+    }
+
+    @Test
+    void shouldReindexBirthDateOnUpdate() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user = new User(1L, "email", "firstName", "lastName", now.minusYears(30), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+
+        // when
+        userRepository.update(user.toBuilder().birthDate(now.minusYears(20)).build());
+
+        // then
+        assertTrue(userRepository.findByBirthDateBefore(now.minusYears(25)).isEmpty());
+        assertEquals(1, userRepository.findByBirthDateAfter(now.minusYears(25)).size());
+    }
+
+    @Test
+    void shouldRemoveFromBirthDateIndexOnDelete() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user = new User(1L, "email", "firstName", "lastName", now, "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+
+        // when
+        userRepository.delete(1L);
+
+        // then
+        assertTrue(userRepository.findByBirthDateBetween(now, now).isEmpty());
+    }
+
+    @Test
+    void shouldFindByBirthDateBetweenOrderedByBirthDate() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user1 = new User(1L, "email", "firstName", "lastName", now.minusDays(1), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", now.minusDays(3), "address", "phoneNumber");
+        User user3 = new User(3L, "email", "firstName", "lastName", now.minusDays(2), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user1, 2L, user2, 3L, user3));
+
+        // when
+        List<User> users = userRepository.findByBirthDateBetween(now.minusDays(3), now.minusDays(2));
+
+        // then
+        assertEquals(List.of(user2, user3), users);
+    }
+
+    @Test
+    void shouldFindPageAfterCursor() {
+        // given
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        for (int i = 0; i < 5; i++) {
+            userRepository.create(new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber"));
+        }
+
+        // when
+        List<User> first = userRepository.findAll(null, 2);
+        List<User> second = userRepository.findAll(UserCursor.after(2L), 2);
+        List<User> previous = userRepository.findAll(UserCursor.before(4L), 2);
+
+        // then
+        assertEquals(List.of(1L, 2L), first.stream().map(User::getId).toList());
+        assertEquals(List.of(3L, 4L), second.stream().map(User::getId).toList());
+        assertEquals(List.of(2L, 3L), previous.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldFindBirthDatePageAfterCursor() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user1 = new User(1L, "email", "firstName", "lastName", now.minusDays(1), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", now.minusDays(3), "address", "phoneNumber");
+        User user3 = new User(3L, "email", "firstName", "lastName", now.minusDays(2), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user1, 2L, user2, 3L, user3));
+
+        // when
+        List<User> users = userRepository.findByBirthDateBetween(now.minusDays(3), now, UserCursor.after(now.minusDays(3), 2L), 1);
+
+        // then
+        assertEquals(List.of(user3), users);
+    }
+
+    @Test
+    void shouldStreamByBirthDateBetween() {
+        // given
+        LocalDate now = LocalDate.now();
+        User user1 = new User(1L, "email", "firstName", "lastName", now.minusDays(1), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", now.minusDays(3), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user1, 2L, user2));
+
+        // when
+        List<User> all = userRepository.streamAll().toList();
+        List<User> range = userRepository.streamByBirthDateBetween(now.minusDays(2), now).toList();
+
+        // then
+        assertEquals(2, all.size());
+        assertEquals(List.of(user1), range);
+    }
+
+    @Test
+    void shouldCreateAllWithConsecutiveIds() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(3L, user.withId(3L)));
+
+        // when
+        List<Long> ids = userRepository.createAll(List.of(user, user, user));
+
+        // then
+        assertEquals(List.of(4L, 5L, 6L), ids);
+        assertEquals(4, userRepository.findAll().size());
+        assertEquals(7L, userRepository.create(user));
+    }
+
+    @Test
+    void shouldUpdateAll() {
+        // given
+        User user1 = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user1, 2L, user2));
+
+        // when
+        List<User> updated = userRepository.updateAll(List.of(user1.toBuilder().email("newEmail").build(), user2.toBuilder().email("newEmail").build()));
+
+        // then
+        assertEquals(2, updated.size());
+        assertTrue(userRepository.findAll().stream().allMatch(user -> user.getEmail().equals("newEmail")));
+    }
+
+    @Test
+    void shouldFindByEmailAfterUpdate() {
+        // given
+        User user1 = new User(1L, "old@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(2L, "other@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user1, 2L, user2));
+
+        // when
+        User updated = user1.toBuilder().email("new@example.com").build();
+        userRepository.update(updated);
+
+        // then
+        assertTrue(userRepository.findByEmail("old@example.com").isEmpty());
+        assertEquals(List.of(updated), userRepository.findByEmail("NEW@example.com"));
+        assertEquals(List.of(user2), userRepository.findByEmail("other@example.com"));
+    }
+
+    @Test
+    void shouldNotFindByEmailAfterDelete() {
+        // given
+        User user = new User(1L, "email@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+
+        // when
+        userRepository.delete(1L);
+
+        // then
+        assertTrue(userRepository.findByEmail("email@example.com").isEmpty());
+    }
+
+    @Test
+    void shouldIncrementVersionOnWrite() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        User updated = userRepository.update(user.withId(id).withVersion(7));
+
+        // then
+        assertEquals(2, updated.getVersion());
+        assertEquals(2, userRepository.findById(id).orElseThrow().getVersion());
+        assertEquals(List.of(3L), userRepository.updateAll(List.of(updated)).stream().map(User::getVersion).toList());
+    }
+
+    @Test
+    void shouldNotUpdateWhenVersionDoesNotMatch() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        // then
+        assertThrows(PreconditionFailedException.class, () -> userRepository.update(user.toBuilder().firstName("stale").build().withId(id), version -> version == 0));
+        assertThrows(PreconditionFailedException.class, () -> userRepository.update(user.withId(id + 1), version -> version != 0));
+        assertEquals("firstName", userRepository.findById(id).orElseThrow().getFirstName());
+        assertFalse(userRepository.existsById(id + 1));
+        assertEquals(2, userRepository.update(user.withId(id), version -> version == 1).getVersion());
+    }
+
+    @Test
+    void shouldComputeOnStoredUser() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        User computed = userRepository.compute(id, existing -> existing.toBuilder().firstName("newFirstName").build()).orElseThrow();
+
+        // then
+        assertEquals("newFirstName", computed.getFirstName());
+        assertEquals(2, computed.getVersion());
+        assertEquals(computed, userRepository.findById(id).orElseThrow());
+        assertTrue(userRepository.compute(id + 1, existing -> existing).isEmpty());
+        assertFalse(userRepository.existsById(id + 1));
+    }
+
+    @Test
+    void shouldNotComputeWhenUpdateThrows() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+
+        // when
+        // then
+        assertThrows(PreconditionFailedException.class, () -> userRepository.compute(id, existing -> {
+            throw new PreconditionFailedException(id);
+        }));
+        assertEquals(1, userRepository.findById(id).orElseThrow().getVersion());
+    }
+
+    @Test
+    void shouldNotLoseConcurrentComputes() throws Exception {
+        // given
+        User user = new User(null, "email", "", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id = userRepository.create(user);
+        int threads = 4;
+        int computesPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < computesPerThread; j++) {
+                    userRepository.compute(id, existing -> existing.toBuilder().firstName(existing.getFirstName() + "x").build());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        User computed = userRepository.findById(id).orElseThrow();
+        assertEquals(threads * computesPerThread, computed.getFirstName().length());
+        assertEquals(threads * computesPerThread + 1, computed.getVersion());
+    }
+
+    @Test
+    void shouldSearchBySubstring() {
+        // given
+        User user1 = new User(null, "john.smith@example.com", "John", "Smith", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(null, "olga@example.com", "Olga", "Johnson", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of());
+        Long id1 = userRepository.create(user1);
+        Long id2 = userRepository.create(user2);
+
+        // when
+        userRepository.update(user1.toBuilder().firstName("Adam").build().withId(id1));
+
+        // then
+        assertEquals(List.of(id1, id2), userRepository.search("jo", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("jo", 1).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("Adam S", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id1), userRepository.search("SMITH", 10).stream().map(User::getId).toList());
+        assertEquals(List.of(id2), userRepository.search("nson", 10).stream().map(User::getId).toList());
+        assertTrue(userRepository.search("john s", 10).isEmpty());
+        userRepository.delete(id2);
+        assertTrue(userRepository.search("olga", 10).isEmpty());
+    }
+
+    @Test
+    void shouldSearchShortQueryWithoutScanningUsers() {
+        // given
+        User user = spy(new User(1L, "john.smith@example.com", "John", "Smith", LocalDate.now(), "address", "phoneNumber"));
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user));
+        clearInvocations(user);
+
+        // when
+        List<User> noMatches = userRepository.search("q", 10);
+        List<User> noPairMatches = userRepository.search("zz", 10);
+
+        // then
+        assertTrue(noMatches.isEmpty());
+        assertTrue(noPairMatches.isEmpty());
+        verifyNoInteractions(user);
+        assertEquals(List.of(user), userRepository.search("j", 10));
+    }
+
+    @Test
+    void shouldFindChangedSinceSequence() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user.withId(1L).withVersion(1)));
+        Long id2 = userRepository.create(user);
+        Long id3 = userRepository.create(user);
+        long mark = userRepository.findChangedSince(0, 10).sequence();
+
+        // when
+        userRepository.update(user.toBuilder().firstName("Adam").build().withId(1L));
+        userRepository.delete(id2);
+        UserChanges changes = userRepository.findChangedSince(mark, 10);
+
+        // then
+        assertEquals(List.of(1L), changes.users().stream().map(User::getId).toList());
+        assertEquals("Adam", changes.users().get(0).getFirstName());
+        assertEquals(List.of(id2), changes.deleted());
+        assertFalse(changes.more());
+        assertEquals(changes.sequence(), userRepository.findChangedSince(changes.sequence(), 10).sequence());
+        assertTrue(userRepository.findChangedSince(changes.sequence(), 10).users().isEmpty());
+        UserChanges first = userRepository.findChangedSince(0, 2);
+        assertEquals(List.of(id3, 1L), first.users().stream().map(User::getId).toList());
+        assertTrue(first.more());
+        assertEquals(List.of(id2), userRepository.findChangedSince(first.sequence(), 2).deleted());
+    }
+
+    @Test
+    void shouldApplyReplicatedUserWithItsVersion() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user.withId(1L).withVersion(1)));
+
+        // when
+        userRepository.apply(1L, user.toBuilder().firstName("Adam").build().withId(1L).withVersion(5));
+        userRepository.apply(7L, user.withId(7L).withVersion(3));
+
+        // then
+        assertEquals(5, userRepository.findById(1L).orElseThrow().getVersion());
+        assertEquals(List.of(1L), userRepository.search("adam", 10).stream().map(User::getId).toList());
+        assertEquals(user.withId(7L).withVersion(3), userRepository.findById(7L).orElseThrow());
+        assertEquals(8L, userRepository.create(user));
+        userRepository.apply(7L, null);
+        assertFalse(userRepository.existsById(7L));
+        assertEquals(List.of(1L, 8L), userRepository.findByEmail("email").stream().map(User::getId).sorted().toList());
+        assertEquals(List.of(7L), userRepository.findChangedSince(0, 10).deleted());
+    }
+
+    @Test
+    void shouldCreateAfterVersionOfReplicatedDelete() {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        UserRepository userRepository = new UserRepositoryImpl(Map.of(1L, user.withId(1L).withVersion(1)));
+        userRepository.apply(7L, user.withId(7L).withVersion(9));
+
+        // when
+        userRepository.apply(7L, null);
+
+        // then
+        assertEquals(10, userRepository.update(user.withId(7L)).getVersion());
+        assertEquals(10, userRepository.findById(userRepository.create(user)).orElseThrow().getVersion());
+    }
+}
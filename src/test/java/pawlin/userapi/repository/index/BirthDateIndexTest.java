@@ -0,0 +1,74 @@
+package pawlin.userapi.repository.index;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.repository.UserCursor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthDateIndexTest {
+    private final BirthDateIndex birthDateIndex = new BirthDateIndex();
+
+    @Test
+    void shouldFindBetweenInclusiveOrderedByDateAndId() {
+        // given
+        LocalDate date = LocalDate.of(2000, 1, 1);
+        birthDateIndex.add(3L, date);
+        birthDateIndex.add(1L, date.plusDays(1));
+        birthDateIndex.add(2L, date);
+        birthDateIndex.add(4L, date.plusDays(5));
+        birthDateIndex.add(5L, date.minusDays(1));
+
+        // when
+        List<Long> ids = birthDateIndex.findBetween(date, date.plusDays(1)).toList();
+
+        // then
+        assertEquals(List.of(2L, 3L, 1L), ids);
+    }
+
+    @Test
+    void shouldRemove() {
+        // given
+        LocalDate date = LocalDate.of(2000, 1, 1);
+        birthDateIndex.add(1L, date);
+        birthDateIndex.add(2L, date);
+
+        // when
+        birthDateIndex.remove(1L, date);
+
+        // then
+        assertEquals(List.of(2L), birthDateIndex.findBetween(LocalDate.MIN, LocalDate.MAX).toList());
+        assertEquals(1, birthDateIndex.size());
+    }
+
+    @Test
+    void shouldIgnoreMissingBirthDate() {
+        // when
+        birthDateIndex.add(1L, null);
+
+        // then
+        assertEquals(0, birthDateIndex.size());
+    }
+
+    @Test
+    void shouldFindBetweenFromCursor() {
+        // given
+        LocalDate date = LocalDate.of(2000, 1, 1);
+        birthDateIndex.add(1L, date);
+        birthDateIndex.add(2L, date);
+        birthDateIndex.add(3L, date.plusDays(1));
+        birthDateIndex.add(4L, date.plusDays(2));
+
+        // when
+        List<Long> after = birthDateIndex.findBetween(date, date.plusDays(1), UserCursor.after(date, 1L)).toList();
+        List<Long> before = birthDateIndex.findBetween(date, date.plusDays(2), UserCursor.before(date.plusDays(1), 3L)).toList();
+        List<Long> outside = birthDateIndex.findBetween(date, date.plusDays(1), UserCursor.after(date.minusDays(5), 9L)).toList();
+
+        // then
+        assertEquals(List.of(2L, 3L), after);
+        assertEquals(List.of(2L, 1L), before);
+        assertEquals(List.of(1L, 2L, 3L), outside);
+    }
+}
@@ -0,0 +1,150 @@
+package pawlin.userapi.repository.index;
+
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeIndexTest {
+    private final ChangeIndex changeIndex = new ChangeIndex();
+
+    @Test
+    void shouldKeepLatestChangePerUser() {
+        // given
+        User user = new User(2L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        changeIndex.add(1L);
+        changeIndex.add(2L);
+        changeIndex.add(1L);
+
+        // when
+        UserChanges changes = changeIndex.findAfter(0, 10, Map.of(2L, user)::get);
+
+        // then
+        assertEquals(List.of(user), changes.users());
+        assertEquals(List.of(1L), changes.deleted());
+        assertEquals(3, changes.sequence());
+        assertFalse(changes.more());
+        assertEquals(2, changeIndex.size());
+    }
+
+    @Test
+    void shouldContinueAfterLimit() {
+        // given
+        for (long id = 1; id <= 5; id++) {
+            changeIndex.add(id);
+        }
+
+        // when
+        UserChanges first = changeIndex.findAfter(1, 2, id -> null);
+        UserChanges second = changeIndex.findAfter(first.sequence(), 10, id -> null);
+
+        // then
+        assertEquals(List.of(2L, 3L), first.deleted());
+        assertEquals(3, first.sequence());
+        assertTrue(first.more());
+        assertEquals(List.of(4L, 5L), second.deleted());
+        assertEquals(5, second.sequence());
+        assertFalse(second.more());
+    }
+
+    @Test
+    void shouldReturnLastSequenceWhenUpToDate() {
+        // given
+        changeIndex.add(1L);
+
+        // when
+        UserChanges changes = changeIndex.findAfter(1, 10, id -> null);
+
+        // then
+        assertTrue(changes.users().isEmpty());
+        assertTrue(changes.deleted().isEmpty());
+        assertEquals(1, changes.sequence());
+        assertEquals(1, changeIndex.lastSequence());
+    }
+
+    @Test
+    void shouldMergeIndexesBySequence() {
+        // given
+        ChangeSequence changeSequence = new ChangeSequence();
+        ChangeIndex even = new ChangeIndex(changeSequence);
+        ChangeIndex odd = new ChangeIndex(changeSequence);
+        for (long id = 1; id <= 6; id++) {
+            (id % 2 == 0 ? even : odd).add(id);
+        }
+        odd.add(1L);
+
+        // when
+        UserChanges first = ChangeIndex.findAfter(List.of(even, odd), 0, 3, id -> null);
+        UserChanges second = ChangeIndex.findAfter(List.of(even, odd), first.sequence(), 10, id -> null);
+
+        // then
+        assertEquals(List.of(2L, 3L, 4L), first.deleted());
+        assertTrue(first.more());
+        assertEquals(List.of(5L, 6L, 1L), second.deleted());
+        assertEquals(7, second.sequence());
+        assertFalse(second.more());
+    }
+
+    @Test
+    void shouldNotSkipChangesAddedConcurrently() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            long first = writer * 2_000L;
+            writers.add(executor.submit(() -> {
+                for (long id = first; id < first + 2_000; id++) {
+                    changeIndex.add(id);
+                }
+            }));
+        }
+
+        // when
+        Set<Long> read = new HashSet<>();
+        long sequence = 0;
+        while (sequence < 8_000) {
+            UserChanges changes = changeIndex.findAfter(sequence, 100, id -> null);
+            read.addAll(changes.deleted());
+            sequence = changes.sequence();
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(8_000, read.size());
+        assertEquals(8_000, changeIndex.lastSequence());
+    }
+
+    @Test
+    void shouldCompactDeletedUsersAndResetOlderMarks() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        changeIndex.add(1L);
+        changeIndex.add(2L);
+        changeIndex.add(3L);
+        changeIndex.add(4L);
+
+        // when
+        changeIndex.compact(3, Set.of(1L)::contains);
+        UserChanges older = changeIndex.findAfter(1, 10, Map.of(1L, user)::get);
+        UserChanges newer = changeIndex.findAfter(3, 10, Map.of(1L, user)::get);
+
+        // then
+        assertEquals(2, changeIndex.size());
+        assertTrue(older.reset());
+        assertEquals(List.of(user), older.users());
+        assertEquals(List.of(4L), older.deleted());
+        assertFalse(newer.reset());
+        assertEquals(List.of(4L), newer.deleted());
+        assertFalse(changeIndex.findAfter(0, 10, id -> null).reset());
+    }
+}
@@ -0,0 +1,38 @@
+package pawlin.userapi.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailIndexTest {
+    private final EmailIndex emailIndex = new EmailIndex();
+
+    @Test
+    void shouldFindIgnoringCase() {
+        // given
+        emailIndex.add(2L, "John@Example.com");
+        emailIndex.add(1L, "john@example.com");
+        emailIndex.add(3L, "jane@example.com");
+
+        // when
+        List<Long> ids = emailIndex.find("JOHN@example.com").toList();
+
+        // then
+        assertEquals(List.of(1L, 2L), ids);
+    }
+
+    @Test
+    void shouldRemoveEmptyEntries() {
+        // given
+        emailIndex.add(1L, "john@example.com");
+
+        // when
+        emailIndex.remove(1L, "john@example.com");
+
+        // then
+        assertTrue(emailIndex.find("john@example.com").toList().isEmpty());
+        assertEquals(0, emailIndex.size());
+    }
+}
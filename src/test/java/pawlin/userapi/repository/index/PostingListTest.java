@@ -0,0 +1,78 @@
+package pawlin.userapi.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+    @Test
+    void shouldKeepIdsSortedAcrossBlocks() {
+        // given
+        PostingList postingList = new PostingList();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        // when
+        for (long id = 1; id <= 2000; id += 1 + random.nextInt(3)) {
+            postingList.add(id);
+            expected.add(id);
+        }
+        for (int i = 0; i < 3000; i++) {
+            long id = 1 + random.nextInt(2500);
+            if (random.nextBoolean()) {
+                postingList.add(id);
+                expected.add(id);
+            } else {
+                assertEquals(expected.remove(id), postingList.remove(id));
+            }
+        }
+
+        // then
+        assertEquals(List.copyOf(expected), postingList.stream().toList());
+        assertEquals(expected.size(), postingList.size());
+    }
+
+    @Test
+    void shouldKeepWideGapsInPlace() {
+        // given
+        PostingList postingList = new PostingList();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(11);
+
+        // when
+        for (int i = 0; i < 5000; i++) {
+            long id = random.nextInt(400) * 1_000_003L;
+            if (random.nextInt(3) > 0) {
+                postingList.add(id);
+                expected.add(id);
+            } else {
+                assertEquals(expected.remove(id), postingList.remove(id));
+            }
+        }
+
+        // then
+        assertEquals(List.copyOf(expected), postingList.stream().toList());
+        assertEquals(expected.size(), postingList.size());
+    }
+
+    @Test
+    void shouldAppendAfterRemovingLastId() {
+        // given
+        PostingList postingList = new PostingList();
+        postingList.add(1L);
+        postingList.add(300L);
+
+        // when
+        postingList.remove(300L);
+        postingList.add(200L);
+        postingList.add(Long.MAX_VALUE);
+
+        // then
+        assertEquals(List.of(1L, 200L, Long.MAX_VALUE), postingList.stream().toList());
+        assertFalse(postingList.remove(300L));
+    }
+}
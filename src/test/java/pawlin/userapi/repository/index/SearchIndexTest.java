@@ -0,0 +1,89 @@
+package pawlin.userapi.repository.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    @Test
+    void shouldFindBySubstringIgnoringCase() {
+        // given
+        searchIndex.add(1L, "john.smith@example.com", "John", "Smith");
+        searchIndex.add(2L, "jane@example.com", "Jane", "Doe");
+        searchIndex.add(3L, "olga@mail.com", "Olga", "Johnson");
+
+        // when
+        // then
+        assertEquals(List.of(1L, 3L), searchIndex.find("JOHN").toList());
+        assertEquals(List.of(1L), searchIndex.find("john s").toList());
+        assertEquals(List.of(1L), searchIndex.find("mith").toList());
+        assertEquals(List.of(1L, 2L), searchIndex.find("example.c").toList());
+        assertTrue(searchIndex.find("smith@mail").toList().isEmpty());
+    }
+
+    @Test
+    void shouldFindByOneOrTwoCharacters() {
+        // given
+        searchIndex.add(1L, "john.smith@example.com", "John", "Smith");
+        searchIndex.add(2L, "jane@example.com", "Jane", "Doe");
+        searchIndex.add(3L, "olga@mail.com", "Olga", "Johnson");
+        searchIndex.add(4L, null, "Al", null);
+
+        // when
+        // then
+        assertTrue(searchIndex.covers("j"));
+        assertFalse(searchIndex.covers(""));
+        assertEquals(List.of(1L, 2L, 3L), searchIndex.find("J").toList());
+        assertEquals(List.of(1L, 3L), searchIndex.find("jo").toList());
+        assertEquals(List.of(2L), searchIndex.find("e@").toList());
+        assertEquals(List.of(4L), searchIndex.find("al").toList());
+        assertEquals(List.of(1L, 2L, 3L, 4L), searchIndex.find("l").toList());
+        assertTrue(searchIndex.covers("q"));
+        assertTrue(searchIndex.find("q").toList().isEmpty());
+        assertTrue(searchIndex.find("zz").toList().isEmpty());
+    }
+
+    @Test
+    void shouldNotCoverShortQueryInTooManyTrigrams() {
+        // given
+        for (long id = 1; id <= 20_000; id++) {
+            searchIndex.add(id, "x" + id + "@example.com", null, null);
+        }
+
+        // when
+        // then
+        assertFalse(searchIndex.covers("x"));
+        assertTrue(searchIndex.covers("x1"));
+        assertEquals(List.of(1L, 10L, 11L), searchIndex.find("x1").limit(3).toList());
+        assertTrue(searchIndex.covers("q"));
+    }
+
+    @Test
+    void shouldRemoveAllTrigrams() {
+        // given
+        searchIndex.add(1L, "john@example.com", "John", null);
+        searchIndex.add(2L, "adam@example.com", "Adam", null);
+
+        // when
+        searchIndex.remove(1L, "john@example.com", "John", null);
+
+        // then
+        assertTrue(searchIndex.find("joh").toList().isEmpty());
+        assertTrue(searchIndex.find("j").toList().isEmpty());
+        assertEquals(List.of(2L), searchIndex.find("example").toList());
+        searchIndex.remove(2L, "adam@example.com", "Adam", null);
+        assertEquals(0, searchIndex.size());
+    }
+
+    @Test
+    void shouldMatchLikeFind() {
+        // then
+        assertTrue(SearchIndex.matches("john@example.com", "John", "Smith", "N SMI"));
+        assertTrue(SearchIndex.matches("john@example.com", null, null, "ample"));
+        assertFalse(SearchIndex.matches("john@example.com", "John", "Smith", "smith@"));
+    }
+}
@@ -0,0 +1,56 @@
+package pawlin.userapi.repository.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pawlin.userapi.model.User;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedUserSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReadRecordsById() throws IOException {
+        // given
+        User user1 = new User(3L, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        User user2 = new User(1L, "émail", null, "lastName", null, null, "phoneNumber");
+        SnapshotFile.write(directory, 7, List.of(user1, user2).iterator());
+
+        // when
+        MappedUserSnapshot snapshot = SnapshotFile.read(SnapshotFile.latest(directory).orElseThrow());
+
+        // then
+        assertEquals(7, snapshot.replayFrom());
+        assertEquals(2, snapshot.size());
+        assertEquals(user1, snapshot.get(3L));
+        assertEquals(user2, snapshot.get(1L));
+        assertNull(snapshot.get(2L));
+        assertFalse(snapshot.containsKey(4L));
+        assertEquals(Map.of(1L, user2, 3L, user1), Map.copyOf(snapshot));
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        SnapshotFile.write(directory, 1, List.of(user).iterator());
+        Path path = SnapshotFile.latest(directory).orElseThrow();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 1);
+        }
+
+        // when
+        // then
+        assertThrows(IOException.class, () -> SnapshotFile.read(path));
+    }
+}
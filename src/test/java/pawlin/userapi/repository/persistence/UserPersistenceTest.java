@@ -0,0 +1,192 @@
+package pawlin.userapi.repository.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pawlin.userapi.configuration.PersistenceProperties;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.implementation.ColumnarUserRepository;
+import pawlin.userapi.repository.implementation.UserRepositoryImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserPersistenceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverFromLog() throws IOException {
+        // given
+        User user1 = new User(null, "email1", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        User user2 = new User(null, "email2", "firstName", null, null, null, null);
+
+        try (UserPersistence persistence = persistence()) {
+            UserRepository userRepository = new UserRepositoryImpl(persistence.recover(), persistence);
+            Long id1 = userRepository.create(user1);
+            Long id2 = userRepository.create(user2);
+            userRepository.update(user1.toBuilder().firstName("updated").build().withId(id1));
+            userRepository.delete(id2);
+        }
+
+        // when
+        Map<Long, User> users;
+        try (UserPersistence persistence = persistence()) {
+            users = persistence.recover();
+        }
+
+        // then
+        assertEquals(Map.of(1L, user1.toBuilder().firstName("updated").build().withId(1L)), users);
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotAndLogTail() throws IOException {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+
+        try (UserPersistence persistence = persistence()) {
+            UserRepository userRepository = new UserRepositoryImpl(persistence.recover(), persistence);
+            userRepository.create(user);
+            userRepository.create(user);
+            assertEquals(2, persistence.snapshot(userRepository.streamAll()));
+            userRepository.delete(1L);
+            userRepository.create(user);
+            assertEquals(List.of(1L, 2L), persistence.segments());
+        }
+
+        // when
+        Map<Long, User> users;
+        try (UserPersistence persistence = persistence()) {
+            users = persistence.recover();
+        }
+
+        // then
+        assertEquals(Map.of(2L, user.withId(2L), 3L, user.withId(3L)), users);
+    }
+
+    @Test
+    void shouldLoadRepositoryFromSnapshotWithLogLaidOverIt() throws IOException {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+
+        try (UserPersistence persistence = persistence()) {
+            UserRepository userRepository = new UserRepositoryImpl(persistence.recover(), persistence);
+            userRepository.create(user);
+            userRepository.create(user);
+            userRepository.create(user);
+            persistence.snapshot(userRepository.streamAll());
+            userRepository.update(user.toBuilder().firstName("updated").build().withId(2L));
+            userRepository.delete(3L);
+            userRepository.create(user);
+        }
+
+        // when
+        Map<Long, User> users;
+        UserRepository userRepository;
+        try (UserPersistence persistence = persistence()) {
+            users = persistence.recover();
+            userRepository = new ColumnarUserRepository(users);
+        }
+
+        // then
+        assertEquals(3, users.size());
+        assertEquals(Set.of(1L, 2L, 4L), users.keySet());
+        assertFalse(users.containsKey(3L));
+        assertEquals("updated", users.get(2L).getFirstName());
+        assertEquals(Map.copyOf(users), users.entrySet().parallelStream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        assertEquals(List.of(1L, 2L, 4L), userRepository.findAll().stream().map(User::getId).toList());
+        assertEquals(users.get(2L), userRepository.findById(2L).orElseThrow());
+    }
+
+    @Test
+    void shouldStopReplayAtTornRecord() throws IOException {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+
+        try (UserPersistence persistence = persistence()) {
+            UserRepository userRepository = new UserRepositoryImpl(persistence.recover(), persistence);
+            userRepository.create(user);
+            userRepository.create(user);
+        }
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+
+        // when
+        Map<Long, User> users;
+        try (UserPersistence persistence = persistence()) {
+            users = persistence.recover();
+        }
+
+        // then
+        assertEquals(Map.of(1L, user.withId(1L)), users);
+    }
+
+    @Test
+    void shouldForceConcurrentWritesBeforeReturning() throws Exception {
+        // given
+        User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try (UserPersistence persistence = persistence()) {
+            UserRepository userRepository = new UserRepositoryImpl(persistence.recover(), persistence);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        userRepository.create(user);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            // when
+            Map<Long, User> users;
+            try (UserPersistence recovering = persistence()) {
+                users = recovering.recover();
+            }
+
+            // then
+            assertEquals(400, users.size());
+        }
+    }
+
+    @Test
+    void shouldNotRecoverTwice() throws IOException {
+        // given
+        try (UserPersistence persistence = persistence()) {
+            persistence.recover();
+
+            // when
+            // then
+            assertThrows(IllegalStateException.class, persistence::recover);
+        }
+    }
+
+    private UserPersistence persistence() {
+        return new UserPersistence(new PersistenceProperties(true, directory, 1, Duration.ofMillis(100), Duration.ofMinutes(10)));
+    }
+}
@@ -0,0 +1,70 @@
+package pawlin.userapi.repository.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pawlin.userapi.model.User;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class WriteAheadLogTest {
+    private static final User USER = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldWriteRecordsBeforeForcingThem() throws IOException {
+        // given
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1000)) {
+            writeAheadLog.open(1);
+            writeAheadLog.sync(writeAheadLog.append(1L, USER.withId(1L)));
+            writeAheadLog.sync(writeAheadLog.append(1L, null));
+
+            // when
+            List<Long> replayed = new ArrayList<>();
+            long records = new WriteAheadLog(directory, 1000).replay(1, (id, user) -> replayed.add(user != null ? id : -id));
+
+            // then
+            assertEquals(2, records);
+            assertEquals(List.of(1L, -1L), replayed);
+        }
+    }
+
+    @Test
+    void shouldFailSyncOfEveryRecordAfterFailedForce() throws IOException {
+        // given
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 2) {
+            @Override
+            FileChannel openSegment(Path path) throws IOException {
+                FileChannel channel = mock(FileChannel.class, delegatesTo(super.openSegment(path)));
+                doThrow(new IOException("Input/output error")).doNothing().when(channel).force(false);
+                return channel;
+            }
+        };
+        writeAheadLog.open(1);
+        long first = writeAheadLog.append(1L, USER.withId(1L));
+        writeAheadLog.sync(first);
+        long second = writeAheadLog.append(2L, USER.withId(2L));
+
+        // when
+        assertThrows(IOException.class, () -> writeAheadLog.sync(second));
+
+        // then
+        assertThrows(IOException.class, () -> writeAheadLog.sync(first));
+        assertThrows(IOException.class, writeAheadLog::sync);
+        assertThrows(IOException.class, () -> writeAheadLog.sync(second));
+        assertThrows(IOException.class, () -> writeAheadLog.append(3L, USER.withId(3L)));
+        writeAheadLog.close();
+    }
+}
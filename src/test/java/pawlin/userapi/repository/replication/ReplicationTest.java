@@ -0,0 +1,117 @@
+package pawlin.userapi.repository.replication;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pawlin.userapi.configuration.ReplicationProperties;
+import pawlin.userapi.event.UserEventBuffer;
+import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.implementation.ColumnarUserRepository;
+import pawlin.userapi.repository.implementation.UserRepositoryImpl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+    private final User user = new User(null, "email", "firstName", "lastName", LocalDate.of(1990, 1, 1), "address", "phoneNumber");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserRepository leaderRepository;
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        leaderRepository = new UserRepositoryImpl(Map.of(1L, user.withId(1L).withVersion(1), 2L, user.withId(2L).withVersion(4)));
+        leader = new ReplicationLeader(leaderRepository, new UserEventBuffer(16), properties(ReplicationProperties.Role.LEADER, 0), meterRegistry);
+        leader.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (follower != null) {
+            follower.close();
+        }
+        leader.close();
+    }
+
+    @Test
+    void shouldCatchUpFromSnapshotAndFollowChanges() throws InterruptedException {
+        // given
+        UserRepository followerRepository = new ColumnarUserRepository(Map.of());
+        follower = follower(followerRepository);
+
+        // when
+        follower.start();
+        await(follower::isCaughtUp);
+        Long id3 = leaderRepository.create(user);
+        leaderRepository.update(user.toBuilder().firstName("Adam").build().withId(1L));
+        leaderRepository.delete(2L);
+
+        // then
+        await(() -> follower.isCaughtUp() && followerRepository.count() == 2 && followerRepository.existsById(id3) && !followerRepository.existsById(2L));
+        assertEquals(sorted(leaderRepository.findAll()), sorted(followerRepository.findAll()));
+        assertEquals(2, followerRepository.findById(1L).orElseThrow().getVersion());
+        assertEquals(1, meterRegistry.get("user.replication.snapshots").counter().count());
+        assertEquals(0, meterRegistry.get("user.replication.lag.changes").gauge().value());
+    }
+
+    @Test
+    void shouldRemoveUsersMissingFromSnapshot() throws InterruptedException {
+        // given
+        UserRepository followerRepository = new UserRepositoryImpl(Map.of(2L, user.withId(2L).withVersion(2), 9L, user.withId(9L).withVersion(1)));
+        follower = follower(followerRepository);
+
+        // when
+        follower.start();
+        await(follower::isCaughtUp);
+
+        // then
+        assertEquals(sorted(leaderRepository.findAll()), sorted(followerRepository.findAll()));
+        assertFalse(followerRepository.existsById(9L));
+    }
+
+    @Test
+    void shouldHoldBackCompactionAtFollowerPosition() throws InterruptedException {
+        // given
+        UserRepository followerRepository = new UserRepositoryImpl(Map.of());
+        follower = follower(followerRepository);
+        assertEquals(Long.MAX_VALUE, leader.oldestPosition());
+
+        // when
+        follower.start();
+        await(follower::isCaughtUp);
+        long head = leaderRepository.findChangedSince(Long.MAX_VALUE, 1).sequence();
+
+        // then
+        await(() -> leader.oldestPosition() == head);
+    }
+
+    private ReplicationFollower follower(UserRepository followerRepository) {
+        return new ReplicationFollower(followerRepository, properties(ReplicationProperties.Role.FOLLOWER, leader.getPort()), meterRegistry);
+    }
+
+    private static ReplicationProperties properties(ReplicationProperties.Role role, int port) {
+        return new ReplicationProperties(role, "localhost", port, 1, Duration.ofMillis(10), Duration.ofMillis(200), Duration.ofMillis(50));
+    }
+
+    private static List<User> sorted(List<User> users) {
+        return users.stream().sorted(Comparator.comparing(User::getId)).toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Follower did not catch up in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -1,24 +1,46 @@
 package pawlin.userapi.service.implementation;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.Validator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.hateoas.CollectionModel;
+import pawlin.userapi.dto.SerializedUserDto;
+import pawlin.userapi.dto.UserBatchResultDto;
+import pawlin.userapi.dto.UserBatchUpdateRequestDto;
+import pawlin.userapi.dto.UserChangeDto;
+import pawlin.userapi.dto.UserChangesDto;
 import pawlin.userapi.dto.UserDto;
+import pawlin.userapi.dto.UserField;
 import pawlin.userapi.dto.UserRequestDto;
 import pawlin.userapi.dto.mapper.UserDtoModelAssembler;
+import pawlin.userapi.dto.mapper.UserFieldsWriter;
+import pawlin.userapi.dto.mapper.UserResponseCache;
+import pawlin.userapi.dto.validation.UserRequestValidator;
+import pawlin.userapi.event.UserEvent;
+import pawlin.userapi.event.UserEventBuffer;
 import pawlin.userapi.exception.EntityNotFoundException;
+import pawlin.userapi.exception.PreconditionFailedException;
 import pawlin.userapi.exception.RequestParameterNotValidException;
 import pawlin.userapi.model.User;
+import pawlin.userapi.repository.UserChanges;
+import pawlin.userapi.repository.UserCursor;
 import pawlin.userapi.repository.UserRepository;
+import pawlin.userapi.repository.UserWriteListener;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
@@ -26,12 +48,22 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceImplTest {
+    private static final LongPredicate ANY_VERSION = version -> true;
+
     @Mock
     private UserRepository userRepository;
     @Mock
     private UserDtoModelAssembler userDtoModelAssembler;
     @Mock
-    private Validator validator;
+    private UserResponseCache userResponseCache;
+    @Mock
+    private UserFieldsWriter userFieldsWriter;
+    @Mock
+    private UserRequestValidator userRequestValidator;
+    @Spy
+    private UserEventBuffer userEventBuffer = new UserEventBuffer(16);
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -66,6 +98,21 @@ class UserServiceImplTest {
         assertEquals(userDto, foundUser);
     }
 
+    @Test
+    void shouldFindSerializedById() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        SerializedUserDto serializedUserDto = new SerializedUserDto(0, new byte[0]);
+
+        // when
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userResponseCache.get(eq(user), any())).thenReturn(serializedUserDto);
+        SerializedUserDto foundUser = userService.findSerializedById(1L);
+
+        // then
+        assertSame(serializedUserDto, foundUser);
+    }
+
     @Test
     void shouldNotFindById() {
         // given
@@ -97,6 +144,8 @@ class UserServiceImplTest {
         assertEquals(2, users.getContent().size());
         assertTrue(users.getContent().contains(userDto1));
         assertTrue(users.getContent().contains(userDto2));
+        assertEquals(1, meterRegistry.get("user.range.results").summary().count());
+        assertEquals(2, meterRegistry.get("user.range.results").summary().totalAmount());
     }
 
     @Test
@@ -161,11 +210,12 @@ class UserServiceImplTest {
 
         // when
         when(userRepository.create(user)).thenReturn(15L);
-        when(validator.validate(userRequestDto)).thenReturn(Set.of());
+        when(userRequestValidator.validate(userRequestDto)).thenReturn(Set.of());
         Long id = userService.create(userRequestDto);
 
         // then
         assertEquals(15L, id);
+        assertEquals(1, meterRegistry.get("user.validation").timer().count());
     }
 
     @Test
@@ -176,7 +226,7 @@ class UserServiceImplTest {
         ConstraintViolation<UserRequestDto> constraintViolation = mock(ConstraintViolation.class);
 
         // when
-        when(validator.validate(userRequestDto)).thenReturn(Set.of(constraintViolation));
+        when(userRequestValidator.validate(userRequestDto)).thenReturn(Set.of(constraintViolation));
 
         // then
         assertThrows(ConstraintViolationException.class, () -> userService.create(userRequestDto));
@@ -190,13 +240,14 @@ class UserServiceImplTest {
         UserDto userDto = new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
 
         // when
-        when(userRepository.update(user)).thenReturn(user);
-        when(validator.validate(userRequestDto)).thenReturn(Set.of());
+        when(userRepository.update(user, ANY_VERSION)).thenReturn(user);
+        when(userRequestValidator.validate(userRequestDto)).thenReturn(Set.of());
         when(userDtoModelAssembler.toModel(user)).thenReturn(userDto);
-        UserDto updatedUser = userService.update(1L, userRequestDto);
+        UserDto updatedUser = userService.update(1L, userRequestDto, ANY_VERSION);
 
         // then
         assertEquals(userDto, updatedUser);
+        verify(userResponseCache).invalidate(1L);
     }
 
     @Test
@@ -207,63 +258,381 @@ class UserServiceImplTest {
         ConstraintViolation<UserRequestDto> constraintViolation = mock(ConstraintViolation.class);
 
         // when
-        when(validator.validate(userRequestDto)).thenReturn(Set.of(constraintViolation));
+        when(userRequestValidator.validate(userRequestDto)).thenReturn(Set.of(constraintViolation));
 
         // then
-        assertThrows(ConstraintViolationException.class, () -> userService.update(1L, userRequestDto));
+        assertThrows(ConstraintViolationException.class, () -> userService.update(1L, userRequestDto, ANY_VERSION));
     }
 
     @Test
     void shouldUpdatePartially() {
         // given
         User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        User patchedUser = new User(1L, "email", "newFirstName", "lastName", LocalDate.now(), "address", "phoneNumber");
         UserRequestDto userRequestDto = new UserRequestDto(null, "newFirstName", null, null, null, null);
-        UserDto userDto = new UserDto(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserDto userDto = new UserDto(1L, "email", "newFirstName", "lastName", LocalDate.now(), "address", "phoneNumber");
 
         // when
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(validator.validateProperty(userRequestDto, "firstName")).thenReturn(Set.of());
-        when(userRepository.update(user)).thenReturn(user);
-        when(userDtoModelAssembler.toModel(user)).thenReturn(userDto);
+        when(userRequestValidator.validatePresent(userRequestDto)).thenReturn(Set.of());
+        when(userRepository.compute(eq(1L), any())).thenAnswer(invocation -> Optional.of(invocation.<UnaryOperator<User>>getArgument(1).apply(user)));
+        when(userDtoModelAssembler.toModel(patchedUser)).thenReturn(userDto);
 
-        UserDto updatedUser = userService.partialUpdate(1L, userRequestDto);
+        UserDto updatedUser = userService.partialUpdate(1L, userRequestDto, ANY_VERSION);
 
         // then
         assertEquals(userDto, updatedUser);
+        verify(userResponseCache).invalidate(1L);
+        assertEquals("firstName", user.getFirstName());
+    }
+
+    @Test
+    void shouldNotUpdatePartiallyMissingUser() {
+        // given
+        UserRequestDto userRequestDto = new UserRequestDto(null, "newFirstName", null, null, null, null);
+
+        // when
+        when(userRequestValidator.validatePresent(userRequestDto)).thenReturn(Set.of());
+        when(userRepository.compute(eq(1L), any())).thenReturn(Optional.empty());
+
+        // then
+        assertThrows(EntityNotFoundException.class, () -> userService.partialUpdate(1L, userRequestDto, ANY_VERSION));
+        verify(userResponseCache, never()).invalidate(any());
     }
 
     @Test
     void shouldNotUpdatePartiallyWhenValidationFails() {
         // given
-        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
         UserRequestDto userRequestDto = new UserRequestDto(null, "", null, null, null, null);
         @SuppressWarnings("unchecked")
         ConstraintViolation<UserRequestDto> constraintViolation = mock(ConstraintViolation.class);
 
         // when
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(validator.validateProperty(userRequestDto, "firstName")).thenReturn(Set.of(constraintViolation));
+        when(userRequestValidator.validatePresent(userRequestDto)).thenReturn(Set.of(constraintViolation));
+
+        // then
+        assertThrows(ConstraintViolationException.class, () -> userService.partialUpdate(1L, userRequestDto, ANY_VERSION));
+        verify(userRepository, never()).compute(any(), any());
+    }
+
+    @Test
+    void shouldNotUpdatePartiallyWhenVersionDoesNotMatch() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber").withVersion(2);
+        UserRequestDto userRequestDto = new UserRequestDto(null, "newFirstName", null, null, null, null);
+
+        // when
+        when(userRequestValidator.validatePresent(userRequestDto)).thenReturn(Set.of());
+        when(userRepository.compute(eq(1L), any())).thenAnswer(invocation -> Optional.of(invocation.<UnaryOperator<User>>getArgument(1).apply(user)));
 
         // then
-        assertThrows(ConstraintViolationException.class, () -> userService.partialUpdate(1L, userRequestDto));
+        assertThrows(PreconditionFailedException.class, () -> userService.partialUpdate(1L, userRequestDto, version -> version == 1));
     }
 
     @Test
     void shouldDelete() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber", 1);
+
         // when
-        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.delete(1L)).thenReturn(Optional.of(user));
         userService.delete(1L);
 
         // then
         verify(userRepository).delete(1L);
+        verify(userResponseCache).invalidate(1L);
     }
 
     @Test
     void shouldNotDelete() {
         // when
-        when(userRepository.existsById(1L)).thenReturn(false);
+        when(userRepository.delete(1L)).thenReturn(Optional.empty());
 
         // then
         assertThrows(EntityNotFoundException.class, () -> userService.delete(1L));
+        verifyNoInteractions(userResponseCache);
+    }
+
+    @Test
+    void shouldPublishRepositoryWrites() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber", 1);
+        ArgumentCaptor<UserWriteListener> listener = ArgumentCaptor.forClass(UserWriteListener.class);
+        verify(userRepository).addListener(listener.capture());
+
+        // when
+        listener.getValue().written(1L, null, user);
+        listener.getValue().written(1L, user, user.withVersion(2));
+        listener.getValue().written(1L, user.withVersion(2), null);
+
+        // then
+        assertEquals(List.of(new UserEvent(1, UserEvent.Type.CREATED, 1L, user),
+                new UserEvent(2, UserEvent.Type.UPDATED, 1L, user.withVersion(2)),
+                new UserEvent(3, UserEvent.Type.DELETED, 1L, null)), userEventBuffer.readAfter(0, 10));
+    }
+
+    @Test
+    void shouldFindFirstPageWithNextCursor() {
+        // given
+        User user1 = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        CollectionModel<UserDto> model = CollectionModel.empty();
+
+        // when
+        when(userRepository.findAll(null, 2)).thenReturn(List.of(user1, user2));
+        when(userDtoModelAssembler.toPagedModel(List.of(user1), null, null, 1, "1", null)).thenReturn(model);
+        CollectionModel<UserDto> result = userService.findPage(null, null, 1, null, null);
+
+        // then
+        assertSame(model, result);
+    }
+
+    @Test
+    void shouldFindPageBeforeCursor() {
+        // given
+        LocalDate birthDate = LocalDate.of(2000, 1, 1);
+        User user1 = new User(1L, "email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        User user2 = new User(2L, "email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        UserCursor cursor = UserCursor.before(birthDate, 3L);
+        CollectionModel<UserDto> model = CollectionModel.empty();
+
+        // when
+        when(userRepository.findByBirthDateBetween(birthDate, LocalDate.MAX, cursor, 2)).thenReturn(List.of(user1, user2));
+        when(userDtoModelAssembler.toPagedModel(List.of(user2), birthDate, null, 1, "2000-01-01_2", "2000-01-01_2")).thenReturn(model);
+        CollectionModel<UserDto> result = userService.findPage(birthDate, null, 1, null, "2000-01-01_3");
+
+        // then
+        assertSame(model, result);
+        assertEquals(1, meterRegistry.get("user.range.results").summary().totalAmount());
+    }
+
+    @Test
+    void shouldNotFindPageWhenCursorInvalid() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findPage(LocalDate.now(), null, 1, "abc", null));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findPage(null, null, 1, "1", "2"));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findPage(null, null, 0, null, null));
+    }
+
+    @Test
+    void shouldExportAll() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+
+        // when
+        when(userRepository.streamAll()).thenReturn(Stream.of(user));
+        List<User> users = userService.export(null, null).toList();
+
+        // then
+        assertEquals(List.of(user), users);
+    }
+
+    @Test
+    void shouldExportByBirthDate() {
+        // given
+        LocalDate startDate = LocalDate.now().minusDays(2);
+
+        // when
+        when(userRepository.streamByBirthDateBetween(startDate, LocalDate.MAX)).thenReturn(Stream.empty());
+        List<User> users = userService.export(startDate, null).toList();
+
+        // then
+        assertTrue(users.isEmpty());
+    }
+
+    @Test
+    void shouldNotExportWhenInvalidRange() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.export(LocalDate.now(), LocalDate.now().minusDays(1)));
+    }
+
+    @Test
+    void shouldCreateAllAndReportInvalidItems() {
+        // given
+        LocalDate birthDate = LocalDate.now().minusYears(20);
+        UserRequestDto valid = new UserRequestDto("email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        UserRequestDto invalid = new UserRequestDto("email", "", "lastName", birthDate, "address", "phoneNumber");
+        User user = new User(null, "email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        @SuppressWarnings("unchecked")
+        ConstraintViolation<UserRequestDto> constraintViolation = mock(ConstraintViolation.class);
+        URI location = URI.create("http://localhost/api/users/7");
+
+        // when
+        when(userRequestValidator.validate(valid)).thenReturn(Set.of());
+        when(userRequestValidator.validate(invalid)).thenReturn(Set.of(constraintViolation));
+        when(userRepository.createAll(List.of(user))).thenReturn(List.of(7L));
+        when(userDtoModelAssembler.toLocations()).thenReturn(id -> location);
+        List<UserBatchResultDto> results = userService.createAll(List.of(invalid, valid));
+
+        // then
+        assertEquals(2, results.size());
+        assertEquals(400, results.get(0).status());
+        assertNull(results.get(0).id());
+        assertEquals(new UserBatchResultDto(1, 201, 7L, location, null), results.get(1));
+    }
+
+    @Test
+    void shouldUpdateAllAndReportMissingIds() {
+        // given
+        LocalDate birthDate = LocalDate.now().minusYears(20);
+        UserRequestDto userRequestDto = new UserRequestDto("email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        User user = new User(3L, "email", "firstName", "lastName", birthDate, "address", "phoneNumber");
+        URI location = URI.create("http://localhost/api/users/3");
+
+        // when
+        when(userRequestValidator.validate(userRequestDto)).thenReturn(Set.of());
+        when(userRepository.updateAll(List.of(user))).thenReturn(List.of(user));
+        when(userDtoModelAssembler.toLocations()).thenReturn(id -> location);
+        List<UserBatchResultDto> results = userService.updateAll(List.of(new UserBatchUpdateRequestDto(3L, userRequestDto), new UserBatchUpdateRequestDto(null, userRequestDto)));
+
+        // then
+        assertEquals(new UserBatchResultDto(0, 200, 3L, location, null), results.get(0));
+        assertEquals(new UserBatchResultDto(1, 400, null, null, "Missing id"), results.get(1));
+    }
+
+    @Test
+    void shouldNotCreateAllWhenBatchEmpty() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.createAll(List.of()));
+    }
+
+    @Test
+    void shouldFindByEmail() {
+        // given
+        User user = new User(1L, "email@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserDto userDto = new UserDto(1L, "email@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+
+        // when
+        when(userRepository.findByEmail("email@example.com")).thenReturn(List.of(user));
+        when(userDtoModelAssembler.toCollectionModel(List.of(user))).thenReturn(CollectionModel.of(List.of(userDto)));
+        CollectionModel<UserDto> users = userService.findByEmail("email@example.com");
+
+        // then
+        assertEquals(1, users.getContent().size());
+        assertTrue(users.getContent().contains(userDto));
+    }
+
+    @Test
+    void shouldNotFindByBlankEmail() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findByEmail(" "));
+    }
+
+    @Test
+    void shouldSearch() {
+        // given
+        User user = new User(1L, "email@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        UserDto userDto = new UserDto(1L, "email@example.com", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+
+        // when
+        when(userRepository.search("first", 10)).thenReturn(List.of(user));
+        when(userDtoModelAssembler.toCollectionModel(List.of(user))).thenReturn(CollectionModel.of(List.of(userDto)));
+        CollectionModel<UserDto> users = userService.search(" first ", 10);
+
+        // then
+        assertEquals(List.of(userDto), List.copyOf(users.getContent()));
+    }
+
+    @Test
+    void shouldFindChanges() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber", 2);
+        when(userRepository.findChangedSince(0, 10)).thenReturn(new UserChanges(List.of(user), List.of(2L), 5, true));
+        when(userRepository.findChangedSince(5, 10)).thenReturn(new UserChanges(List.of(), List.of(), 5, false));
+
+        // when
+        UserChangesDto changes = userService.findChanges("0", 10);
+        UserChangesDto next = userService.findChanges(changes.highWaterMark(), 10);
+
+        // then
+        assertEquals(List.of(UserChangeDto.of(user)), changes.users());
+        assertEquals(List.of(2L), changes.deleted());
+        assertTrue(changes.more());
+        assertFalse(changes.reset());
+        assertTrue(changes.highWaterMark().endsWith("-5"));
+        assertEquals(changes.highWaterMark(), next.highWaterMark());
+        assertFalse(next.reset());
+    }
+
+    @Test
+    void shouldFindChangesFromStartForUnknownMark() {
+        // given
+        when(userRepository.findChangedSince(0, 10)).thenReturn(new UserChanges(List.of(), List.of(), 3, false));
+
+        // when
+        UserChangesDto changes = userService.findChanges("restarted-7", 10);
+
+        // then
+        assertTrue(changes.reset());
+        assertTrue(changes.highWaterMark().endsWith("-3"));
+    }
+
+    @Test
+    void shouldFindChangesFromStartForCompactedMark() {
+        // given
+        when(userRepository.findChangedSince(0, 10)).thenReturn(new UserChanges(List.of(), List.of(), 5, false));
+        when(userRepository.findChangedSince(5, 10)).thenReturn(new UserChanges(List.of(), List.of(), 9, false, true));
+        String mark = userService.findChanges("0", 10).highWaterMark();
+
+        // when
+        UserChangesDto changes = userService.findChanges(mark, 10);
+
+        // then
+        assertTrue(changes.reset());
+        assertTrue(changes.highWaterMark().endsWith("-9"));
+    }
+
+    @Test
+    void shouldNotFindChangesWithInvalidParameters() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findChanges("7", 10));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findChanges("epoch-x", 10));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findChanges("0", 0));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findChanges("0", 1001));
+    }
+
+    @Test
+    void shouldNotSearchWithInvalidParameters() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.search(" ", 10));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.search("first", 0));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.search("first", 1001));
+    }
+
+    @Test
+    void shouldFindAllWithFields() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber");
+        byte[] body = new byte[]{1};
+
+        // when
+        when(userRepository.findAll()).thenReturn(List.of(user));
+        when(userFieldsWriter.write(List.of(user), EnumSet.of(UserField.ID, UserField.EMAIL, UserField.LINKS))).thenReturn(body);
+
+        // then
+        assertSame(body, userService.findAll(null, null, "email, id,_links"));
+    }
+
+    @Test
+    void shouldFindSerializedByIdWithFields() {
+        // given
+        User user = new User(1L, "email", "firstName", "lastName", LocalDate.now(), "address", "phoneNumber").withVersion(3);
+        byte[] body = new byte[]{1};
+
+        // when
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(userFieldsWriter.write(user, EnumSet.of(UserField.FIRST_NAME))).thenReturn(body);
+        SerializedUserDto serializedUserDto = userService.findSerializedById(1L, "firstName");
+
+        // then
+        assertEquals(new SerializedUserDto(3, body), serializedUserDto);
+    }
+
+    @Test
+    void shouldNotFindWithUnknownFields() {
+        // then
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findAll(null, null, "id,password"));
+        assertThrows(RequestParameterNotValidException.class, () -> userService.findSerializedById(1L, ""));
+        verify(userRepository).addListener(any());
+        verifyNoMoreInteractions(userRepository);
     }
-}
\ No newline at end of file
+}